@@ -2,8 +2,12 @@ package com.backend.hackathon;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
 public class HackathonApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(HackathonApplication.class, args);
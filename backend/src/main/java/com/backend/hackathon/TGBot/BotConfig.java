@@ -3,16 +3,59 @@ package com.backend.hackathon.TGBot;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 @Configuration
 @Data
 public class BotConfig {
+    public static final String MODE_POLLING = "polling";
+    public static final String MODE_WEBHOOK = "webhook";
+
     @Value("${botname}")
     private String botName;
     @Value("${token}")
     private String token;
 
+    // polling or webhook
+    @Value("${bot.mode:polling}")
+    private String mode;
+    // https://api.telegram.org/bot by default; point at a local stub for testing
+    @Value("${bot.api-url:https://api.telegram.org/bot}")
+    private String apiUrl;
+    @Value("${bot.webhook-url:}")
+    private String webhookUrl;
+    @Value("${bot.webhook-secret:}")
+    private String webhookSecret;
+
     // set token and botname in application.properties
-    // remember NOT TO RUN several backends with same tokens and botnames!!!!
-}
+    // several backends may share the token: only the elected leader polls updates (see BotInitializer)
 
+    public boolean isWebhookMode() {
+        return MODE_WEBHOOK.equalsIgnoreCase(mode);
+    }
+
+    public DefaultBotOptions botOptions() {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(apiUrl);
+        return options;
+    }
+
+    // Без явного секрета выводим его из токена, чтобы все экземпляры проверяли одно значение
+    public String getWebhookSecret() {
+        if (StringUtils.hasText(webhookSecret)) {
+            return webhookSecret;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(("webhook:" + token).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
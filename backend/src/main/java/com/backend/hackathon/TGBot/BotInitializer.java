@@ -1,28 +1,58 @@
 package com.backend.hackathon.TGBot;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.ContextRefreshedEvent;
+import com.backend.hackathon.event.LeadershipChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+
+// Бот опрашивает Telegram только на лидере: иначе несколько экземпляров с одним токеном получают 409 Conflict на getUpdates.
+// В режиме webhook лидер только регистрирует адрес, обновления принимает любой экземпляр за Caddy
 @Component
+@RequiredArgsConstructor
+@Slf4j
 public class BotInitializer {
-//    private final TelegramBot telegramBot;
-//    @Autowired
-//    public BotInitializer(TelegramBot telegramBot) {
-//        this.telegramBot = telegramBot;
-//    }
-//
-//    @EventListener({ContextRefreshedEvent.class})
-//    public void init()throws TelegramApiException {
-//        TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
-//        try{
-//            telegramBotsApi.registerBot(telegramBot);
-//        } catch (TelegramApiException e) {
-//            throw new RuntimeException(e);
-//        }
-//    }
-}
\ No newline at end of file
+    private final TelegramBot telegramBot;
+    private final TelegramApiClient apiClient;
+    private final BotConfig botConfig;
+    private BotSession session;
+
+    @EventListener
+    public synchronized void onLeadershipChanged(LeadershipChangedEvent event) {
+        if (botConfig.isWebhookMode()) {
+            if (event.leader()) {
+                registerWebhook();
+            }
+            return;
+        }
+        if (event.leader() && session == null) {
+            try {
+                session = new TelegramBotsApi(DefaultBotSession.class).registerBot(telegramBot);
+                log.info("Telegram bot started");
+            } catch (TelegramApiException e) {
+                log.error("Failed to start Telegram bot: {}", e.getMessage());
+            }
+        } else if (!event.leader() && session != null) {
+            session.stop();
+            session = null;
+            log.info("Telegram bot stopped");
+        }
+    }
+
+    private void registerWebhook() {
+        try {
+            apiClient.setWebhook(botConfig.getWebhookUrl(), botConfig.getWebhookSecret());
+            log.info("Telegram webhook set to {}", botConfig.getWebhookUrl());
+        } catch (IOException e) {
+            log.error("Failed to set Telegram webhook: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
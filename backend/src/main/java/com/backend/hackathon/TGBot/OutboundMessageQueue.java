@@ -0,0 +1,375 @@
+package com.backend.hackathon.TGBot;
+
+import com.backend.hackathon.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous outgoing message queue for the bot. Messages are sent in priority order under a global
+ * and a per-chat token bucket (Telegram limits: ~30 msg/s overall, ~1 msg/s per chat). Each chat has its
+ * own queue, so a throttled chat never blocks the others, and at most one request per chat is in flight,
+ * which keeps the order within a chat. 429 responses are retried after {@code retry_after}; queued
+ * notifications to the same chat are merged into one message.
+ */
+@Component
+@Slf4j
+public class OutboundMessageQueue {
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String BATCH_SEPARATOR = "\n\n";
+    private static final long IDLE_SWEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final TelegramApiClient apiClient;
+    private final double chatRate;
+    private final double chatBurst;
+    private final int capacity;
+    private final int maxAttempts;
+    private final int maxBatch;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Long, ChatQueue> chats = new HashMap<>();
+    // Готовые к отправке чаты по приоритету головного сообщения; ждущие - по времени готовности
+    private final TreeSet<ChatQueue> ready = new TreeSet<>(Comparator
+            .comparingInt((ChatQueue chat) -> chat.keyPriority)
+            .thenComparingLong(chat -> chat.keySeq));
+    private final PriorityQueue<ChatQueue> waiting = new PriorityQueue<>(
+            Comparator.comparingLong(chat -> chat.readyAtNanos));
+    private final TokenBucket globalBucket;
+    private final Semaphore senderSlots;
+    private final ExecutorService senders;
+    private final AtomicInteger pending = new AtomicInteger();
+    private long seq;
+    private long lastSweepNanos = System.nanoTime();
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public OutboundMessageQueue(TelegramApiClient apiClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${bot.outbound.global-rate:25}") double globalRate,
+                                @Value("${bot.outbound.chat-rate:1}") double chatRate,
+                                @Value("${bot.outbound.chat-burst:3}") double chatBurst,
+                                @Value("${bot.outbound.senders:4}") int senderThreads,
+                                @Value("${bot.outbound.capacity:10000}") int capacity,
+                                @Value("${bot.outbound.max-attempts:5}") int maxAttempts,
+                                @Value("${bot.outbound.max-batch:20}") int maxBatch) {
+        this.apiClient = apiClient;
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.maxBatch = maxBatch;
+        this.globalBucket = new TokenBucket(globalRate, globalRate, System.nanoTime());
+        this.senderSlots = new Semaphore(senderThreads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "tg-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("telegram.outbound.queue.depth", pending, AtomicInteger::get)
+                .description("Telegram messages waiting to be sent")
+                .register(meterRegistry);
+        this.sent = Counter.builder("telegram.outbound.sent").register(meterRegistry);
+        this.retried = Counter.builder("telegram.outbound.retried").register(meterRegistry);
+        this.dropped = Counter.builder("telegram.outbound.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "tg-outbound");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queues a message. Returns false when the queue is full.
+     */
+    public boolean send(long chatId, String text, Priority priority) {
+        return enqueue(chatId, text, priority, false);
+    }
+
+    /**
+     * Queues a low-priority notification; pending notifications to one chat are sent as one message.
+     */
+    public boolean notify(long chatId, String text) {
+        return enqueue(chatId, text, Priority.LOW, true);
+    }
+
+    public int pendingMessages() {
+        return pending.get();
+    }
+
+    private boolean enqueue(long chatId, String text, Priority priority, boolean batchable) {
+        lock.lock();
+        try {
+            if (pending.get() >= capacity) {
+                dropped.increment();
+                return false;
+            }
+            long now = System.nanoTime();
+            ChatQueue chat = chats.computeIfAbsent(chatId,
+                    id -> new ChatQueue(id, new TokenBucket(chatRate, chatBurst, now), now));
+            boolean wasReady = chat.state == ChatQueue.READY;
+            if (wasReady) {
+                // Новое сообщение может сменить головное - переставляем чат с новым ключом
+                ready.remove(chat);
+            }
+            chat.messages.add(new Outgoing(text, priority, batchable, seq++));
+            pending.incrementAndGet();
+            if (wasReady || chat.state == ChatQueue.IDLE) {
+                schedule(chat, now);
+            }
+            changed.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                senderSlots.acquire();
+                Dispatch next = awaitNext();
+                senders.execute(() -> {
+                    try {
+                        deliver(next);
+                    } finally {
+                        senderSlots.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Dispatch awaitNext() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                while (!waiting.isEmpty() && waiting.peek().readyAtNanos - now <= 0) {
+                    ChatQueue chat = waiting.poll();
+                    chat.state = ChatQueue.IDLE;
+                    schedule(chat, now);
+                }
+                sweepIdle(now);
+                if (ready.isEmpty()) {
+                    if (waiting.isEmpty()) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(waiting.peek().readyAtNanos - now);
+                    }
+                    continue;
+                }
+                long globalWait = globalBucket.nanosUntilToken(now);
+                if (globalWait > 0) {
+                    changed.awaitNanos(globalWait);
+                    continue;
+                }
+                ChatQueue chat = ready.pollFirst();
+                chat.state = ChatQueue.IDLE;
+                if (!chat.bucket.tryTake(now)) {
+                    chat.readyAtNanos = now + chat.bucket.nanosUntilToken(now);
+                    chat.state = ChatQueue.WAITING;
+                    waiting.add(chat);
+                    continue;
+                }
+                globalBucket.tryTake(now);
+                chat.state = ChatQueue.IN_FLIGHT;
+                return new Dispatch(chat, takeBatch(chat));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Outgoing> takeBatch(ChatQueue chat) {
+        List<Outgoing> batch = new ArrayList<>();
+        Outgoing first = chat.messages.poll();
+        batch.add(first);
+        int length = first.text.length();
+        while (first.batchable && batch.size() < maxBatch) {
+            Outgoing next = chat.messages.peek();
+            if (next == null || !next.batchable
+                    || length + BATCH_SEPARATOR.length() + next.text.length() > MAX_MESSAGE_LENGTH) {
+                break;
+            }
+            batch.add(chat.messages.poll());
+            length += BATCH_SEPARATOR.length() + next.text.length();
+        }
+        return batch;
+    }
+
+    private void deliver(Dispatch dispatch) {
+        StringJoiner text = new StringJoiner(BATCH_SEPARATOR);
+        dispatch.batch.forEach(message -> text.add(message.text));
+        SendMessage message = new SendMessage(String.valueOf(dispatch.chat.chatId), text.toString());
+        message.disableWebPagePreview();
+        long retryDelayNanos = 0;
+        try {
+            apiClient.execute(message);
+            sent.increment(dispatch.batch.size());
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+            if (errorCode != null && errorCode == 429) {
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                retryDelayNanos = TimeUnit.SECONDS.toNanos(retryAfter != null ? retryAfter : 1);
+            } else if (errorCode != null && errorCode >= 500) {
+                retryDelayNanos = backoffNanos(dispatch.batch);
+            } else {
+                // 400/403: чат недоступен или сообщение некорректно - повтор не поможет
+                log.warn("Telegram rejected message to chat {}: {}", dispatch.chat.chatId, e.getApiResponse());
+                dropped.increment(dispatch.batch.size());
+            }
+        } catch (TelegramApiException e) {
+            retryDelayNanos = backoffNanos(dispatch.batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to send message to chat {}: {}", dispatch.chat.chatId, e.getMessage());
+        }
+        complete(dispatch, retryDelayNanos);
+    }
+
+    private long backoffNanos(List<Outgoing> batch) {
+        int attempts = batch.get(0).attempts;
+        return TimeUnit.MILLISECONDS.toNanos(500L << Math.min(attempts, 6));
+    }
+
+    private void complete(Dispatch dispatch, long retryDelayNanos) {
+        lock.lock();
+        try {
+            ChatQueue chat = dispatch.chat;
+            long now = System.nanoTime();
+            int finished = dispatch.batch.size();
+            if (retryDelayNanos > 0) {
+                finished = 0;
+                for (Outgoing message : dispatch.batch) {
+                    if (++message.attempts >= maxAttempts) {
+                        dropped.increment();
+                        finished++;
+                    } else {
+                        retried.increment();
+                        chat.messages.add(message);
+                    }
+                }
+                chat.readyAtNanos = now + retryDelayNanos;
+            }
+            pending.addAndGet(-finished);
+            chat.state = ChatQueue.IDLE;
+            schedule(chat, now);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void schedule(ChatQueue chat, long now) {
+        if (chat.messages.isEmpty()) {
+            chat.state = ChatQueue.IDLE;
+            return;
+        }
+        if (chat.readyAtNanos - now > 0) {
+            chat.state = ChatQueue.WAITING;
+            waiting.add(chat);
+        } else {
+            Outgoing head = chat.messages.peek();
+            chat.keyPriority = head.priority.ordinal();
+            chat.keySeq = head.seq;
+            chat.state = ChatQueue.READY;
+            ready.add(chat);
+        }
+    }
+
+    // Пустые чаты с полным бакетом ничем не отличаются от новых
+    private void sweepIdle(long now) {
+        if (now - lastSweepNanos < IDLE_SWEEP_NANOS) {
+            return;
+        }
+        lastSweepNanos = now;
+        chats.values().removeIf(chat -> chat.state == ChatQueue.IDLE && chat.messages.isEmpty()
+                && chat.readyAtNanos - now <= 0 && chat.bucket.isFull(now));
+    }
+
+    private static final class Outgoing {
+        final String text;
+        final Priority priority;
+        final boolean batchable;
+        final long seq;
+        int attempts;
+
+        Outgoing(String text, Priority priority, boolean batchable, long seq) {
+            this.text = text;
+            this.priority = priority;
+            this.batchable = batchable;
+            this.seq = seq;
+        }
+    }
+
+    private static final class ChatQueue {
+        static final int IDLE = 0;
+        static final int READY = 1;
+        static final int WAITING = 2;
+        static final int IN_FLIGHT = 3;
+
+        final long chatId;
+        final TokenBucket bucket;
+        final PriorityQueue<Outgoing> messages = new PriorityQueue<>(Comparator
+                .comparingInt((Outgoing message) -> message.priority.ordinal())
+                .thenComparingLong(message -> message.seq));
+        long readyAtNanos;
+        int state = IDLE;
+        // Ключ в ready фиксируется при вставке и не меняется, пока чат там лежит
+        int keyPriority;
+        long keySeq;
+
+        ChatQueue(long chatId, TokenBucket bucket, long nowNanos) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+            this.readyAtNanos = nowNanos;
+        }
+    }
+
+    private record Dispatch(ChatQueue chat, List<Outgoing> batch) {
+    }
+}
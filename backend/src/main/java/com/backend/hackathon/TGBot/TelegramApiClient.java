@@ -0,0 +1,49 @@
+package com.backend.hackathon.TGBot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outgoing Bot API calls, independent of how updates are received (long polling or webhook).
+ */
+@Component
+public class TelegramApiClient extends DefaultAbsSender {
+
+    private final BotConfig botConfig;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public TelegramApiClient(BotConfig botConfig) {
+        super(botConfig.botOptions(), botConfig.getToken());
+        this.botConfig = botConfig;
+    }
+
+    // SetWebhook библиотека умеет отправлять только из WebhookBot со своим сервером; сертификат нам не нужен, хватает JSON
+    public void setWebhook(String url, String secretToken) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "url", url,
+                "secret_token", secretToken,
+                "allowed_updates", List.of("message", "inline_query")));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(botConfig.getApiUrl() + botConfig.getToken() + "/setWebhook"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("setWebhook failed: " + response.statusCode() + " " + response.body());
+        }
+    }
+}
@@ -1,63 +1,28 @@
 package com.backend.hackathon.TGBot;
 
-import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+// Приём обновлений в режиме long polling; обработка - в UpdateDispatcher, отправка - через OutboundMessageQueue
 @Component
-@AllArgsConstructor
 public class TelegramBot extends TelegramLongPollingBot {
     private final BotConfig botConfig;
-    @Override
-    public String getBotUsername() {
-        return botConfig.getBotName();
+    private final UpdateDispatcher updateDispatcher;
+
+    public TelegramBot(BotConfig botConfig, UpdateDispatcher updateDispatcher) {
+        super(botConfig.botOptions(), botConfig.getToken());
+        this.botConfig = botConfig;
+        this.updateDispatcher = updateDispatcher;
     }
 
     @Override
-    public String getBotToken() {
-        return botConfig.getToken();
+    public String getBotUsername() {
+        return botConfig.getBotName();
     }
 
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText()) {
-            handleTextMessage(update);
-        }
-    }
-
-    private void handleTextMessage(Update update) {
-        String messageText = update.getMessage().getText();
-        Long chatId = update.getMessage().getChatId();
-
-        if (messageText.equals("/start")) {
-            handleStartCommand(chatId);
-        }
-    }
-
-    private void handleStartCommand(Long chatId) {
-        String helloMessage = "";
-        SendMessage sendMessage = new SendMessage();
-        sendMessage.setText(helloMessage);
-        sendMessage.setChatId(chatId);
-        try {
-            execute(sendMessage);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void sendMessage(long chatId, String text) {
-        SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(text);
-        message.disableWebPagePreview();
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        updateDispatcher.dispatch(update);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.backend.hackathon.TGBot;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.service.PersonSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bot logic for incoming updates. Runs on {@link UpdateDispatcher} workers, replies go through
+ * {@link OutboundMessageQueue} and never block the worker on the Bot API.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TelegramUpdateHandler {
+    // Telegram показывает не больше 50 результатов inline-запроса
+    private static final int INLINE_RESULTS = 20;
+
+    private final OutboundMessageQueue outboundQueue;
+    private final TelegramApiClient apiClient;
+    private final PersonSearchIndex searchIndex;
+
+    public void handle(Update update) {
+        if (update.hasMessage() && update.getMessage().hasText()) {
+            handleTextMessage(update);
+        } else if (update.hasInlineQuery()) {
+            handleInlineQuery(update.getInlineQuery());
+        }
+    }
+
+    private void handleTextMessage(Update update) {
+        String messageText = update.getMessage().getText();
+        Long chatId = update.getMessage().getChatId();
+
+        if (messageText.equals("/start")) {
+            handleStartCommand(chatId);
+        }
+    }
+
+    private void handleStartCommand(Long chatId) {
+        String helloMessage = "";
+        outboundQueue.send(chatId, helloMessage, OutboundMessageQueue.Priority.HIGH);
+    }
+
+    // Ответ на inline-запрос не привязан к чату и должен уйти сразу, поэтому минует очередь.
+    // Событие у inline-запроса не передаётся (и обработка идёт в пуле UpdateDispatcher) - ищем в событии по умолчанию
+    private void handleInlineQuery(InlineQuery inlineQuery) {
+        List<InlineQueryResult> results = new ArrayList<>();
+        for (PersonMetadata person : searchIndex.search(EventContext.DEFAULT, inlineQuery.getQuery(), INLINE_RESULTS)) {
+            String fullName = person.getName() + " " + person.getSurname();
+            String description = person.getSchoolClass() + " · " + Math.round(person.getRating());
+            results.add(InlineQueryResultArticle.builder()
+                    .id(String.valueOf(person.getId()))
+                    .title(fullName)
+                    .description(description)
+                    .inputMessageContent(InputTextMessageContent.builder()
+                            .messageText(fullName + ", " + description)
+                            .build())
+                    .build());
+        }
+        AnswerInlineQuery answer = AnswerInlineQuery.builder()
+                .inlineQueryId(inlineQuery.getId())
+                .results(results)
+                .cacheTime(30)
+                .build();
+        try {
+            apiClient.execute(answer);
+        } catch (TelegramApiException e) {
+            log.warn("Failed to answer inline query: {}", e.getMessage());
+        }
+    }
+}
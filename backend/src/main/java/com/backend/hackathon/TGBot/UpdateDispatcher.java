@@ -0,0 +1,83 @@
+package com.backend.hackathon.TGBot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool for incoming updates, shared by long polling and the webhook endpoint.
+ */
+@Component
+@Slf4j
+public class UpdateDispatcher {
+
+    private final TelegramUpdateHandler handler;
+    private final ThreadPoolExecutor executor;
+    private final Counter processed;
+    private final Counter rejected;
+
+    public UpdateDispatcher(TelegramUpdateHandler handler,
+                            MeterRegistry meterRegistry,
+                            @Value("${bot.update-threads:2}") int threads,
+                            @Value("${bot.update-queue-capacity:100}") int queueCapacity) {
+        this.handler = handler;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "tg-update-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("telegram.updates.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        this.processed = Counter.builder("telegram.updates.processed").register(meterRegistry);
+        this.rejected = Counter.builder("telegram.updates.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Webhook: returns false when the queue is full, the endpoint answers 503 and Telegram redelivers later.
+     */
+    public boolean tryDispatch(Update update) {
+        try {
+            executor.execute(() -> process(update));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Long polling: when the queue is full the update is handled on the polling thread, which slows down polling.
+     */
+    public void dispatch(Update update) {
+        if (!tryDispatch(update)) {
+            process(update);
+        }
+    }
+
+    private void process(Update update) {
+        try {
+            handler.handle(update);
+            processed.increment();
+        } catch (RuntimeException e) {
+            log.error("Failed to handle update {}: {}", update.getUpdateId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,42 @@
+package com.backend.hackathon.auth;
+
+import java.util.regex.Pattern;
+
+/**
+ * Event (school, contest) the current request works in. Set by {@link EventContextFilter} for the
+ * duration of a request; code outside a request sees {@link #DEFAULT}.
+ */
+public final class EventContext {
+
+    public static final String DEFAULT = "default";
+
+    private static final Pattern CODE = Pattern.compile("[a-z0-9][a-z0-9_-]{0,63}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private EventContext() {
+    }
+
+    public static String current() {
+        String event = CURRENT.get();
+        return event != null ? event : DEFAULT;
+    }
+
+    static void set(String event) {
+        CURRENT.set(event);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Lower-cased code if it is a valid event code, otherwise null.
+     */
+    public static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String normalized = code.trim().toLowerCase();
+        return CODE.matcher(normalized).matches() ? normalized : null;
+    }
+}
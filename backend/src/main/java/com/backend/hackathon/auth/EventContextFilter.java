@@ -0,0 +1,45 @@
+package com.backend.hackathon.auth;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Resolves the event of a request: the X-Event header, then the {@code event} query parameter, then the
+ * Mini App start parameter ({@code t.me/bot/app?startapp=<event>}), otherwise {@link EventContext#DEFAULT}.
+ * A malformed code is rejected with 400 rather than silently mapped to the default event.
+ */
+@Component
+public class EventContextFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Event";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requested = request.getHeader(HEADER);
+        if (requested == null) {
+            requested = request.getParameter("event");
+        }
+        if (requested == null) {
+            requested = TelegramAuthFilter.getStartParam(request);
+        }
+        String event = requested == null ? EventContext.DEFAULT : EventContext.normalize(requested);
+        if (event == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("Invalid event code");
+            return;
+        }
+        EventContext.set(event);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            EventContext.clear();
+        }
+    }
+}
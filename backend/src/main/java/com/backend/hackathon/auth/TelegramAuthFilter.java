@@ -1,5 +1,8 @@
 package com.backend.hackathon.auth;
 
+import com.backend.hackathon.controller.TelegramWebhookController;
+import com.backend.hackathon.profiling.Phase;
+import com.backend.hackathon.profiling.RequestTiming;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -46,7 +49,9 @@ public class TelegramAuthFilter implements Filter {
 
         String path = httpRequest.getRequestURI();
 
-        if ("OPTIONS".equalsIgnoreCase(httpRequest.getMethod()) || isSwaggerPath(path)) {
+        // Webhook проверяет свой секрет сам (TelegramWebhookController)
+        if ("OPTIONS".equalsIgnoreCase(httpRequest.getMethod()) || isSwaggerPath(path)
+                || TelegramWebhookController.WEBHOOK_PATH.equals(path)) {
             chain.doFilter(request, response);
             return;
         }
@@ -59,7 +64,11 @@ public class TelegramAuthFilter implements Filter {
         }
 
         String initData = authHeader.substring(4);
-        if (!isTelegramDataValid(initData)) {
+        boolean valid;
+        try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.AUTH)) {
+            valid = isTelegramDataValid(initData);
+        }
+        if (!valid) {
             httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             httpResponse.getWriter().write("Unauthorized: invalid Telegram initData");
             return;
@@ -139,7 +148,6 @@ public class TelegramAuthFilter implements Filter {
                             ? json.substring(idStart + 5, commaIndex)
                             : json.substring(idStart + 5, json.indexOf("}", idStart));
                     try {
-                        System.out.println(Integer.valueOf(idStr.trim()));
                         return Long.valueOf(idStr.trim());
                     } catch (NumberFormatException ignored) {}
                 }
@@ -147,4 +155,19 @@ public class TelegramAuthFilter implements Filter {
         }
         return null;
     }
+
+    /**
+     * The Mini App start parameter (start_param in initData), or null.
+     */
+    public static String getStartParam(HttpServletRequest request) {
+        String authHeader = request.getHeader("authorization");
+        if (authHeader == null || !authHeader.startsWith("tma ")) return null;
+
+        for (String part : authHeader.substring(4).split("&")) {
+            if (part.startsWith("start_param=")) {
+                return URLDecoder.decode(part.substring(12), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
 }
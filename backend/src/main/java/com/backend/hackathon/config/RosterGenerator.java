@@ -0,0 +1,338 @@
+package com.backend.hackathon.config;
+
+import com.backend.hackathon.service.ImageResizer;
+import com.backend.hackathon.util.PhotoHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic roster for scale testing (profile "generate"): {@code generator.persons} persons with grades
+ * 5-11 split into classes of about 25, a roughly even gender split, ratings spread like after a season of
+ * voting, and procedurally drawn JPEG "portraits" of varied sizes. Drawing and encoding a photo per person
+ * would take hours at 1M, so a pool of {@code generator.photo-pool} distinct photos is reused.
+ * Rows go into the person table as multi-row INSERTs in one transaction per batch, and optionally into
+ * person.sql / person.csv dumps in {@code generator.dump-dir}. Same seed - same roster.
+ */
+@Component
+@Profile("generate")
+@Slf4j
+public class RosterGenerator implements CommandLineRunner {
+
+    private static final String COLUMNS = "name, surname, school_class, rating, photo, male, placeholder, "
+            + "dominant_color, photo_hash, event_code, version";
+    private static final int COLUMN_COUNT = 11;
+    private static final int CLASS_SIZE = 25;
+
+    private static final String[] MALE_NAMES = {"Александр", "Михаил", "Максим", "Артём", "Даниил", "Иван",
+            "Дмитрий", "Кирилл", "Андрей", "Егор", "Никита", "Илья", "Алексей", "Матвей", "Тимофей", "Роман",
+            "Владимир", "Ярослав", "Фёдор", "Георгий", "Лев", "Марк", "Степан", "Павел", "Глеб"};
+    private static final String[] FEMALE_NAMES = {"Анна", "Мария", "Софья", "Алиса", "Виктория", "Полина",
+            "Елизавета", "Александра", "Дарья", "Варвара", "Ксения", "Анастасия", "Екатерина", "Вероника",
+            "Арина", "Василиса", "Милана", "Ульяна", "Таисия", "Ева", "Кира", "Алёна", "Вера", "Ольга", "Юлия"};
+    // Мужская форма; женская - с окончанием "а" (Иванов - Иванова)
+    private static final String[] SURNAMES = {"Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров",
+            "Соколов", "Михайлов", "Новиков", "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семёнов",
+            "Егоров", "Павлов", "Козлов", "Степанов", "Николаев", "Орлов", "Андреев", "Макаров", "Никитин",
+            "Захаров", "Зайцев", "Соловьёв", "Борисов", "Яковлев", "Григорьев", "Романов", "Воробьёв"};
+    private static final Color[] SKIN = {new Color(0xF1C27D), new Color(0xE0AC69), new Color(0xFFDBAC),
+            new Color(0xC68642), new Color(0xF5D0B5)};
+    private static final Color[] HAIR = {new Color(0x2C1B10), new Color(0x6A4E42), new Color(0xB89778),
+            new Color(0xDCD0BA), new Color(0x8D4A43), new Color(0x111111)};
+
+    private final DataSource dataSource;
+    private final ImageResizer imageResizer;
+
+    @Value("${generator.persons:100000}")
+    private int persons;
+
+    @Value("${generator.seed:239}")
+    private long seed;
+
+    @Value("${generator.photo-share:0.9}")
+    private double photoShare;
+
+    @Value("${generator.photo-pool:256}")
+    private int photoPoolSize;
+
+    @Value("${generator.photo-min-size:200}")
+    private int photoMinSize;
+
+    @Value("${generator.photo-max-size:1200}")
+    private int photoMaxSize;
+
+    // Доля людей, за которых ещё не голосовали (рейтинг ровно 1000)
+    @Value("${generator.unrated-share:0.2}")
+    private double unratedShare;
+
+    @Value("${generator.rating-sigma:120}")
+    private double ratingSigma;
+
+    @Value("${generator.batch-rows:500}")
+    private int batchRows;
+
+    // Один INSERT не должен упереться в max_allowed_packet (64 МБ по умолчанию в MySQL 8)
+    @Value("${generator.batch-max-bytes:8388608}")
+    private long batchMaxBytes;
+
+    @Value("${generator.load:true}")
+    private boolean load;
+
+    // Загрузка в непустую таблицу только явно
+    @Value("${generator.append:false}")
+    private boolean append;
+
+    @Value("${generator.dump-dir:}")
+    private String dumpDir;
+
+    // Событие, в которое попадает состав; "не пустая таблица" проверяется внутри него
+    @Value("${generator.event:default}")
+    private String eventCode;
+
+    public RosterGenerator(DataSource dataSource, ImageResizer imageResizer) {
+        this.dataSource = dataSource;
+        this.imageResizer = imageResizer;
+    }
+
+    private record Photo(String image, String placeholder, String dominantColor, String hash) {
+    }
+
+    private record Row(String name, String surname, String schoolClass, double rating, Photo photo, String male,
+                       String eventCode) {
+        long bytes() {
+            return 200 + (photo == null ? 0 : photo.image().length() + photo.placeholder().length());
+        }
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Random random = new Random(seed);
+        long started = System.nanoTime();
+        List<Photo> photos = generatePhotos(random);
+        log.info("Generated {} synthetic photos in {} ms", photos.size(), (System.nanoTime() - started) / 1_000_000);
+
+        try (Connection connection = load ? dataSource.getConnection() : null;
+             Writer sqlDump = openDump("person.sql");
+             Writer csvDump = openDump("person.csv")) {
+            boolean loading = connection != null;
+            if (loading && !append && hasPersons(connection, eventCode)) {
+                log.warn("Event {} already has persons, skipping the load (set generator.append=true to add anyway)",
+                        eventCode);
+                loading = false;
+            }
+            if (!loading && sqlDump == null) {
+                return;
+            }
+            if (loading) {
+                connection.setAutoCommit(false);
+            }
+            if (sqlDump != null) {
+                sqlDump.write("SET NAMES utf8mb4;\n");
+            }
+            if (csvDump != null) {
+                csvDump.write(COLUMNS.replace(" ", "") + "\n");
+            }
+
+            int sections = Math.max(1, Math.round(persons / (7f * CLASS_SIZE)));
+            List<Row> batch = new ArrayList<>(batchRows);
+            long batchBytes = 0;
+            int done = 0;
+            int reported = 0;
+            started = System.nanoTime();
+            for (int i = 0; i < persons; i++) {
+                Row row = nextRow(random, sections, photos);
+                batch.add(row);
+                batchBytes += row.bytes();
+                if (batch.size() >= batchRows || batchBytes >= batchMaxBytes || i == persons - 1) {
+                    if (loading) {
+                        insert(connection, batch);
+                    }
+                    if (sqlDump != null) {
+                        writeSql(sqlDump, batch);
+                    }
+                    if (csvDump != null) {
+                        writeCsv(csvDump, batch);
+                    }
+                    done += batch.size();
+                    batch.clear();
+                    batchBytes = 0;
+                    if (done * 10L / persons > reported) {
+                        reported = (int) (done * 10L / persons);
+                        log.info("Roster generator: {} / {} persons", done, persons);
+                    }
+                }
+            }
+            long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            log.info("Roster generator finished: {} persons in {} ms ({} rows/s){}{}", persons, elapsedMs,
+                    persons * 1000L / elapsedMs, loading ? ", loaded into the database" : "",
+                    sqlDump != null ? ", dumps in " + dumpDir : "");
+        }
+    }
+
+    private Row nextRow(Random random, int sections, List<Photo> photos) {
+        boolean male = random.nextBoolean();
+        String name = male ? MALE_NAMES[random.nextInt(MALE_NAMES.length)]
+                : FEMALE_NAMES[random.nextInt(FEMALE_NAMES.length)];
+        String surname = SURNAMES[random.nextInt(SURNAMES.length)] + (male ? "" : "а");
+        String schoolClass = (5 + random.nextInt(7)) + "-" + (1 + random.nextInt(sections));
+        double rating = 1000;
+        if (random.nextDouble() >= unratedShare) {
+            // Как после сезона голосования: нормальное распределение вокруг 1000, без нереальных хвостов
+            rating = Math.round(Math.max(400, Math.min(1600, 1000 + random.nextGaussian() * ratingSigma)) * 100) / 100.0;
+        }
+        Photo photo = photos.isEmpty() || random.nextDouble() >= photoShare ? null
+                : photos.get(random.nextInt(photos.size()));
+        return new Row(name, surname, schoolClass, rating, photo, male ? "male" : "female", eventCode);
+    }
+
+    private List<Photo> generatePhotos(Random random) throws IOException {
+        List<Photo> photos = new ArrayList<>(photoPoolSize);
+        for (int i = 0; i < photoPoolSize; i++) {
+            int width = photoMinSize + random.nextInt(Math.max(1, photoMaxSize - photoMinSize + 1));
+            // Портретные, квадратные и альбомные - как у настоящих фото
+            int height = switch (random.nextInt(3)) {
+                case 0 -> width * 4 / 3;
+                case 1 -> width;
+                default -> width * 3 / 4;
+            };
+            String image = drawPortrait(random, width, height);
+            ImageResizer.Placeholder placeholder = imageResizer.placeholder(image, 16);
+            photos.add(new Photo(image, placeholder.image(), placeholder.dominantColor(), PhotoHash.of(image)));
+        }
+        return photos;
+    }
+
+    private static String drawPortrait(Random random, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setPaint(new GradientPaint(0, 0, randomColor(random), width, height, randomColor(random)));
+        graphics.fillRect(0, 0, width, height);
+        // Плечи, голова, волосы
+        graphics.setColor(randomColor(random));
+        graphics.fillOval(width / 10, height * 7 / 10, width * 8 / 10, height * 6 / 10);
+        Color hair = HAIR[random.nextInt(HAIR.length)];
+        graphics.setColor(hair);
+        graphics.fillOval(width * 27 / 100, height * 15 / 100, width * 46 / 100, height * 45 / 100);
+        graphics.setColor(SKIN[random.nextInt(SKIN.length)]);
+        graphics.fillOval(width * 3 / 10, height * 22 / 100, width * 4 / 10, height * 48 / 100);
+        graphics.setColor(hair.darker());
+        graphics.fillOval(width * 40 / 100, height * 38 / 100, width / 20, height / 30);
+        graphics.fillOval(width * 55 / 100, height * 38 / 100, width / 20, height / 30);
+        graphics.dispose();
+        // Шум, чтобы JPEG был похож по размеру на реальное фото (как в PhotoResizeBenchmark)
+        for (int i = 0; i < width * height / 8; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            image.setRGB(x, y, image.getRGB(x, y) ^ (random.nextInt() & 0x0F0F0F));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    private static Color randomColor(Random random) {
+        return new Color(random.nextInt(0xFFFFFF));
+    }
+
+    private static boolean hasPersons(Connection connection, String eventCode) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM person WHERE event_code = ? LIMIT 1")) {
+            statement.setString(1, eventCode);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    // Многострочный INSERT: на MySQL быстрее пакета одиночных без rewriteBatchedStatements
+    private static void insert(Connection connection, List<Row> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO person (" + COLUMNS + ") VALUES ");
+        String placeholders = "(" + "?, ".repeat(COLUMN_COUNT - 1) + "?)";
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholders);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Row row : rows) {
+                statement.setString(index++, row.name());
+                statement.setString(index++, row.surname());
+                statement.setString(index++, row.schoolClass());
+                statement.setDouble(index++, row.rating());
+                statement.setString(index++, row.photo() == null ? null : row.photo().image());
+                statement.setString(index++, row.male());
+                statement.setString(index++, row.photo() == null ? null : row.photo().placeholder());
+                statement.setString(index++, row.photo() == null ? null : row.photo().dominantColor());
+                statement.setString(index++, row.photo() == null ? null : row.photo().hash());
+                statement.setString(index++, row.eventCode());
+                statement.setLong(index++, 0);
+            }
+            statement.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private static void writeSql(Writer out, List<Row> rows) throws IOException {
+        out.write("INSERT INTO person (" + COLUMNS + ") VALUES\n");
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            Photo photo = row.photo();
+            out.write("(" + sqlString(row.name()) + ", " + sqlString(row.surname()) + ", " + sqlString(row.schoolClass())
+                    + ", " + row.rating() + ", " + sqlString(photo == null ? null : photo.image())
+                    + ", " + sqlString(row.male()) + ", " + sqlString(photo == null ? null : photo.placeholder())
+                    + ", " + sqlString(photo == null ? null : photo.dominantColor())
+                    + ", " + sqlString(photo == null ? null : photo.hash()) + ", " + sqlString(row.eventCode()) + ", 0)");
+            out.write(i == rows.size() - 1 ? ";\n" : ",\n");
+        }
+    }
+
+    private static void writeCsv(Writer out, List<Row> rows) throws IOException {
+        for (Row row : rows) {
+            Photo photo = row.photo();
+            out.write(csvString(row.name()) + "," + csvString(row.surname()) + "," + csvString(row.schoolClass())
+                    + "," + row.rating() + "," + csvString(photo == null ? null : photo.image())
+                    + "," + csvString(row.male()) + "," + csvString(photo == null ? null : photo.placeholder())
+                    + "," + csvString(photo == null ? null : photo.dominantColor())
+                    + "," + csvString(photo == null ? null : photo.hash()) + "," + csvString(row.eventCode()) + ",0\n");
+        }
+    }
+
+    private static String sqlString(String value) {
+        return value == null ? "NULL" : "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    // NULL - \N, как его понимает LOAD DATA
+    private static String csvString(String value) {
+        return value == null ? "\\N" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private Writer openDump(String fileName) throws IOException {
+        if (dumpDir == null || dumpDir.isBlank()) {
+            return null;
+        }
+        Path dir = Path.of(dumpDir);
+        Files.createDirectories(dir);
+        return new BufferedWriter(Files.newBufferedWriter(dir.resolve(fileName), StandardCharsets.UTF_8), 1 << 20);
+    }
+}
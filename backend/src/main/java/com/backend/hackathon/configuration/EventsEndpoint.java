@@ -0,0 +1,39 @@
+package com.backend.hackathon.configuration;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.service.EventService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/events - события с числом участников и признаком архива;
+// POST /actuator/events {"code": "school-239-2024", "action": "archive" | "restore"}
+@Component
+@Endpoint(id = "events")
+@RequiredArgsConstructor
+public class EventsEndpoint {
+
+    private final EventService eventService;
+
+    @ReadOperation
+    public List<EventService.EventInfo> events() {
+        return eventService.list();
+    }
+
+    @WriteOperation
+    public EventService.EventInfo archive(String code, String action) {
+        String eventCode = EventContext.normalize(code);
+        if (eventCode == null) {
+            throw new IllegalArgumentException("Invalid event code: " + code);
+        }
+        return switch (action) {
+            case "archive" -> eventService.archive(eventCode, true);
+            case "restore" -> eventService.archive(eventCode, false);
+            default -> throw new IllegalArgumentException("Unknown action: " + action);
+        };
+    }
+}
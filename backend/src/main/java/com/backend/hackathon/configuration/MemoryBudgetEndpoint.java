@@ -0,0 +1,28 @@
+package com.backend.hackathon.configuration;
+
+import com.backend.hackathon.service.MemoryBudget;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/memorybudget - текущие лимиты и занятость кэшей
+@Component
+@Endpoint(id = "memorybudget")
+@RequiredArgsConstructor
+public class MemoryBudgetEndpoint {
+
+    private final MemoryBudget memoryBudget;
+
+    @ReadOperation
+    public Snapshot memoryBudget() {
+        return new Snapshot(memoryBudget.getBudgetBytes(), memoryBudget.getFactor(),
+                memoryBudget.getLastOccupancy(), memoryBudget.allocations());
+    }
+
+    public record Snapshot(long budgetBytes, double factor, double heapOccupancyAfterGc,
+                           List<MemoryBudget.Allocation> caches) {
+    }
+}
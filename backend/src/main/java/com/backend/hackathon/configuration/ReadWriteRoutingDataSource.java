@@ -0,0 +1,26 @@
+package com.backend.hackathon.configuration;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes to the replica pool for read-only transactions and to the primary otherwise.
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the readOnly flag of the transaction is only
+ * known after the transaction manager has started, i.e. after the connection would normally be taken.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaRoutingContext routingContext;
+
+    public ReadWriteRoutingDataSource(ReplicaRoutingContext routingContext) {
+        this.routingContext = routingContext;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routingContext.useReplica() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,62 @@
+package com.backend.hackathon.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Polls the replica's lag and takes it out of rotation while it is behind by more than
+ * datasource.replica.max-lag-seconds (or replication is broken).
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ReplicaRoutingContext routingContext;
+
+    @Value("${datasource.replica.max-lag-seconds:2}")
+    private long maxLagSeconds;
+
+    // mysql - проверять SHOW REPLICA STATUS, none - считать реплику всегда актуальной
+    @Value("${datasource.replica.lag-check:mysql}")
+    private String lagCheck;
+
+    public ReplicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             ReplicaRoutingContext routingContext) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.routingContext = routingContext;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void checkReplicaLag() {
+        if (!"mysql".equalsIgnoreCase(lagCheck)) {
+            return;
+        }
+        boolean healthy;
+        try {
+            List<Long> lags = replicaJdbcTemplate.query("SHOW REPLICA STATUS", (rs, rowNum) -> {
+                long lag = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? null : lag;
+            });
+            // Пустой результат или NULL - репликация не настроена или остановлена
+            healthy = !lags.isEmpty() && lags.get(0) != null && lags.get(0) <= maxLagSeconds;
+        } catch (Exception e) {
+            healthy = false;
+        }
+        if (healthy != routingContext.isReplicaHealthy()) {
+            log.warn("Read replica {}", healthy
+                    ? "caught up, routing reads to it again"
+                    : "lagging or unavailable, routing reads to primary");
+        }
+        routingContext.setReplicaHealthy(healthy);
+    }
+}
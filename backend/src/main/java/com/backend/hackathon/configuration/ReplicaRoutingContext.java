@@ -0,0 +1,74 @@
+package com.backend.hackathon.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides per connection whether the read replica may be used: only inside readOnly transactions,
+ * only while the replica lag is within tolerance, and never for a user who has just written
+ * (read-your-writes window).
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final long readYourWritesMs;
+    private final Map<Long, Long> recentWriters = new ConcurrentHashMap<>();
+    private volatile boolean replicaHealthy = true;
+
+    // Должно быть больше допустимого отставания реплики, иначе проголосовавший может не увидеть свой голос
+    public ReplicaRoutingContext(@Value("${datasource.replica.read-your-writes-ms:5000}") long readYourWritesMs) {
+        this.readYourWritesMs = readYourWritesMs;
+    }
+
+    public boolean useReplica() {
+        return replicaHealthy
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    public void setReplicaHealthy(boolean healthy) {
+        this.replicaHealthy = healthy;
+    }
+
+    public boolean isReplicaHealthy() {
+        return replicaHealthy;
+    }
+
+    public void recordWrite(Long telegramId) {
+        if (telegramId != null) {
+            recentWriters.put(telegramId, System.currentTimeMillis() + readYourWritesMs);
+        }
+    }
+
+    /**
+     * Pins the current request thread to the primary if this user wrote within the window.
+     */
+    public void pinIfRecentWriter(Long telegramId) {
+        if (telegramId == null) {
+            return;
+        }
+        Long until = recentWriters.get(telegramId);
+        if (until != null && until > System.currentTimeMillis()) {
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        }
+    }
+
+    public void clearPin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredWriters() {
+        long now = System.currentTimeMillis();
+        recentWriters.values().removeIf(until -> until <= now);
+    }
+}
@@ -0,0 +1,40 @@
+package com.backend.hackathon.configuration;
+
+import com.backend.hackathon.entity.QuarantinedVote;
+import com.backend.hackathon.service.VoteFraudDetector;
+import com.backend.hackathon.service.VoteQuarantineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/votefraud - самые активные пары (голосующий, победитель) и победители за окно, карантин;
+// POST /actuator/votefraud {"id": 1, "action": "release" | "discard"} - решение по голосу из карантина
+@Component
+@Endpoint(id = "votefraud")
+@RequiredArgsConstructor
+public class VoteFraudEndpoint {
+
+    private final VoteFraudDetector detector;
+    private final VoteQuarantineService quarantine;
+
+    @ReadOperation
+    public Snapshot voteFraud() {
+        return new Snapshot(detector.report(), quarantine.count(), quarantine.recent());
+    }
+
+    @WriteOperation
+    public boolean decide(long id, String action) {
+        return switch (action) {
+            case "release" -> quarantine.release(id);
+            case "discard" -> quarantine.discard(id);
+            default -> throw new IllegalArgumentException("Unknown action: " + action);
+        };
+    }
+
+    public record Snapshot(VoteFraudDetector.Report detector, long quarantined, List<QuarantinedVote> recent) {
+    }
+}
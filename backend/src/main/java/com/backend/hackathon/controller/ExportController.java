@@ -0,0 +1,70 @@
+package com.backend.hackathon.controller;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.service.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
+
+// Выгрузка текущего события без загрузки таблицы в память: ?format=ndjson|csv&gzip=true.
+// Событие берётся здесь, на потоке запроса: тело пишется уже в другом потоке, без EventContext
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/persons")
+    public ResponseEntity<StreamingResponseBody> exportPersons(
+            @RequestParam(required = false, defaultValue = "ndjson") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+        ExportService.Format parsed = parseFormat(format);
+        if (parsed == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return streamed("persons", parsed, gzip, exportService.exportPersons(EventContext.current(), parsed, gzip));
+    }
+
+    @GetMapping("/votes")
+    public ResponseEntity<StreamingResponseBody> exportVotes(
+            @RequestParam(required = false, defaultValue = "ndjson") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+        ExportService.Format parsed = parseFormat(format);
+        if (parsed == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return streamed("votes", parsed, gzip, exportService.exportVotes(EventContext.current(), parsed, gzip));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streamed(String name, ExportService.Format format, boolean gzip,
+                                                                  StreamingResponseBody body) {
+        String fileName = name + "." + format.getExtension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    private static ExportService.Format parseFormat(String format) {
+        try {
+            return ExportService.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
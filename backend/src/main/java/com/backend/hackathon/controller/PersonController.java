@@ -1,19 +1,45 @@
 package com.backend.hackathon.controller;
 
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.auth.TelegramAuthFilter;
 import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonPatch;
+import com.backend.hackathon.entity.RatingHistoryResponse;
 import com.backend.hackathon.entity.VoteRequest;
+import com.backend.hackathon.profiling.Phase;
+import com.backend.hackathon.profiling.RequestTiming;
+import com.backend.hackathon.service.DatabaseCircuitBreaker;
+import com.backend.hackathon.service.DegradedModeService;
+import com.backend.hackathon.service.EventService;
+import com.backend.hackathon.service.PairStatsService;
+import com.backend.hackathon.service.PersonSearchIndex;
 import com.backend.hackathon.service.PersonService;
 import com.backend.hackathon.service.PhotoCompressionService;
+import com.backend.hackathon.service.PhotoIngestService;
+import com.backend.hackathon.service.RatingHistoryService;
+import com.backend.hackathon.service.RenditionPublisher;
 import com.backend.hackathon.service.StudentConverterService;
+import com.backend.hackathon.service.StudentSyncService;
+import com.backend.hackathon.service.VoteFraudDetector;
+import com.backend.hackathon.service.VoteQuarantineService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
@@ -22,18 +48,52 @@ public class PersonController {
     private final StudentConverterService converterService;
     private final PersonService personService;
     private final PhotoCompressionService photoCompressionService;
+    private final RatingHistoryService ratingHistoryService;
+    private final PersonSearchIndex searchIndex;
+    private final PhotoIngestService photoIngestService;
+    private final DatabaseCircuitBreaker databaseBreaker;
+    private final DegradedModeService degradedMode;
+    private final RenditionPublisher renditionPublisher;
+    private final VoteFraudDetector fraudDetector;
+    private final VoteQuarantineService voteQuarantine;
+    private final PairStatsService pairStats;
+    private final EventService eventService;
+    private final StudentSyncService syncService;
 
-    public PersonController(PersonService personService, StudentConverterService converterService, PhotoCompressionService photoCompressionService) {
+    @Value("${photo.cache-max-age-seconds:300}")
+    private long photoMaxAgeSeconds;
+
+    public PersonController(PersonService personService, StudentConverterService converterService, PhotoCompressionService photoCompressionService,
+                            RatingHistoryService ratingHistoryService, PersonSearchIndex searchIndex,
+                            PhotoIngestService photoIngestService, DatabaseCircuitBreaker databaseBreaker,
+                            DegradedModeService degradedMode, RenditionPublisher renditionPublisher,
+                            VoteFraudDetector fraudDetector, VoteQuarantineService voteQuarantine,
+                            PairStatsService pairStats, EventService eventService,
+                            StudentSyncService syncService) {
         this.personService = personService;
         this.converterService = converterService;
         this.photoCompressionService = photoCompressionService;
+        this.ratingHistoryService = ratingHistoryService;
+        this.searchIndex = searchIndex;
+        this.photoIngestService = photoIngestService;
+        this.databaseBreaker = databaseBreaker;
+        this.degradedMode = degradedMode;
+        this.renditionPublisher = renditionPublisher;
+        this.fraudDetector = fraudDetector;
+        this.voteQuarantine = voteQuarantine;
+        this.pairStats = pairStats;
+        this.eventService = eventService;
+        this.syncService = syncService;
     }
 
 
     @GetMapping("/persons")
     public ResponseEntity<List<Person>> getPersons(
             @RequestParam(required = false, defaultValue = "false") boolean includePhotos){
-        List<Person> persons = personService.getAllPersons();
+        String eventCode = EventContext.current();
+        // Этот список - рейтинг на странице RatingsPage: без базы он отдаётся из индекса в памяти
+        List<Person> persons = databaseBreaker.call(() -> personService.getAllPersons(eventCode),
+                () -> degradedMode.listPersons(eventCode, includePhotos));
         
         // If photos are not requested, exclude them to reduce response size (41MB -> ~100KB)
         // This prevents timeouts when loading all 909 persons
@@ -48,9 +108,17 @@ public class PersonController {
         return ResponseEntity.ok().body(persons);
     }
 
+    // Поиск по имени, фамилии и классу без фото: "петров 10", "ален"
+    @GetMapping("/persons/search")
+    public ResponseEntity<List<PersonMetadata>> searchPersons(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        return ResponseEntity.ok().body(searchIndex.search(EventContext.current(), q, Math.min(limit, 100)));
+    }
+
     @GetMapping("/persons/filter/{male}")
     public ResponseEntity<List<Person>> getPersonsFilteredByMale(@PathVariable String male){
-        return ResponseEntity.ok().body(personService.getPersonsFilteredByMale(male));
+        return ResponseEntity.ok().body(personService.getPersonsFilteredByMale(EventContext.current(), male));
     }
 
     @GetMapping("/persons/{id}")
@@ -58,50 +126,133 @@ public class PersonController {
             @PathVariable long id,
             @RequestParam(required = false) Integer photoWidth,
             @RequestParam(required = false) Integer photoHeight){
-        Person person = personService.getPersonById(id);
-        
-        // Resize photo if dimensions are specified
-        if (person != null && person.getPhoto() != null && photoWidth != null && photoHeight != null) {
-            String resizedPhoto = photoCompressionService.resizeBase64Image(person.getPhoto(), photoWidth, photoHeight);
-            if (resizedPhoto != null) {
-                person.setPhoto(resizedPhoto);
+        PersonMetadata metadata = personService.getPersonMetadata(id);
+        if (metadata == null) {
+            return ResponseEntity.ok().body(null);
+        }
+
+        // Metadata comes from the cache; the photo LOB is only read when no resized copy is cached
+        boolean resize = photoWidth != null && photoHeight != null;
+        // Уже опубликованный файл: ни LOB, ни ресайза - только URL
+        String photoUrl = resize ? renditionPublisher.publishedUrl(metadata.getPhotoHash(), photoWidth, photoHeight) : null;
+        Person person = metadata.toPerson(resize && photoUrl == null
+                ? photoCompressionService.getCachedRendition(id, photoWidth, photoHeight) : null);
+        if (photoUrl != null) {
+            person.setPhotoUrl(photoUrl);
+        } else if (person.getPhoto() == null) {
+            person.setPhoto(personService.getPersonPhoto(id));
+            if (person.getPhoto() != null && resize && renditionPublisher.isEnabled()) {
+                renditionPublisher.attachUrls(List.of(person), photoWidth, photoHeight);
+            } else if (person.getPhoto() != null && resize) {
+                photoCompressionService.resizePersonPhotos(List.of(person), photoWidth, photoHeight);
             }
         }
         
-        return ResponseEntity.ok().body(person);
+        return ResponseEntity.ok().eTag(String.valueOf(person.getVersion())).body(person);
     }
     
+    // ETag - версия человека и размер: фото меняется только вместе с версией, повторный запрос получает 304
     @GetMapping("/persons/{id}/photo")
     public ResponseEntity<String> getPersonPhoto(
             @PathVariable long id,
             @RequestParam(required = false, defaultValue = "400") int width,
-            @RequestParam(required = false, defaultValue = "400") int height){
+            @RequestParam(required = false, defaultValue = "400") int height,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch){
+        PersonMetadata metadata = personService.getPersonMetadata(id);
+        if (metadata == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = "\"" + metadata.getVersion() + "-" + width + "x" + height + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(photoMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
+        if (ifNoneMatch != null && ifNoneMatch.replace("W/", "").trim().equals(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        String cached = photoCompressionService.getCachedRendition(id, width, height);
+        if (cached != null) {
+            return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(cached);
+        }
         Person person = personService.getPersonById(id);
         
         if (person == null || person.getPhoto() == null) {
             return ResponseEntity.notFound().build();
         }
         
-        String resizedPhoto = photoCompressionService.resizeBase64Image(person.getPhoto(), width, height);
-        if (resizedPhoto == null) {
-            return ResponseEntity.ok().body(person.getPhoto()); // Return original on error
+        // On error or overload the original (or nearest cached) photo is left in place
+        photoCompressionService.resizePersonPhotos(List.of(person), width, height);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(person.getPhoto());
+    }
+
+    @GetMapping("/persons/{id}/history")
+    public ResponseEntity<RatingHistoryResponse> getPersonHistory(@PathVariable long id){
+        return ResponseEntity.ok().body(ratingHistoryService.getHistory(id));
+    }
+
+    // С кем человек встречался в дуэлях чаще всего и с каким счётом
+    @GetMapping("/persons/{id}/rivals")
+    public ResponseEntity<List<PairStatsService.Rival>> getPersonRivals(
+            @PathVariable long id,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        return ResponseEntity.ok().body(pairStats.rivals(id, Math.min(limit, 100)));
+    }
+
+    // Счёт личных встреч двух человек - для экрана дуэли
+    @GetMapping("/persons/duo/stats")
+    public ResponseEntity<PairStatsService.PairStats> getDuoStats(@RequestParam long firstId,
+                                                                  @RequestParam long secondId) {
+        if (firstId == secondId || firstId <= 0 || secondId <= 0) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        return ResponseEntity.ok().body(resizedPhoto);
+        return ResponseEntity.ok().body(pairStats.pair(firstId, secondId));
     }
 
     @PostMapping("/persons")
     public ResponseEntity<Person> createPerson(@RequestBody Person person){
+        String eventCode = EventContext.current();
+        eventService.requireActive(eventCode);
+        person.setEventCode(eventCode);
         return ResponseEntity.ok().body(personService.createPerson(person));
     }
 
     @PutMapping("/persons/{id}")
-    public ResponseEntity<Person> updatePerson(@PathVariable int id,@RequestBody Person person){
+    public ResponseEntity<Person> updatePerson(@PathVariable long id,@RequestBody Person person){
         return ResponseEntity.ok().body(personService.updatePerson(id,person));
     }
 
+    // Частичная правка: только переданные поля, без перезаписи фото. Версия - в теле или в If-Match, при конфликте 409
+    @PatchMapping("/persons/{id}")
+    public ResponseEntity<PersonMetadata> patchPerson(
+            @PathVariable long id,
+            @RequestBody PersonPatch patch,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Long expectedVersion = patch.getVersion() != null ? patch.getVersion() : parseVersion(ifMatch);
+        PersonMetadata updated = personService.patchPerson(id, patch, expectedVersion);
+        return ResponseEntity.ok().eTag(String.valueOf(updated.getVersion())).body(updated);
+    }
+
+    // Фото меняется только здесь: multipart (часть "photo") или сырые байты картинки в теле
+    @PutMapping(value = "/persons/{id}/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<PersonMetadata> uploadPersonPhoto(
+            @PathVariable long id,
+            @RequestPart("photo") MultipartFile photo,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) throws IOException {
+        try (InputStream body = photo.getInputStream()) {
+            PersonMetadata updated = photoIngestService.ingest(id, body, parseVersion(ifMatch));
+            return ResponseEntity.ok().eTag(String.valueOf(updated.getVersion())).body(updated);
+        }
+    }
+
+    @PutMapping(value = "/persons/{id}/photo",
+            consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<PersonMetadata> uploadPersonPhotoBytes(
+            @PathVariable long id,
+            HttpServletRequest request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) throws IOException {
+        PersonMetadata updated = photoIngestService.ingest(id, request.getInputStream(), parseVersion(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(updated.getVersion())).body(updated);
+    }
+
     @DeleteMapping("/persons/{id}")
-    public ResponseEntity<Void> deletePerson(@PathVariable int id){
+    public ResponseEntity<Void> deletePerson(@PathVariable long id){
         personService.deletePerson(id);
         return ResponseEntity.noContent().build();
     }
@@ -112,64 +263,94 @@ public class PersonController {
             @RequestParam(required = false, defaultValue = "false") boolean haveAvatar,
             @RequestParam(required = false) Boolean oldSchool,
             @RequestParam(required = false) Integer photoWidth,
-            @RequestParam(required = false) Integer photoHeight) {
-        List<Person> persons;
-        
-        if (haveAvatar) {
-            persons = personService.getTwoRandomPersonsByMaleAndPhoto(male, true, oldSchool);
-        } else {
-            persons = personService.getTwoRandomPersonsByMale(male, oldSchool);
-        }
-        
-        // Resize photos if dimensions are specified
-        if (photoWidth != null && photoHeight != null) {
-            for (Person person : persons) {
-                if (person.getPhoto() != null) {
-                    String resizedPhoto = photoCompressionService.resizeBase64Image(person.getPhoto(), photoWidth, photoHeight);
-                    if (resizedPhoto != null) {
-                        person.setPhoto(resizedPhoto);
-                    }
+            @RequestParam(required = false) Integer photoHeight,
+            @RequestParam(required = false, defaultValue = "true") boolean inlinePhotos,
+            HttpServletRequest request) {
+        Long viewerId = TelegramAuthFilter.getTelegramId(request);
+        String eventCode = EventContext.current();
+        eventService.requireActive(eventCode);
+
+        // Без базы пара берётся из индексов в памяти, фото - из кэша размеров
+        List<Person> persons = databaseBreaker.call(() -> {
+            List<Person> selected;
+            // Фаза с коммитом транзакции; время запросов к БД внутри отдельно попадает в "db"
+            try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.SELECT)) {
+                if (haveAvatar) {
+                    selected = personService.getTwoRandomPersonsByMaleAndPhoto(eventCode, male, true, oldSchool, viewerId);
+                } else {
+                    selected = personService.getTwoRandomPersonsByMale(eventCode, male, oldSchool, viewerId);
                 }
             }
-        }
-        
+
+            // inlinePhotos=false: в ответе только превью и цвет, фото клиент грузит через /persons/{id}/photo
+            if (!inlinePhotos) {
+                selected.forEach(person -> person.setPhoto(null));
+            } else if (renditionPublisher.isEnabled()) {
+                renditionPublisher.attachUrls(selected, photoWidth, photoHeight);
+            } else if (photoWidth != null && photoHeight != null) {
+                photoCompressionService.resizePersonPhotos(selected, photoWidth, photoHeight);
+            }
+            return selected;
+        }, () -> degradedMode.pickDuel(eventCode, male, haveAvatar, oldSchool, viewerId, photoWidth, photoHeight, inlinePhotos));
+
         return ResponseEntity.ok().body(persons);
     }
 
+    // 204 - голос применён, 202 - база недоступна и голос сохранён локально до её возвращения,
+    // либо голос похож на накрутку и отложен в карантин (клиенту это не сообщается)
     @PostMapping("/persons/duo/vote")
-    public ResponseEntity<Void> duoVote(@RequestBody VoteRequest voteRequest){
-        personService.duoVote(voteRequest.getWinnerId(),voteRequest.getLoserId());
+    public ResponseEntity<Void> duoVote(@RequestBody VoteRequest voteRequest, HttpServletRequest request){
+        long winnerId = voteRequest.getWinnerId();
+        long loserId = voteRequest.getLoserId();
+        // Принадлежность участников событию проверяется уже при применении голоса
+        eventService.requireActive(EventContext.current());
+        Long telegramId = TelegramAuthFilter.getTelegramId(request);
+        // X-Real-IP выставляет Caddy, клиент его не подменит; порт отрезаем на случай старого {remote} в конфиге
+        String clientIp = VoteFraudDetector.clientHost(
+                Objects.requireNonNullElse(request.getHeader("X-Real-IP"), request.getRemoteAddr()));
+        String voter = VoteFraudDetector.voterLabel(telegramId, clientIp);
+        VoteFraudDetector.Verdict verdict = fraudDetector.inspect(
+                VoteFraudDetector.voterKey(telegramId, clientIp), voter, winnerId);
+        if (verdict != null) {
+            voteQuarantine.quarantine(winnerId, loserId, voter, verdict);
+            return ResponseEntity.accepted().build();
+        }
+        boolean applied = !degradedMode.mustSpillVotes() && databaseBreaker.call(() -> {
+            try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.VOTE)) {
+                personService.duoVote(winnerId, loserId);
+            }
+            return true;
+        }, () -> false);
+        if (!applied) {
+            degradedMode.spillVote(winnerId, loserId);
+            return ResponseEntity.accepted().build();
+        }
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/convert-and-save")
     public List<Person> convertAndSaveStudents() {
-        try {
-            ClassPathResource studentsResource = new ClassPathResource("students.json");
-            ClassPathResource vkResource = new ClassPathResource("vk_results.json");
-
-            InputStream studentsStream = studentsResource.getInputStream();
-            InputStream vkStream = vkResource.getInputStream();
-
-            return converterService.convertAndSaveStudents(studentsStream, vkStream);
+        String eventCode = EventContext.current();
+        eventService.requireActive(eventCode);
+        try (InputStream studentsStream = new ClassPathResource("students.json").getInputStream();
+             InputStream vkStream = new ClassPathResource("vk_results.json").getInputStream()) {
+            return converterService.convertAndSaveStudents(eventCode, studentsStream, vkStream);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при чтении и сохранении данных", e);
         }
     }
 
-    @PostMapping("/clear-and-save")
-    public List<Person> clearAndSaveStudents() {
-        try {
-            ClassPathResource studentsResource = new ClassPathResource("students.json");
-            ClassPathResource vkResource = new ClassPathResource("vk_results.json");
-
-            InputStream studentsStream = studentsResource.getInputStream();
-            InputStream vkStream = vkResource.getInputStream();
-
-            converterService.clearAndSaveStudents(studentsStream, vkStream);
-            return converterService.convertAndSaveStudents(studentsStream, vkStream);
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при очистке таблицы и сохранении новых данных", e);
+    // Синхронизация события с выгрузкой: добавляет, меняет и мягко удаляет только отличающихся, рейтинги сохраняются.
+    // Повторный вызов с теми же файлами ничего не пишет. /clear-and-save оставлен для старых скриптов
+    @PostMapping({"/sync-students", "/clear-and-save"})
+    public StudentSyncService.SyncReport syncStudents() {
+        String eventCode = EventContext.current();
+        eventService.requireActive(eventCode);
+        try (InputStream studentsStream = new ClassPathResource("students.json").getInputStream();
+             InputStream vkStream = new ClassPathResource("vk_results.json").getInputStream()) {
+            return syncService.sync(eventCode, studentsStream, vkStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при чтении данных для синхронизации", e);
         }
     }
 
@@ -178,4 +359,20 @@ public class PersonController {
         int compressed = photoCompressionService.compressAllPhotos();
         return ResponseEntity.ok("Compressed " + compressed + " photos");
     }
+
+    // If-Match: "5" или W/"5"
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
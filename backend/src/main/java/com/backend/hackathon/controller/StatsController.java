@@ -0,0 +1,62 @@
+package com.backend.hackathon.controller;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.service.PersonStatsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Агрегаты рейтинга события из памяти (архивные события тоже читаются): списки классов/полов по среднему, по группе - гистограмма и топ
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final PersonStatsService statsService;
+
+    @Value("${stats.max-top-size:50}")
+    private int maxTopSize;
+
+    public StatsController(PersonStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @GetMapping("/classes")
+    public ResponseEntity<List<PersonStatsService.GroupSummary>> getClasses() {
+        return ResponseEntity.ok().body(statsService.classes(EventContext.current()));
+    }
+
+    @GetMapping("/classes/{schoolClass}")
+    public ResponseEntity<PersonStatsService.GroupStats> getClass(
+            @PathVariable String schoolClass,
+            @RequestParam(required = false, defaultValue = "10") int top) {
+        return okOrNotFound(statsService.schoolClass(EventContext.current(), schoolClass, clampTop(top)));
+    }
+
+    @GetMapping("/genders")
+    public ResponseEntity<List<PersonStatsService.GroupSummary>> getGenders() {
+        return ResponseEntity.ok().body(statsService.genders(EventContext.current()));
+    }
+
+    @GetMapping("/genders/{male}")
+    public ResponseEntity<PersonStatsService.GroupStats> getGender(
+            @PathVariable String male,
+            @RequestParam(required = false, defaultValue = "10") int top) {
+        return okOrNotFound(statsService.gender(EventContext.current(), male, clampTop(top)));
+    }
+
+    @GetMapping("/overall")
+    public ResponseEntity<PersonStatsService.GroupStats> getOverall(
+            @RequestParam(required = false, defaultValue = "10") int top) {
+        return ResponseEntity.ok().body(statsService.overall(EventContext.current(), clampTop(top)));
+    }
+
+    private int clampTop(int top) {
+        return Math.max(0, Math.min(top, maxTopSize));
+    }
+
+    private static ResponseEntity<PersonStatsService.GroupStats> okOrNotFound(PersonStatsService.GroupStats stats) {
+        return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok().body(stats);
+    }
+}
@@ -0,0 +1,44 @@
+package com.backend.hackathon.controller;
+
+import com.backend.hackathon.TGBot.BotConfig;
+import com.backend.hackathon.TGBot.UpdateDispatcher;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Приём обновлений Telegram в режиме webhook. Авторизация по секрету из setWebhook, а не по initData
+@Hidden
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class TelegramWebhookController {
+
+    public static final String WEBHOOK_PATH = "/api/telegram/webhook";
+
+    private final BotConfig botConfig;
+    private final UpdateDispatcher updateDispatcher;
+
+    @PostMapping("/telegram/webhook")
+    public ResponseEntity<Void> onUpdate(
+            @RequestHeader(value = "X-Telegram-Bot-Api-Secret-Token", required = false) String secretToken,
+            @RequestBody Update update) {
+        if (!botConfig.isWebhookMode()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (secretToken == null || !MessageDigest.isEqual(
+                secretToken.getBytes(StandardCharsets.UTF_8),
+                botConfig.getWebhookSecret().getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // Telegram повторит доставку, если ответ не 2xx
+        return updateDispatcher.tryDispatch(update)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.backend.hackathon.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Shared change feed: every instance replays rows written by the others into its in-memory state
+@Entity
+@Table(name = "change_feed", indexes = @Index(name = "idx_change_feed_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+public class ChangeFeedEntry {
+    public static final String VOTE = "VOTE";
+    public static final String PERSON_SAVED = "PERSON_SAVED";
+    public static final String PERSON_DELETED = "PERSON_DELETED";
+    public static final String DATA_RELOADED = "DATA_RELOADED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "origin")
+    private String origin;
+
+    @Column(name = "kind")
+    private String kind;
+
+    @Column(name = "person_id")
+    private long personId;
+
+    @Column(name = "other_id")
+    private long otherId;
+
+    @Column(name = "rating")
+    private double rating;
+
+    @Column(name = "other_rating")
+    private double otherRating;
+
+    @Column(name = "delta")
+    private double delta;
+
+    @Column(name = "created_at")
+    private long createdAt;
+
+    // Для VOTE: id строки vote_log (null в записях до появления колонки)
+    @Column(name = "vote_log_id")
+    private Long voteLogId;
+}
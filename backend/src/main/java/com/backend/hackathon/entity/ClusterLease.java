@@ -0,0 +1,24 @@
+package com.backend.hackathon.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lease row for leader election between backend instances
+@Entity
+@Table(name = "cluster_lease")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterLease {
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "holder")
+    private String holder;
+
+    @Column(name = "expires_at")
+    private long expiresAt;
+}
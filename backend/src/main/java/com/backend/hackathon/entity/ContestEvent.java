@@ -0,0 +1,23 @@
+package com.backend.hackathon.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Событие (школа, конкурс). Строка нужна только для архивации: люди ссылаются на событие кодом,
+// и событие без строки считается активным
+@Entity
+@Table(name = "contest_event")
+@Data
+@NoArgsConstructor
+public class ContestEvent {
+    @Id
+    @Column(name = "code", length = 64)
+    private String code;
+
+    @Column(name = "archived")
+    private boolean archived;
+
+    @Column(name = "archived_at")
+    private Long archivedAt;
+}
@@ -1,11 +1,18 @@
 package com.backend.hackathon.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.SQLRestriction;
 
 @Entity
+@Table(name = "person", indexes = {
+        @Index(name = "idx_person_event_code", columnList = "event_code"),
+        @Index(name = "uk_person_event_source", columnList = "event_code, source_key", unique = true)})
+// Мягко удалённые импортом не видны ни одному запросу через сущность; нативные запросы фильтруют сами
+@SQLRestriction("deleted_at IS NULL")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,4 +41,42 @@ public class Person {
 
     @Column(name = "male")
     private String male;
+
+    // Размытое превью ~16px (data URI в несколько сотен байт) и основной цвет фото - отдаются вместе с карточкой
+    @Column(name = "placeholder", columnDefinition = "VARCHAR(2048)")
+    private String placeholder;
+
+    @Column(name = "dominant_color", length = 7)
+    private String dominantColor;
+
+    // Хэш содержимого фото (PhotoHash) - имя опубликованных файлов размеров; меняется вместе с фото
+    @Column(name = "photo_hash", length = 32)
+    private String photoHash;
+
+    // Неизменяемый URL опубликованного размера фото (RenditionPublisher); тогда photo в ответе не передаётся
+    @Transient
+    private String photoUrl;
+
+    // Событие (школа, конкурс), к которому относится человек; дуэли, поиск и статистика - внутри одного события
+    @Column(name = "event_code", length = 64, columnDefinition = "VARCHAR(64) NOT NULL DEFAULT 'default'")
+    private String eventCode;
+
+    // Устойчивый ключ записи импорта ("vk:<id>" или "name:<фамилия имя>") - по нему синхронизация находит человека
+    @JsonIgnore
+    @Column(name = "source_key", length = 128)
+    private String sourceKey;
+
+    // Хэш импортированных полей и фото: совпал - запись не менялась и не переписывается
+    @JsonIgnore
+    @Column(name = "content_hash", length = 32)
+    private String contentHash;
+
+    // Время мягкого удаления импортом; рейтинг остаётся, если человек вернётся в следующей выгрузке
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Long deletedAt;
+
+    // Оптимистическая блокировка правок: меняется при каждом изменении полей или фото, но не при голосовании
+    @Column(name = "version", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long version;
 }
@@ -0,0 +1,33 @@
+package com.backend.hackathon.entity;
+
+import lombok.Value;
+import lombok.With;
+
+// Immutable person data without the photo - what the metadata cache holds
+@Value
+@With
+public class PersonMetadata {
+    long id;
+    String name;
+    String surname;
+    String schoolClass;
+    double rating;
+    String male;
+    boolean hasPhoto;
+    long version;
+    String placeholder;
+    String dominantColor;
+    String photoHash;
+    String eventCode;
+
+    public static PersonMetadata of(Person person, boolean hasPhoto) {
+        return new PersonMetadata(person.getId(), person.getName(), person.getSurname(), person.getSchoolClass(),
+                person.getRating(), person.getMale(), hasPhoto, person.getVersion(),
+                person.getPlaceholder(), person.getDominantColor(), person.getPhotoHash(), person.getEventCode());
+    }
+
+    public Person toPerson(String photo) {
+        return new Person(id, name, surname, schoolClass, rating, photo, male, placeholder, dominantColor, photoHash, null,
+                eventCode, null, null, null, version);
+    }
+}
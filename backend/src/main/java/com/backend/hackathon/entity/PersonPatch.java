@@ -0,0 +1,14 @@
+package com.backend.hackathon.entity;
+
+import lombok.Data;
+
+// Тело PATCH /persons/{id}: null - поле не меняется. Рейтинг и фото так не меняются
+@Data
+public class PersonPatch {
+    private String name;
+    private String surname;
+    private String schoolClass;
+    private String male;
+    // Ожидаемая версия; можно передать и заголовком If-Match
+    private Long version;
+}
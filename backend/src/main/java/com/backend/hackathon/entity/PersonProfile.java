@@ -0,0 +1,19 @@
+package com.backend.hackathon.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Имя, класс и рейтинг без фото и без LENGTH(photo) - для статистики, которой наличие фото не нужно
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonProfile {
+    private long id;
+    private String name;
+    private String surname;
+    private String schoolClass;
+    private String male;
+    private double rating;
+    private String eventCode;
+}
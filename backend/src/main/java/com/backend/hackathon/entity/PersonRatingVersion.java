@@ -0,0 +1,15 @@
+package com.backend.hackathon.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Рейтинг и версия без фото - для сверки снимков в памяти с базой
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonRatingVersion {
+    private long id;
+    private double rating;
+    private long version;
+}
@@ -0,0 +1,19 @@
+package com.backend.hackathon.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Person metadata without the photo LOB - used to build in-memory structures cheaply
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonSummary {
+    private long id;
+    private double rating;
+    private String male;
+    private String schoolClass;
+    private boolean hasPhoto;
+    private long version;
+    private String eventCode;
+}
@@ -0,0 +1,18 @@
+package com.backend.hackathon.entity;
+
+// Что нужно синхронизации импорта о человеке, включая мягко удалённых - без фото
+public interface PersonSyncState {
+    long getId();
+
+    String getSourceKey();
+
+    String getContentHash();
+
+    String getPhotoHash();
+
+    String getName();
+
+    String getSurname();
+
+    Long getDeletedAt();
+}
@@ -0,0 +1,37 @@
+package com.backend.hackathon.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Голоса, которые детектор накруток задержал вместо применения; решение - в actuator votefraud
+@Entity
+@Table(name = "vote_quarantine", indexes = @Index(name = "idx_vote_quarantine_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+public class QuarantinedVote {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "winner_id")
+    private long winnerId;
+
+    @Column(name = "loser_id")
+    private long loserId;
+
+    // "tg:<id>" или "ip:<адрес>"
+    @Column(name = "voter", length = 64)
+    private String voter;
+
+    @Column(name = "reason", length = 32)
+    private String reason;
+
+    // Оценка числа голосов в окне на момент срабатывания
+    @Column(name = "votes")
+    private int votes;
+
+    @Column(name = "created_at")
+    private long createdAt;
+}
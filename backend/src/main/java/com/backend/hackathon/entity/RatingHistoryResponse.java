@@ -0,0 +1,5 @@
+package com.backend.hackathon.entity;
+
+// timestamps are bucket starts in epoch seconds, ratings[i] is the rating at the end of that bucket
+public record RatingHistoryResponse(long personId, long[] timestamps, float[] ratings) {
+}
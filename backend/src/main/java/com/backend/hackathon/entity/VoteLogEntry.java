@@ -0,0 +1,39 @@
+package com.backend.hackathon.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Журнал голосов (только добавление): ratings после голоса, для выгрузки и аналитики
+@Entity
+@Table(name = "vote_log", indexes = {@Index(name = "idx_vote_log_created_at", columnList = "created_at"),
+        @Index(name = "idx_vote_log_event_code", columnList = "event_code, id")})
+@Data
+@NoArgsConstructor
+public class VoteLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "winner_id")
+    private long winnerId;
+
+    @Column(name = "loser_id")
+    private long loserId;
+
+    @Column(name = "winner_rating")
+    private double winnerRating;
+
+    @Column(name = "loser_rating")
+    private double loserRating;
+
+    @Column(name = "delta")
+    private double delta;
+
+    @Column(name = "created_at")
+    private long createdAt;
+
+    @Column(name = "event_code", length = 64)
+    private String eventCode;
+}
@@ -0,0 +1,8 @@
+package com.backend.hackathon.event;
+
+/**
+ * Published after a bulk change of the person table (import, or a missed part of the change feed):
+ * in-memory indexes and caches should be rebuilt from the database.
+ */
+public record DataReloadedEvent() {
+}
@@ -0,0 +1,7 @@
+package com.backend.hackathon.event;
+
+/**
+ * Published when this instance becomes or stops being the leader (always leader when cluster mode is off).
+ */
+public record LeadershipChangedEvent(boolean leader) {
+}
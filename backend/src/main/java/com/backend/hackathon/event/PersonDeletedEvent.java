@@ -0,0 +1,7 @@
+package com.backend.hackathon.event;
+
+/**
+ * Published after a person is deleted.
+ */
+public record PersonDeletedEvent(long personId) {
+}
@@ -0,0 +1,10 @@
+package com.backend.hackathon.event;
+
+import com.backend.hackathon.entity.PersonMetadata;
+
+/**
+ * Published after a person is created or updated. {@code photoChanged} is false for field-only edits,
+ * so photo renditions stay cached.
+ */
+public record PersonSavedEvent(PersonMetadata person, boolean photoChanged) {
+}
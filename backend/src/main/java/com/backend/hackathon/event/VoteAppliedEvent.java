@@ -0,0 +1,13 @@
+package com.backend.hackathon.event;
+
+/**
+ * Published after a duel vote has been written; ratings are the values after the vote.
+ * Listeners use @TransactionalEventListener so they only see committed votes. After-commit listeners of two
+ * concurrent votes on one person may run in either order, so in-memory copies of the current rating apply
+ * {@code delta} (winner +delta, loser -delta) instead of the absolute ratings.
+ * The event code is null for votes replayed from another instance's change feed.
+ * The vote_log id is 0 when the vote log is disabled.
+ */
+public record VoteAppliedEvent(long winnerId, long loserId, double winnerRating, double loserRating,
+                               double delta, long timestampMillis, String eventCode, long voteLogId) {
+}
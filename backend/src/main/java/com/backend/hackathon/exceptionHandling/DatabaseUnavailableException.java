@@ -0,0 +1,13 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+
+@Getter
+public class DatabaseUnavailableException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public DatabaseUnavailableException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+
+@Getter
+public class EventArchivedException extends RuntimeException {
+    private final String eventCode;
+
+    public EventArchivedException(String eventCode) {
+        super("Event " + eventCode + " is archived");
+        this.eventCode = eventCode;
+    }
+}
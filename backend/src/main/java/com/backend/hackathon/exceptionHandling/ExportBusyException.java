@@ -0,0 +1,13 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+
+@Getter
+public class ExportBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ExportBusyException(int retryAfterSeconds) {
+        super("Too many exports running, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,7 +1,11 @@
 package com.backend.hackathon.exceptionHandling;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
@@ -15,6 +19,74 @@ public class GlobalExceptionHandler {
 //    }
 
 //   example! Replace CustomException with name of your exception.
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleImageProcessingUnavailable(ImageProcessingUnavailableException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(data);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleExportBusy(ExportBusyException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(data);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleDatabaseUnavailable(DatabaseUnavailableException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(data);
+    }
+
+    // Остальные эндпоинты без деградации: недоступная база - 503 вместо 500
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ExceptionDataObject> handleDatabaseFailure(RuntimeException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo("Database is unavailable, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(data);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleVersionConflict(VersionConflictException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .eTag(String.valueOf(exception.getCurrentVersion()))
+                .body(data);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleInvalidPhoto(InvalidPhotoException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(exception.getStatus()).body(data);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handlePersonNotFound(PersonNotFoundException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(data);
+    }
+
+    // Архивное событие только читается: дуэли и голоса - 410
+    @ExceptionHandler
+    public ResponseEntity<ExceptionDataObject> handleEventArchived(EventArchivedException exception) {
+        ExceptionDataObject data = new ExceptionDataObject();
+        data.setInfo(exception.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(data);
+    }
 }
 
 
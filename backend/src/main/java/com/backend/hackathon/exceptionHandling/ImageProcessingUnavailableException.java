@@ -0,0 +1,13 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+
+@Getter
+public class ImageProcessingUnavailableException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ImageProcessingUnavailableException(int retryAfterSeconds) {
+        super("Image processing is overloaded, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class InvalidPhotoException extends RuntimeException {
+    // 413 - слишком большой файл или разрешение, 415 - не картинка
+    private final HttpStatus status;
+
+    public InvalidPhotoException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,7 @@
+package com.backend.hackathon.exceptionHandling;
+
+public class PersonNotFoundException extends RuntimeException {
+    public PersonNotFoundException(long personId) {
+        super("Person " + personId + " not found");
+    }
+}
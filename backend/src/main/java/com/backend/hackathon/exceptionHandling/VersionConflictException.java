@@ -0,0 +1,13 @@
+package com.backend.hackathon.exceptionHandling;
+
+import lombok.Getter;
+
+@Getter
+public class VersionConflictException extends RuntimeException {
+    private final long currentVersion;
+
+    public VersionConflictException(long personId, long currentVersion) {
+        super("Person " + personId + " was changed concurrently, current version " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+}
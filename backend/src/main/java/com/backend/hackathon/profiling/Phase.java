@@ -0,0 +1,24 @@
+package com.backend.hackathon.profiling;
+
+/**
+ * Request phases measured by {@link RequestTiming}. Phases can nest (db inside select), so their
+ * durations are not meant to add up to the total.
+ */
+public enum Phase {
+    AUTH("auth"),
+    SELECT("select"),
+    VOTE("vote"),
+    RESIZE("resize"),
+    DB("db"),
+    SERIALIZE("serialize");
+
+    private final String metricName;
+
+    Phase(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+}
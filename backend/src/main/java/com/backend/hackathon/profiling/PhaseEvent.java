@@ -0,0 +1,19 @@
+package com.backend.hackathon.profiling;
+
+import jdk.jfr.*;
+
+// Запись одного этапа запроса в JFR; без активной записи begin/commit почти ничего не стоят
+@Name("facesmash.Phase")
+@Label("Request Phase")
+@Category({"FaceSmash", "Requests"})
+@StackTrace(false)
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Detail")
+    String detail;
+
+    @Label("Path")
+    String path;
+}
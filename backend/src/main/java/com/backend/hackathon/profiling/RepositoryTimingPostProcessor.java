@@ -0,0 +1,35 @@
+package com.backend.hackathon.profiling;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a {@link Phase#DB} timing advice to every Spring Data repository proxy.
+ * The customizer has to be registered on the factory bean before it creates the repository.
+ */
+@Component
+public class RepositoryTimingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> {
+                        String repository = repositoryInformation.getRepositoryInterface().getSimpleName();
+                        proxyFactory.addAdvice(timingAdvice(repository));
+                    }));
+        }
+        return bean;
+    }
+
+    private static MethodInterceptor timingAdvice(String repository) {
+        return invocation -> {
+            try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.DB,
+                    repository + "." + invocation.getMethod().getName())) {
+                return invocation.proceed();
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.backend.hackathon.profiling;
+
+import jdk.jfr.*;
+
+@Name("facesmash.Request")
+@Label("HTTP Request")
+@Category({"FaceSmash", "Requests"})
+@StackTrace(false)
+class RequestEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Breakdown")
+    String breakdown;
+}
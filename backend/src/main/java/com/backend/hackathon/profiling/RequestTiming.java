@@ -0,0 +1,118 @@
+package com.backend.hackathon.profiling;
+
+/**
+ * Per-request phase accumulator bound to the request thread, plus a JFR {@link PhaseEvent} per phase.
+ * Outside of a request (scheduled jobs, bot workers) only the JFR event is emitted.
+ *
+ * <pre>
+ * try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.SELECT)) { ... }
+ * </pre>
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final Phase[] PHASES = Phase.values();
+
+    final String path;
+    final long startNanos;
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+    private long handlerDoneNanos;
+
+    private RequestTiming(String path, long startNanos) {
+        this.path = path;
+        this.startNanos = startNanos;
+    }
+
+    static RequestTiming begin(String path) {
+        RequestTiming timing = new RequestTiming(path, System.nanoTime());
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static Scope phase(Phase phase) {
+        return phase(phase, null);
+    }
+
+    public static Scope phase(Phase phase, String detail) {
+        return new Scope(phase, detail, CURRENT.get());
+    }
+
+    // Контроллер вернул результат - дальше сериализация Jackson и запись ответа
+    void markHandlerDone(long nowNanos) {
+        handlerDoneNanos = nowNanos;
+    }
+
+    void finish(long endNanos) {
+        if (handlerDoneNanos != 0) {
+            add(Phase.SERIALIZE, endNanos - handlerDoneNanos);
+        }
+    }
+
+    void add(Phase phase, long durationNanos) {
+        nanos[phase.ordinal()] += durationNanos;
+        counts[phase.ordinal()]++;
+    }
+
+    /**
+     * Server-Timing value: {@code db;dur=12.3;desc="4 calls", select;dur=20.1, total;dur=45.6}.
+     */
+    String serverTiming(long endNanos) {
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : PHASES) {
+            int count = counts[phase.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            header.append(phase.metricName()).append(";dur=").append(millis(nanos[phase.ordinal()]));
+            if (count > 1) {
+                header.append(";desc=\"").append(count).append(" calls\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(millis(endNanos - startNanos)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(Math.round(nanos / 100_000.0) / 10.0);
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Phase phase;
+        private final RequestTiming timing;
+        private final PhaseEvent event = new PhaseEvent();
+        private final String detail;
+        private final long startNanos;
+
+        private Scope(Phase phase, String detail, RequestTiming timing) {
+            this.phase = phase;
+            this.detail = detail;
+            this.timing = timing;
+            this.event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long duration = System.nanoTime() - startNanos;
+            if (timing != null) {
+                timing.add(phase, duration);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.metricName();
+                event.detail = detail;
+                event.path = timing != null ? timing.path : null;
+                event.commit();
+            }
+        }
+    }
+}
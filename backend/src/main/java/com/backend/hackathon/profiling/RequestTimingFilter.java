@@ -0,0 +1,88 @@
+package com.backend.hackathon.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Outermost filter: opens a {@link RequestTiming} for the request and emits a JFR {@link RequestEvent}.
+ * With profiling.server-timing.enabled a client can opt in per request ({@code X-Server-Timing: 1}) to get
+ * the breakdown as a Server-Timing header; such responses are buffered so the header can include
+ * serialization. Async responses (streamed exports) are not buffered: their header is set when the request
+ * thread returns and covers the handler only. Requests slower than the threshold are logged with their
+ * breakdown, rate-limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    public static final String OPT_IN_HEADER = "X-Server-Timing";
+
+    private final boolean serverTimingEnabled;
+    private final long slowRequestNanos;
+    private final int slowSamplesPerMinute;
+
+    private long sampleWindowStart;
+    private int samplesInWindow;
+
+    public RequestTimingFilter(@Value("${profiling.server-timing.enabled:false}") boolean serverTimingEnabled,
+                               @Value("${profiling.slow-request-ms:1000}") long slowRequestMs,
+                               @Value("${profiling.slow-request-samples-per-minute:10}") int slowSamplesPerMinute) {
+        this.serverTimingEnabled = serverTimingEnabled;
+        this.slowRequestNanos = slowRequestMs * 1_000_000L;
+        this.slowSamplesPerMinute = slowSamplesPerMinute;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.begin(request.getRequestURI());
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        ServerTimingResponseWrapper buffered = serverTimingEnabled && "1".equals(request.getHeader(OPT_IN_HEADER))
+                ? new ServerTimingResponseWrapper(response) : null;
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            long endNanos = System.nanoTime();
+            timing.finish(endNanos);
+            String breakdown = timing.serverTiming(endNanos);
+            if (buffered != null) {
+                // Для async тело пишет другой поток уже после возврата - дальше оно идёт мимо буфера
+                buffered.release(breakdown);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = request.getMethod();
+                event.path = timing.path;
+                event.status = response.getStatus();
+                event.breakdown = breakdown;
+                event.commit();
+            }
+            if (endNanos - timing.startNanos > slowRequestNanos && takeSample()) {
+                log.warn("Slow request {} {} -> {}: {}", request.getMethod(), timing.path, response.getStatus(), breakdown);
+            }
+            RequestTiming.end();
+        }
+    }
+
+    // Не больше N записей в минуту, чтобы при общей деградации не завалить лог
+    private synchronized boolean takeSample() {
+        long now = System.currentTimeMillis();
+        if (now - sampleWindowStart >= 60_000L) {
+            sampleWindowStart = now;
+            samplesInWindow = 0;
+        }
+        return samplesInWindow++ < slowSamplesPerMinute;
+    }
+}
@@ -0,0 +1,126 @@
+package com.backend.hackathon.profiling;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Holds the body back until {@link #release} so a Server-Timing header can still be set after serialization.
+ * After the release everything is written straight through: an async response (a streamed export) is
+ * released when the request thread returns and then streams without being buffered.
+ */
+class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private boolean released;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    ServerTimingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Sets the header if the response is not committed yet, writes out what has been buffered and switches
+     * to writing through.
+     */
+    synchronized void release(String serverTiming) throws IOException {
+        if (released) {
+            return;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        if (!getResponse().isCommitted()) {
+            setHeader("Server-Timing", serverTiming);
+        }
+        released = true;
+        if (buffer.size() > 0) {
+            buffer.writeTo(getResponse().getOutputStream());
+            buffer.reset();
+        }
+    }
+
+    private synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (released) {
+            getResponse().getOutputStream().write(bytes, offset, length);
+        } else {
+            buffer.write(bytes, offset, length);
+        }
+    }
+
+    @Override
+    public synchronized ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream target = getResponse().getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    ServerTimingResponseWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    ServerTimingResponseWrapper.this.write(bytes, offset, length);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    synchronized (ServerTimingResponseWrapper.this) {
+                        if (released) {
+                            target.flush();
+                        }
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return target.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    target.setWriteListener(listener);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public synchronized PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // До release сброс закоммитил бы ответ без заголовка
+    @Override
+    public synchronized void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (released) {
+            getResponse().flushBuffer();
+        }
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        buffer.reset();
+        super.resetBuffer();
+    }
+
+    @Override
+    public synchronized void reset() {
+        buffer.reset();
+        super.reset();
+    }
+}
@@ -0,0 +1,28 @@
+package com.backend.hackathon.repositrory;
+
+import com.backend.hackathon.entity.ChangeFeedEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChangeFeedRepository extends JpaRepository<ChangeFeedEntry, Long> {
+
+    List<ChangeFeedEntry> findTop500ByIdGreaterThanOrderByIdAsc(long id);
+
+    List<ChangeFeedEntry> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM ChangeFeedEntry e")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChangeFeedEntry e WHERE e.createdAt < :before")
+    int deleteOlderThan(@Param("before") long before);
+}
@@ -0,0 +1,26 @@
+package com.backend.hackathon.repositrory;
+
+import com.backend.hackathon.entity.ClusterLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ClusterLeaseRepository extends JpaRepository<ClusterLease, String> {
+
+    // Продлить свою аренду или забрать просроченную чужую
+    @Transactional
+    @Modifying
+    @Query("UPDATE ClusterLease l SET l.holder = :holder, l.expiresAt = :expiresAt " +
+            "WHERE l.name = :name AND (l.holder = :holder OR l.expiresAt < :now)")
+    int tryAcquire(@Param("name") String name, @Param("holder") String holder,
+                   @Param("expiresAt") long expiresAt, @Param("now") long now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ClusterLease l SET l.expiresAt = 0 WHERE l.name = :name AND l.holder = :holder")
+    int release(@Param("name") String name, @Param("holder") String holder);
+}
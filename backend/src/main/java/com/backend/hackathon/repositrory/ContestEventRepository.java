@@ -0,0 +1,13 @@
+package com.backend.hackathon.repositrory;
+
+import com.backend.hackathon.entity.ContestEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ContestEventRepository extends JpaRepository<ContestEvent, String> {
+
+    List<ContestEvent> findByArchivedTrue();
+}
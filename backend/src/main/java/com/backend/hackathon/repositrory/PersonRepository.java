@@ -1,7 +1,14 @@
 package com.backend.hackathon.repositrory;
 
 import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonProfile;
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.entity.PersonSummary;
+import com.backend.hackathon.entity.PersonSyncState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,17 +20,128 @@ import java.util.List;
 public interface PersonRepository extends JpaRepository<Person,Long>{
     Person getPersonById(long id);
 
+    // Все люди события (с фото)
+    List<Person> findByEventCode(String eventCode);
+
     // Базовый метод для поиска по полу
-    List<Person> findByMale(String male);
+    List<Person> findByEventCodeAndMale(String eventCode, String male);
 
     // Метод для поиска по полу и классу
-    @Query("SELECT p FROM Person p WHERE p.male = :male AND p.schoolClass LIKE :classPattern")
-    List<Person> findByMaleAndClassLike(@Param("male") String male, @Param("classPattern") String classPattern);
+    @Query("SELECT p FROM Person p WHERE p.eventCode = :eventCode AND p.male = :male AND p.schoolClass LIKE :classPattern")
+    List<Person> findByMaleAndClassLike(@Param("eventCode") String eventCode, @Param("male") String male,
+                                        @Param("classPattern") String classPattern);
 
     // Метод для поиска по полу, классу и наличию фото
-    @Query("SELECT p FROM Person p WHERE p.male = :male AND p.schoolClass LIKE :classPattern AND p.photo IS NOT NULL AND LENGTH(p.photo) > 100")
-    List<Person> findByMaleAndClassLikeWithPhoto(@Param("male") String male, @Param("classPattern") String classPattern);
+    @Query("SELECT p FROM Person p WHERE p.eventCode = :eventCode AND p.male = :male AND p.schoolClass LIKE :classPattern AND p.photo IS NOT NULL AND LENGTH(p.photo) > 100")
+    List<Person> findByMaleAndClassLikeWithPhoto(@Param("eventCode") String eventCode, @Param("male") String male,
+                                                 @Param("classPattern") String classPattern);
+
+    @Query(value = "SELECT * FROM person WHERE event_code = :eventCode AND male = :male AND photo IS NOT NULL AND LENGTH(photo) > 100 " +
+            "AND deleted_at IS NULL", nativeQuery = true)
+    List<Person> findPersonsByMaleWithPhoto(@Param("eventCode") String eventCode, @Param("male") String male);
+
+    // Число людей по событиям - по индексу event_code, без чтения строк
+    @Query("SELECT p.eventCode, COUNT(p) FROM Person p GROUP BY p.eventCode")
+    List<Object[]> countPersonsByEvent();
+
+    // Состояние события для синхронизации импорта. Нативный запрос: мягко удалённые тоже нужны - они могут вернуться
+    @Query(value = "SELECT id, source_key AS sourceKey, content_hash AS contentHash, photo_hash AS photoHash, " +
+            "name, surname, deleted_at AS deletedAt FROM person WHERE event_code = :eventCode ORDER BY id", nativeQuery = true)
+    List<PersonSyncState> findSyncStates(@Param("eventCode") String eventCode);
+
+    // Поля записи импорта; рейтинг не трогается. Снимает мягкое удаление
+    @Modifying
+    @Query(value = "UPDATE person SET source_key = :sourceKey, content_hash = :contentHash, name = :name, " +
+            "surname = :surname, school_class = :schoolClass, male = :male, deleted_at = NULL, version = version + 1 " +
+            "WHERE id = :id", nativeQuery = true)
+    int syncFields(@Param("id") long id, @Param("sourceKey") String sourceKey, @Param("contentHash") String contentHash,
+                   @Param("name") String name, @Param("surname") String surname,
+                   @Param("schoolClass") String schoolClass, @Param("male") String male);
+
+    // Только когда хэш фото другой: LOB переписывается, превью и цвет пересчитает дозаполнение
+    @Modifying
+    @Query(value = "UPDATE person SET photo = :photo, photo_hash = :photoHash, placeholder = NULL, " +
+            "dominant_color = NULL WHERE id = :id", nativeQuery = true)
+    int syncPhoto(@Param("id") long id, @Param("photo") String photo, @Param("photoHash") String photoHash);
+
+    @Modifying
+    @Query(value = "UPDATE person SET deleted_at = :deletedAt, version = version + 1 " +
+            "WHERE id IN :ids AND deleted_at IS NULL", nativeQuery = true)
+    int softDelete(@Param("ids") Collection<Long> ids, @Param("deletedAt") long deletedAt);
+
+    // Все люди без загрузки фото - для построения индексов в памяти
+    @Query("SELECT new com.backend.hackathon.entity.PersonSummary(p.id, p.rating, p.male, p.schoolClass, " +
+            "CASE WHEN p.photo IS NOT NULL AND LENGTH(p.photo) > 100 THEN true ELSE false END, p.version, p.eventCode) FROM Person p")
+    List<PersonSummary> findAllSummaries();
+
+    @Query("SELECT new com.backend.hackathon.entity.PersonSummary(p.id, p.rating, p.male, p.schoolClass, " +
+            "CASE WHEN p.photo IS NOT NULL AND LENGTH(p.photo) > 100 THEN true ELSE false END, p.version, p.eventCode) FROM Person p " +
+            "WHERE p.id IN :ids")
+    List<PersonSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Без LENGTH(photo): не читает LOB, поэтому дёшево даже на большой таблице
+    @Query("SELECT new com.backend.hackathon.entity.PersonRatingVersion(p.id, p.rating, p.version) FROM Person p")
+    List<PersonRatingVersion> findAllRatingVersions();
+
+    @Query("SELECT new com.backend.hackathon.entity.PersonMetadata(p.id, p.name, p.surname, p.schoolClass, p.rating, p.male, " +
+            "CASE WHEN p.photo IS NOT NULL AND LENGTH(p.photo) > 100 THEN true ELSE false END, p.version, p.placeholder, p.dominantColor, p.photoHash, p.eventCode) FROM Person p WHERE p.id = :id")
+    PersonMetadata findMetadataById(@Param("id") long id);
+
+    @Query("SELECT new com.backend.hackathon.entity.PersonMetadata(p.id, p.name, p.surname, p.schoolClass, p.rating, p.male, " +
+            "CASE WHEN p.photo IS NOT NULL AND LENGTH(p.photo) > 100 THEN true ELSE false END, p.version, p.placeholder, p.dominantColor, p.photoHash, p.eventCode) FROM Person p")
+    List<PersonMetadata> findAllMetadata();
+
+    @Query("SELECT new com.backend.hackathon.entity.PersonMetadata(p.id, p.name, p.surname, p.schoolClass, p.rating, p.male, " +
+            "CASE WHEN p.photo IS NOT NULL AND LENGTH(p.photo) > 100 THEN true ELSE false END, p.version, p.placeholder, p.dominantColor, p.photoHash, p.eventCode) FROM Person p " +
+            "WHERE p.id IN :ids")
+    List<PersonMetadata> findMetadataByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Без LENGTH(photo), как и findAllRatingVersions
+    @Query("SELECT new com.backend.hackathon.entity.PersonProfile(p.id, p.name, p.surname, p.schoolClass, p.male, " +
+            "p.rating, p.eventCode) FROM Person p")
+    List<PersonProfile> findAllProfiles();
+
+    @Query("SELECT p.photo FROM Person p WHERE p.id = :id")
+    String findPhotoById(@Param("id") long id);
+
+    @Query("SELECT p.rating FROM Person p WHERE p.id = :id")
+    double findRatingById(@Param("id") long id);
+
+    // Точечные правки без перезаписи фото и рейтинга; version = null - без проверки версии
+    @Modifying
+    @Query("UPDATE Person p SET p.name = COALESCE(:name, p.name), p.surname = COALESCE(:surname, p.surname), " +
+            "p.schoolClass = COALESCE(:schoolClass, p.schoolClass), p.male = COALESCE(:male, p.male), " +
+            "p.version = p.version + 1 WHERE p.id = :id AND (:version IS NULL OR p.version = :version)")
+    int patchFields(@Param("id") long id, @Param("name") String name, @Param("surname") String surname,
+                    @Param("schoolClass") String schoolClass, @Param("male") String male, @Param("version") Long version);
+
+    @Modifying
+    @Query("UPDATE Person p SET p.photo = :photo, p.photoHash = :photoHash, p.placeholder = :placeholder, " +
+            "p.dominantColor = :dominantColor, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND (:version IS NULL OR p.version = :version)")
+    int updatePhoto(@Param("id") long id, @Param("photo") String photo, @Param("photoHash") String photoHash,
+                    @Param("placeholder") String placeholder, @Param("dominantColor") String dominantColor,
+                    @Param("version") Long version);
+
+    // Люди с фото, но без превью или хэша (загружены до их появления или импортом) - для дозаполнения
+    @Query("SELECT p.id FROM Person p WHERE (p.placeholder IS NULL OR p.photoHash IS NULL) " +
+            "AND p.photo IS NOT NULL AND LENGTH(p.photo) > 100")
+    List<Long> findIdsMissingPhotoDerivatives(Pageable pageable);
+
+    // Превью и хэш производны от фото: версию не меняем, чтобы не ломать If-Match у редакторов
+    @Modifying
+    @Query("UPDATE Person p SET p.photoHash = :photoHash, p.placeholder = COALESCE(:placeholder, p.placeholder), " +
+            "p.dominantColor = COALESCE(:dominantColor, p.dominantColor) WHERE p.id = :id AND p.version = :version")
+    int updatePhotoDerivatives(@Param("id") long id, @Param("photoHash") String photoHash,
+                               @Param("placeholder") String placeholder, @Param("dominantColor") String dominantColor,
+                               @Param("version") long version);
+
+    // Без чтения LOB - для сборки мусора среди опубликованных файлов
+    @Query("SELECT DISTINCT p.photoHash FROM Person p WHERE p.photoHash IS NOT NULL")
+    List<String> findAllPhotoHashes();
 
-    @Query(value = "SELECT * FROM person WHERE male = :male AND photo IS NOT NULL AND LENGTH(photo) > 100", nativeQuery = true)
-    List<Person> findPersonsByMaleWithPhoto(@Param("male") String male);
+    // Атомарное изменение рейтинга без загрузки сущности (и фото)
+    @Modifying
+    @Query("UPDATE Person p SET p.rating = p.rating + :delta WHERE p.id = :id")
+    int addRating(@Param("id") long id, @Param("delta") double delta);
 }
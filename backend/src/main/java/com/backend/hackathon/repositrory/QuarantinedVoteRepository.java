@@ -0,0 +1,13 @@
+package com.backend.hackathon.repositrory;
+
+import com.backend.hackathon.entity.QuarantinedVote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface QuarantinedVoteRepository extends JpaRepository<QuarantinedVote, Long> {
+
+    List<QuarantinedVote> findTop100ByOrderByIdDesc();
+}
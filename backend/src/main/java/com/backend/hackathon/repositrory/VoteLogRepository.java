@@ -0,0 +1,19 @@
+package com.backend.hackathon.repositrory;
+
+import com.backend.hackathon.entity.VoteLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface VoteLogRepository extends JpaRepository<VoteLogEntry, Long> {
+
+    @Query("SELECT MAX(v.id) FROM VoteLogEntry v")
+    Long findMaxId();
+
+    // Дочитывание журнала после снимка: страницы по id, без OFFSET
+    List<VoteLogEntry> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(long afterId, long upToId, Pageable pageable);
+}
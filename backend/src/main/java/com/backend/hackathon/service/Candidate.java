@@ -0,0 +1,27 @@
+package com.backend.hackathon.service;
+
+/**
+ * In-memory duel candidate. Shared between all pools the person belongs to,
+ * so exposure is counted once per person.
+ */
+public class Candidate {
+    public final long id;
+    public final String eventCode;
+    public final String male;
+    public final int grade;
+    public final boolean hasPhoto;
+    // Person.version: при сверке со снимком совпадение значит, что пол, класс и фото не менялись
+    public final long version;
+    public double rating;
+    public int exposure;
+
+    public Candidate(long id, String eventCode, String male, int grade, boolean hasPhoto, double rating, long version) {
+        this.id = id;
+        this.eventCode = eventCode;
+        this.male = male;
+        this.grade = grade;
+        this.hasPhoto = hasPhoto;
+        this.rating = rating;
+        this.version = version;
+    }
+}
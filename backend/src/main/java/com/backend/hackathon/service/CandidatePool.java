@@ -0,0 +1,123 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.util.FenwickTree;
+
+import java.util.*;
+
+/**
+ * One duel filter combination (male, class band, photo). Keeps candidates in slots of a
+ * Fenwick tree weighted by exposure and in a rating-ordered set for opponent lookup.
+ */
+class CandidatePool {
+
+    private final FenwickTree weights = new FenwickTree(64);
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final TreeSet<Candidate> byRating = new TreeSet<>(
+            Comparator.comparingDouble((Candidate c) -> c.rating).thenComparingLong(c -> c.id));
+    private Candidate[] slots = new Candidate[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater;
+
+    int size() {
+        return slotById.size();
+    }
+
+    boolean contains(long id) {
+        return slotById.containsKey(id);
+    }
+
+    void add(Candidate candidate, double weight) {
+        if (slotById.containsKey(candidate.id)) {
+            return;
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : highWater++;
+        if (slot >= slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[slot] = candidate;
+        slotById.put(candidate.id, slot);
+        byRating.add(candidate);
+        weights.set(slot, weight);
+    }
+
+    void remove(Candidate candidate) {
+        Integer slot = slotById.remove(candidate.id);
+        if (slot == null) {
+            return;
+        }
+        byRating.remove(candidate);
+        weights.set(slot, 0.0);
+        slots[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Вызывать до изменения рейтинга кандидата, иначе TreeSet его не найдёт
+    void detachRating(Candidate candidate) {
+        if (slotById.containsKey(candidate.id)) {
+            byRating.remove(candidate);
+        }
+    }
+
+    void attachRating(Candidate candidate) {
+        if (slotById.containsKey(candidate.id)) {
+            byRating.add(candidate);
+        }
+    }
+
+    void updateWeight(Candidate candidate, double weight) {
+        Integer slot = slotById.get(candidate.id);
+        if (slot != null) {
+            weights.set(slot, weight);
+        }
+    }
+
+    /**
+     * Picks a candidate proportionally to its exposure weight, O(log n).
+     */
+    Candidate sampleByWeight(Random random) {
+        int slot = weights.sample(random);
+        return slot < 0 ? null : slots[slot];
+    }
+
+    /**
+     * Picks an opponent for {@code first} among its nearest neighbours by rating. Each neighbour is
+     * weighted by its exposure weight times a gaussian of the rating gap, O(log n + neighbours).
+     */
+    Candidate sampleOpponent(Candidate first, Random random, int neighbours, double ratingSigma) {
+        List<Candidate> nearby = new ArrayList<>(neighbours * 2);
+        Iterator<Candidate> below = byRating.headSet(first, false).descendingIterator();
+        Iterator<Candidate> above = byRating.tailSet(first, false).iterator();
+        for (int i = 0; i < neighbours && below.hasNext(); i++) {
+            nearby.add(below.next());
+        }
+        for (int i = 0; i < neighbours && above.hasNext(); i++) {
+            nearby.add(above.next());
+        }
+        if (nearby.isEmpty()) {
+            return null;
+        }
+
+        double[] cumulative = new double[nearby.size()];
+        double total = 0.0;
+        for (int i = 0; i < nearby.size(); i++) {
+            Candidate candidate = nearby.get(i);
+            double gap = (candidate.rating - first.rating) / ratingSigma;
+            total += weights.get(slotById.get(candidate.id)) * Math.exp(-0.5 * gap * gap);
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            return nearby.get(random.nextInt(nearby.size()));
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < cumulative.length; i++) {
+            if (target < cumulative[i]) {
+                return nearby.get(i);
+            }
+        }
+        return nearby.get(nearby.size() - 1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.ChangeFeedEntry;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.ChangeFeedRepository;
+import com.backend.hackathon.repositrory.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps in-memory state (matchmaking index, caches, rating history) coherent across backend instances.
+ * Every committed change is also written to the shared change_feed table in the same transaction;
+ * other instances poll the feed and republish foreign entries as local events. An instance that could
+ * not poll for longer than the feed retention rebuilds everything from the database instead.
+ * <p>
+ * Ids are assigned at insert, not at commit, so a slow transaction can commit an id below entries already
+ * read. Every id skipped by a poll is remembered as a gap and looked up again on the next polls until it
+ * shows up or {@code cluster.feed-gap-timeout-ms} passes (a rolled-back transaction leaves a gap forever).
+ */
+@Service
+@Slf4j
+public class ChangeFeedService {
+
+    private static final int MAX_GAP = 1000;
+
+    private final ChangeFeedRepository changeFeedRepository;
+    private final PersonRepository personRepository;
+    private final LeaderElectionService leaderElection;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final long gapTimeoutMs;
+    private final long retentionMs;
+
+    private long lastSeenId;
+    private long lastPollMillis;
+    // Пропущенные id -> до какого времени их ещё ждать
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    public ChangeFeedService(ChangeFeedRepository changeFeedRepository,
+                             PersonRepository personRepository,
+                             LeaderElectionService leaderElection,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${cluster.enabled:false}") boolean enabled,
+                             @Value("${cluster.feed-gap-timeout-ms:60000}") long gapTimeoutMs,
+                             @Value("${cluster.feed-retention-ms:600000}") long retentionMs) {
+        this.changeFeedRepository = changeFeedRepository;
+        this.personRepository = personRepository;
+        this.leaderElection = leaderElection;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.retentionMs = retentionMs;
+    }
+
+    // Локальное состояние при старте строится из базы, поэтому старые записи ленты не нужны
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onStartup() {
+        if (enabled) {
+            lastSeenId = changeFeedRepository.findMaxId();
+            lastPollMillis = System.currentTimeMillis();
+        }
+    }
+
+    // BEFORE_COMMIT: запись в ленту коммитится вместе с изменением. Реплей из poll() идёт вне транзакции и сюда не попадает
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onVote(VoteAppliedEvent event) {
+        if (enabled) {
+            ChangeFeedEntry entry = entry(ChangeFeedEntry.VOTE, event.winnerId());
+            entry.setOtherId(event.loserId());
+            entry.setRating(event.winnerRating());
+            entry.setOtherRating(event.loserRating());
+            entry.setDelta(event.delta());
+            entry.setCreatedAt(event.timestampMillis());
+            entry.setVoteLogId(event.voteLogId());
+            changeFeedRepository.save(entry);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onPersonSaved(PersonSavedEvent event) {
+        if (enabled) {
+            changeFeedRepository.save(entry(ChangeFeedEntry.PERSON_SAVED, event.person().getId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        if (enabled) {
+            changeFeedRepository.save(entry(ChangeFeedEntry.PERSON_DELETED, event.personId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onDataReloaded(DataReloadedEvent event) {
+        if (enabled) {
+            changeFeedRepository.save(entry(ChangeFeedEntry.DATA_RELOADED, 0L));
+        }
+    }
+
+    /**
+     * Applies entries written by other instances: first the late commits that filled known gaps, then
+     * everything after the last seen id.
+     */
+    @Scheduled(fixedDelayString = "${cluster.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPollMillis > retentionMs) {
+            // Пропущенные записи уже могли быть удалены - восстанавливаемся полной пересборкой
+            log.warn("Change feed not polled for {} ms, rebuilding in-memory state", now - lastPollMillis);
+            lastSeenId = findMaxIdOrKeep();
+            lastPollMillis = now;
+            gaps.clear();
+            eventPublisher.publishEvent(new DataReloadedEvent());
+        }
+        try {
+            pollGaps(now);
+            List<ChangeFeedEntry> entries;
+            do {
+                entries = changeFeedRepository.findTop500ByIdGreaterThanOrderByIdAsc(lastSeenId);
+                for (ChangeFeedEntry entry : entries) {
+                    recordGaps(lastSeenId, entry.getId(), now);
+                    applyForeign(entry);
+                    lastSeenId = entry.getId();
+                }
+            } while (entries.size() == 500);
+            lastPollMillis = now;
+        } catch (DataAccessException e) {
+            log.warn("Failed to poll change feed: {}", e.getMessage());
+        }
+    }
+
+    private void pollGaps(long now) {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        for (ChangeFeedEntry entry : changeFeedRepository.findByIdInOrderByIdAsc(gaps.keySet())) {
+            gaps.remove(entry.getId());
+            applyForeign(entry);
+        }
+        gaps.values().removeIf(deadline -> deadline < now);
+    }
+
+    private void recordGaps(long previousId, long id, long now) {
+        // Большой скачок - не опоздавшие транзакции, а сдвиг auto_increment (например, после рестарта MySQL)
+        if (id - previousId - 1 > MAX_GAP) {
+            log.warn("Change feed ids jumped from {} to {}, not waiting for the ids in between", previousId, id);
+            return;
+        }
+        for (long missing = previousId + 1; missing < id; missing++) {
+            gaps.put(missing, now + gapTimeoutMs);
+        }
+    }
+
+    private void applyForeign(ChangeFeedEntry entry) {
+        if (leaderElection.getInstanceId().equals(entry.getOrigin())) {
+            return;
+        }
+        // Опоздавший голос применяется как есть: индексы прибавляют delta, история отбрасывает устаревший рейтинг
+        apply(entry);
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.feed-cleanup-interval-ms:60000}")
+    public void cleanup() {
+        if (!enabled || !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            int removed = changeFeedRepository.deleteOlderThan(System.currentTimeMillis() - retentionMs);
+            log.debug("Removed {} change feed entries", removed);
+        } catch (DataAccessException e) {
+            log.warn("Failed to clean up change feed: {}", e.getMessage());
+        }
+    }
+
+    private void apply(ChangeFeedEntry entry) {
+        switch (entry.getKind()) {
+            case ChangeFeedEntry.VOTE -> eventPublisher.publishEvent(new VoteAppliedEvent(entry.getPersonId(),
+                    entry.getOtherId(), entry.getRating(), entry.getOtherRating(), entry.getDelta(), entry.getCreatedAt(), null,
+                    entry.getVoteLogId() == null ? 0 : entry.getVoteLogId()));
+            case ChangeFeedEntry.PERSON_SAVED -> {
+                // Человека могли удалить позже - тогда придёт отдельная запись PERSON_DELETED
+                PersonMetadata person = personRepository.findMetadataById(entry.getPersonId());
+                if (person != null) {
+                    // Что именно поменялось, в ленте не хранится - считаем, что и фото тоже
+                    eventPublisher.publishEvent(new PersonSavedEvent(person, true));
+                }
+            }
+            case ChangeFeedEntry.PERSON_DELETED -> eventPublisher.publishEvent(new PersonDeletedEvent(entry.getPersonId()));
+            case ChangeFeedEntry.DATA_RELOADED -> eventPublisher.publishEvent(new DataReloadedEvent());
+            default -> log.warn("Unknown change feed entry kind {}", entry.getKind());
+        }
+    }
+
+    private ChangeFeedEntry entry(String kind, long personId) {
+        ChangeFeedEntry entry = new ChangeFeedEntry();
+        entry.setOrigin(leaderElection.getInstanceId());
+        entry.setKind(kind);
+        entry.setPersonId(personId);
+        entry.setCreatedAt(System.currentTimeMillis());
+        return entry;
+    }
+
+    private long findMaxIdOrKeep() {
+        try {
+            return changeFeedRepository.findMaxId();
+        } catch (DataAccessException e) {
+            return lastSeenId;
+        }
+    }
+}
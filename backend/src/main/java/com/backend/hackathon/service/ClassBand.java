@@ -0,0 +1,43 @@
+package com.backend.hackathon.service;
+
+/**
+ * Class ranges used by the duel filters: oldSchool=true is 9-11, oldSchool=false is 5-8.
+ */
+public enum ClassBand {
+    ANY(0, Integer.MAX_VALUE),
+    JUNIOR(5, 8),
+    SENIOR(9, 11);
+
+    private final int minGrade;
+    private final int maxGrade;
+
+    ClassBand(int minGrade, int maxGrade) {
+        this.minGrade = minGrade;
+        this.maxGrade = maxGrade;
+    }
+
+    public static ClassBand of(Boolean oldSchool) {
+        if (oldSchool == null) {
+            return ANY;
+        }
+        return oldSchool ? SENIOR : JUNIOR;
+    }
+
+    public boolean contains(int grade) {
+        return this == ANY || (grade >= minGrade && grade <= maxGrade);
+    }
+
+    /**
+     * Parses the grade out of a class like "10-2", returns 0 when the class has no grade.
+     */
+    public static int parseGrade(String schoolClass) {
+        if (schoolClass != null && schoolClass.contains("-")) {
+            try {
+                return Integer.parseInt(schoolClass.split("-")[0]);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.backend.hackathon.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.SocketTimeoutException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for database access on the hot endpoints. After {@code failure-threshold} consecutive
+ * connection-level failures it opens for {@code open-ms}: callers get their fallback immediately instead
+ * of waiting on the pool. Then a single probe is let through; its outcome closes or re-opens the breaker.
+ */
+@Component
+@Slf4j
+public class DatabaseCircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+    private final Counter shortCircuited;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public DatabaseCircuitBreaker(@Value("${db-breaker.failure-threshold:3}") int failureThreshold,
+                                  @Value("${db-breaker.open-ms:5000}") long openMs,
+                                  MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        Gauge.builder("db.breaker.open", this, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("1 while database calls are short-circuited")
+                .register(meterRegistry);
+        this.shortCircuited = Counter.builder("db.breaker.short.circuited").register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code action} unless the breaker is open. Connection-level failures count against the breaker
+     * and return the fallback; any other exception means the database answered and is rethrown.
+     */
+    public <T> T call(Supplier<T> action, Supplier<T> fallback) {
+        if (!allowRequest()) {
+            shortCircuited.increment();
+            return fallback.get();
+        }
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            if (isUnavailable(e)) {
+                recordFailure(e);
+                return fallback.get();
+            }
+            recordSuccess();
+            throw e;
+        }
+        recordSuccess();
+        return result;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Database is reachable again, closing the circuit breaker");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure(Throwable cause) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Database unavailable ({}), opening the circuit breaker for {} ms", cause.getMessage(), openMs);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    public int getRetryAfterSeconds() {
+        return (int) Math.max(1, (openMs + 999) / 1000);
+    }
+
+    // Только отказы соединения и таймауты - ошибки данных и бизнес-логики брейкер не трогают
+    public static boolean isUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof CannotCreateTransactionException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessResourceException
+                    || t instanceof QueryTimeoutException
+                    || t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.exceptionHandling.DatabaseUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the duel endpoints do while the database is unavailable: pairs come from the in-memory matchmaking
+ * index with names from the search index and photos from published or cached renditions; votes go to the
+ * {@link VoteSpillLog} and are applied when the database is back. The person list behind the ratings page
+ * is served from the search index.
+ */
+@Service
+public class DegradedModeService {
+
+    // Размер, который берётся, если клиент не указал размер фото
+    private static final int DEFAULT_PHOTO_SIZE = 400;
+
+    private final MatchmakingService matchmakingService;
+    private final PersonSearchIndex searchIndex;
+    private final PhotoRenditionCache renditionCache;
+    private final RenditionPublisher renditionPublisher;
+    private final SeenPairService seenPairService;
+    private final VoteSpillLog voteSpillLog;
+    private final DatabaseCircuitBreaker databaseBreaker;
+    private final Counter degradedDuels;
+    private final Counter spilledVotes;
+    private final Counter degradedLists;
+
+    public DegradedModeService(MatchmakingService matchmakingService, PersonSearchIndex searchIndex,
+                               PhotoRenditionCache renditionCache, RenditionPublisher renditionPublisher,
+                               SeenPairService seenPairService,
+                               VoteSpillLog voteSpillLog, DatabaseCircuitBreaker databaseBreaker,
+                               MeterRegistry meterRegistry) {
+        this.matchmakingService = matchmakingService;
+        this.searchIndex = searchIndex;
+        this.renditionCache = renditionCache;
+        this.renditionPublisher = renditionPublisher;
+        this.seenPairService = seenPairService;
+        this.voteSpillLog = voteSpillLog;
+        this.databaseBreaker = databaseBreaker;
+        this.degradedDuels = Counter.builder("degraded.duels").register(meterRegistry);
+        this.spilledVotes = Counter.builder("votes.spilled").register(meterRegistry);
+        this.degradedLists = Counter.builder("degraded.person.lists").register(meterRegistry);
+    }
+
+    /**
+     * Duel from memory only. With {@code withPhoto} pairs whose photos are not cached are re-drawn
+     * (up to the usual retry limit). Without {@code inlinePhotos} only placeholders are returned.
+     */
+    public List<Person> pickDuel(String eventCode, String male, boolean withPhoto, Boolean oldSchool, Long viewerId,
+                                 Integer photoWidth, Integer photoHeight, boolean inlinePhotos) {
+        if (!matchmakingService.isEnabled()) {
+            throw unavailable();
+        }
+        int width = photoWidth != null ? photoWidth : DEFAULT_PHOTO_SIZE;
+        int height = photoHeight != null ? photoHeight : DEFAULT_PHOTO_SIZE;
+        List<Long> ids = matchmakingService.pickPair(eventCode, male, oldSchool, withPhoto,
+                (first, second) -> seenPairService.wasSeen(viewerId, first, second)
+                        || withPhoto && inlinePhotos && (!hasServablePhoto(first, width, height)
+                        || !hasServablePhoto(second, width, height)),
+                seenPairService.getMaxRetries());
+        if (ids.size() < 2) {
+            throw unavailable();
+        }
+        List<Person> persons = new ArrayList<>(2);
+        for (Long id : ids) {
+            PersonMetadata metadata = searchIndex.get(id);
+            if (metadata == null) {
+                throw unavailable();
+            }
+            if (!inlinePhotos) {
+                persons.add(metadata.toPerson(null));
+                continue;
+            }
+            // Опубликованный файл отдаёт Caddy - база для него не нужна
+            String photoUrl = renditionPublisher.publishedUrl(metadata.getPhotoHash(), photoWidth, photoHeight);
+            if (photoUrl != null) {
+                Person person = metadata.toPerson(null);
+                person.setPhotoUrl(photoUrl);
+                persons.add(person);
+                continue;
+            }
+            String photo = renditionCache.get(id, width, height);
+            persons.add(metadata.toPerson(photo != null ? photo : renditionCache.getNearest(id, width, height)));
+        }
+        seenPairService.markSeen(viewerId, ids.get(0), ids.get(1));
+        degradedDuels.increment();
+        return persons;
+    }
+
+    /**
+     * Persons of the event without photos, with ratings as of the last applied vote.
+     *
+     * @throws DatabaseUnavailableException when photos are requested or the index is not built yet
+     */
+    public List<Person> listPersons(String eventCode, boolean includePhotos) {
+        // Фото в памяти нет, а пустой список до построения индекса выглядел бы как событие без участников
+        if (includePhotos || searchIndex.size() == 0) {
+            throw unavailable();
+        }
+        List<Person> persons = new ArrayList<>();
+        for (PersonMetadata metadata : searchIndex.list(eventCode)) {
+            persons.add(metadata.toPerson(null));
+        }
+        degradedLists.increment();
+        return persons;
+    }
+
+    private boolean hasServablePhoto(long id, int width, int height) {
+        if (renditionCache.getNearest(id, width, height) != null) {
+            return true;
+        }
+        PersonMetadata metadata = searchIndex.get(id);
+        return metadata != null && renditionPublisher.publishedUrl(metadata.getPhotoHash(), width, height) != null;
+    }
+
+    /**
+     * Stores the vote for later replay.
+     *
+     * @throws DatabaseUnavailableException when the spill file is full
+     */
+    public void spillVote(long winnerId, long loserId) {
+        if (!voteSpillLog.append(winnerId, loserId, System.currentTimeMillis())) {
+            throw unavailable();
+        }
+        spilledVotes.increment();
+    }
+
+    /**
+     * While spilled votes are pending, new ones are queued behind them so votes are applied in order.
+     */
+    public boolean mustSpillVotes() {
+        return voteSpillLog.hasPending();
+    }
+
+    private DatabaseUnavailableException unavailable() {
+        return new DatabaseUnavailableException("Database is unavailable, retry later",
+                databaseBreaker.getRetryAfterSeconds());
+    }
+}
@@ -0,0 +1,126 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.ContestEvent;
+import com.backend.hackathon.exceptionHandling.EventArchivedException;
+import com.backend.hackathon.repositrory.ContestEventRepository;
+import com.backend.hackathon.repositrory.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Events (schools, contests) sharing this backend. An event exists as soon as a person carries its code;
+ * the contest_event table only records archived ones. An archived event stays readable (persons, search,
+ * stats) but gets no more duels or votes. The archived set is held in memory and re-read periodically,
+ * so the duel and vote paths never query it and other instances see an archivation within one interval.
+ */
+@Service
+@Slf4j
+public class EventService {
+
+    public record EventInfo(String code, long persons, boolean archived, Long archivedAt) {
+    }
+
+    private final ContestEventRepository eventRepository;
+    private final PersonRepository personRepository;
+
+    private volatile Set<String> archived = Collections.emptySet();
+
+    public EventService(ContestEventRepository eventRepository, PersonRepository personRepository) {
+        this.eventRepository = eventRepository;
+        this.personRepository = personRepository;
+    }
+
+    public boolean isArchived(String eventCode) {
+        return archived.contains(eventCode);
+    }
+
+    /**
+     * @throws EventArchivedException if the event is archived
+     */
+    public void requireActive(String eventCode) {
+        if (isArchived(eventCode)) {
+            throw new EventArchivedException(eventCode);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${events.refresh-interval-ms:30000}",
+            initialDelayString = "${events.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            Set<String> codes = new HashSet<>();
+            for (ContestEvent event : eventRepository.findByArchivedTrue()) {
+                codes.add(event.getCode());
+            }
+            archived = Collections.unmodifiableSet(codes);
+        } catch (DataAccessException e) {
+            // Без базы остаётся прошлый список
+            log.warn("Failed to refresh archived events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archives or restores an event. Persons, votes and in-memory indexes of the event are left as they are.
+     */
+    @Transactional
+    public EventInfo archive(String eventCode, boolean archive) {
+        ContestEvent event = eventRepository.findById(eventCode).orElseGet(() -> {
+            ContestEvent created = new ContestEvent();
+            created.setCode(eventCode);
+            return created;
+        });
+        event.setArchived(archive);
+        event.setArchivedAt(archive ? System.currentTimeMillis() : null);
+        eventRepository.save(event);
+
+        Set<String> codes = new HashSet<>(archived);
+        if (archive) {
+            codes.add(eventCode);
+        } else {
+            codes.remove(eventCode);
+        }
+        archived = Collections.unmodifiableSet(codes);
+        log.info("Event {} {}", eventCode, archive ? "archived" : "restored");
+        return new EventInfo(eventCode, countPersons().getOrDefault(eventCode, 0L), archive, event.getArchivedAt());
+    }
+
+    /**
+     * Every event that has persons or a contest_event row.
+     */
+    @Transactional(readOnly = true)
+    public List<EventInfo> list() {
+        Map<String, Long> persons = countPersons();
+        Map<String, ContestEvent> rows = new HashMap<>();
+        for (ContestEvent event : eventRepository.findAll()) {
+            rows.put(event.getCode(), event);
+        }
+        Set<String> codes = new TreeSet<>(persons.keySet());
+        codes.addAll(rows.keySet());
+        List<EventInfo> result = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            ContestEvent row = rows.get(code);
+            result.add(new EventInfo(code, persons.getOrDefault(code, 0L), row != null && row.isArchived(),
+                    row != null ? row.getArchivedAt() : null));
+        }
+        return result;
+    }
+
+    private Map<String, Long> countPersons() {
+        Map<String, Long> result = new HashMap<>();
+        for (Object[] row : personRepository.countPersonsByEvent()) {
+            result.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+}
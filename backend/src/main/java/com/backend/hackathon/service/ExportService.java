@@ -0,0 +1,244 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.exceptionHandling.ExportBusyException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Row-by-row export of the persons and the vote log of one event as NDJSON or CSV. Rows go straight from a forward-only
+ * streaming result set to the response, so memory use does not depend on the table size. Each running
+ * export holds one pooled connection, hence the concurrency limit.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private enum Type {
+        LONG, DOUBLE, STRING, BOOLEAN
+    }
+
+    private record Column(String name, Type type) {
+    }
+
+    private record Table(String sql, List<Column> columns) {
+    }
+
+    // Фото не выгружаем - только признак его наличия, как в PersonMetadata
+    private static final Table PERSONS = new Table(
+            "SELECT id, name, surname, school_class, rating, male, "
+                    + "(photo IS NOT NULL AND LENGTH(photo) > 100) AS has_photo, event_code, version FROM person "
+                    + "WHERE event_code = ? AND deleted_at IS NULL ORDER BY id",
+            List.of(new Column("id", Type.LONG), new Column("name", Type.STRING), new Column("surname", Type.STRING),
+                    new Column("school_class", Type.STRING), new Column("rating", Type.DOUBLE),
+                    new Column("male", Type.STRING), new Column("has_photo", Type.BOOLEAN),
+                    new Column("event_code", Type.STRING), new Column("version", Type.LONG)));
+
+    private static final Table VOTES = new Table(
+            "SELECT id, winner_id, loser_id, winner_rating, loser_rating, delta, created_at, event_code FROM vote_log "
+                    + "WHERE event_code = ? ORDER BY id",
+            List.of(new Column("id", Type.LONG), new Column("winner_id", Type.LONG), new Column("loser_id", Type.LONG),
+                    new Column("winner_rating", Type.DOUBLE), new Column("loser_rating", Type.DOUBLE),
+                    new Column("delta", Type.DOUBLE), new Column("created_at", Type.LONG),
+                    new Column("event_code", Type.STRING)));
+
+    // Connector/J: Integer.MIN_VALUE на forward-only/read-only выражении - построчный стриминг без буферизации всего результата
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Semaphore running;
+    private final int retryAfterSeconds;
+
+    public ExportService(DataSource dataSource,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${export.retry-after-seconds:30}") int retryAfterSeconds) {
+        this.dataSource = dataSource;
+        // readOnly: при включённой реплике выгрузка уходит на неё
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.running = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public StreamingResponseBody exportPersons(String eventCode, Format format, boolean gzip) {
+        return export(PERSONS, eventCode, format, gzip);
+    }
+
+    public StreamingResponseBody exportVotes(String eventCode, Format format, boolean gzip) {
+        return export(VOTES, eventCode, format, gzip);
+    }
+
+    // Слот занимаем до ответа, чтобы вернуть 503 до отправки заголовков; освобождаем после записи
+    private StreamingResponseBody export(Table table, String eventCode, Format format, boolean gzip) {
+        if (!running.tryAcquire()) {
+            throw new ExportBusyException(retryAfterSeconds);
+        }
+        return outputStream -> {
+            try {
+                OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+                Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+                long rows = readOnlyTransaction.execute(status -> streamRows(table, eventCode, format, writer));
+                writer.flush();
+                if (target instanceof GZIPOutputStream gzipStream) {
+                    gzipStream.finish();
+                }
+                log.info("Exported {} rows of event {} as {}{}", rows, eventCode, format.getExtension(), gzip ? ".gz" : "");
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                running.release();
+            }
+        };
+    }
+
+    private long streamRows(Table table, String eventCode, Format format, Writer writer) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(table.sql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            statement.setString(1, eventCode);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                try {
+                    return format == Format.CSV
+                            ? writeCsv(table, resultSet, writer)
+                            : writeNdjson(table, resultSet, writer);
+                } catch (IOException e) {
+                    // Клиент отключился. Закрытие стримингового ResultSet дочитало бы все оставшиеся строки
+                    cancelQuietly(statement);
+                    throw new UncheckedIOException(e);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Export query failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private long writeNdjson(Table table, ResultSet resultSet, Writer writer) throws IOException, SQLException {
+        List<Column> columns = table.columns();
+        long rows = 0;
+        try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+            // Генератор не должен закрывать writer - после него ещё нужно закончить gzip.
+            // Разделитель между корневыми объектами по умолчанию пробел - строки разделяем сами
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            while (resultSet.next()) {
+                json.writeStartObject();
+                for (int i = 0; i < columns.size(); i++) {
+                    Column column = columns.get(i);
+                    json.writeFieldName(column.name());
+                    writeJsonValue(json, column.type(), resultSet, i + 1);
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeJsonValue(JsonGenerator json, Type type, ResultSet resultSet, int index)
+            throws IOException, SQLException {
+        if (resultSet.getObject(index) == null) {
+            json.writeNull();
+            return;
+        }
+        switch (type) {
+            case LONG -> json.writeNumber(resultSet.getLong(index));
+            case DOUBLE -> json.writeNumber(resultSet.getDouble(index));
+            case BOOLEAN -> json.writeBoolean(resultSet.getBoolean(index));
+            case STRING -> json.writeString(resultSet.getString(index));
+        }
+    }
+
+    private long writeCsv(Table table, ResultSet resultSet, Writer writer) throws IOException, SQLException {
+        List<Column> columns = table.columns();
+        for (int i = 0; i < columns.size(); i++) {
+            writer.write(i == 0 ? "" : ",");
+            writer.write(columns.get(i).name());
+        }
+        writer.write("\r\n");
+        long rows = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columns.size(); i++) {
+                writer.write(i == 0 ? "" : ",");
+                // NULL - пустое поле; has_photo из MySQL приходит числом 0/1
+                String value = columns.get(i).type() == Type.BOOLEAN && resultSet.getObject(i + 1) != null
+                        ? String.valueOf(resultSet.getBoolean(i + 1))
+                        : resultSet.getString(i + 1);
+                if (value != null) {
+                    writeCsvValue(writer, value);
+                }
+            }
+            writer.write("\r\n");
+            rows++;
+        }
+        return rows;
+    }
+
+    // RFC 4180: кавычки только когда нужны, внутренние кавычки удваиваются
+    static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void cancelQuietly(PreparedStatement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            log.debug("Failed to cancel export query: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.backend.hackathon.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated pool for image decoding/resizing. Thread count and queue are bounded, so a burst of
+ * duo requests cannot start more resizes than the small heap can hold; excess work is rejected
+ * immediately and the caller degrades instead of queueing forever.
+ */
+@Component
+public class ImageProcessingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Counter completed;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedDeadline;
+
+    public ImageProcessingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${image-processing.threads:2}") int threads,
+                                   @Value("${image-processing.queue-capacity:16}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("image.processing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Image tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("image.processing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.completed = Counter.builder("image.processing.completed").register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("image.processing.rejected")
+                .tag("reason", "queue_full").register(meterRegistry);
+        this.rejectedDeadline = Counter.builder("image.processing.rejected")
+                .tag("reason", "deadline").register(meterRegistry);
+    }
+
+    /**
+     * @return future of the task, or null when the queue is full
+     */
+    public <T> Future<T> trySubmit(Callable<T> task) {
+        try {
+            return executor.submit(() -> {
+                T result = task.call();
+                completed.increment();
+                return result;
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the task until {@code deadlineNanos} (System.nanoTime based).
+     *
+     * @return the result, or null if the pool could not do the work in time
+     * @throws ExecutionException if the task itself failed, e.g. on an undecodable image
+     */
+    public <T> T await(Future<T> future, long deadlineNanos) throws ExecutionException {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedDeadline.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return null;
+        }
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
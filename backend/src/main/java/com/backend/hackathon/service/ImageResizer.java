@@ -0,0 +1,360 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.util.ExifOrientation;
+import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.resizers.configurations.ScalingMode;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Resizes base64 / data URI images. Reads the image size from the header first and decodes with
+ * {@link ImageReadParam} source subsampling, so a 96px thumbnail never materializes the full-resolution
+ * bitmap. Base64 and encoder buffers come from a small bounded pool instead of being allocated per call.
+ */
+@Component
+public class ImageResizer {
+
+    // Для маленьких превью хватает билинейного масштабирования без запаса по субдискретизации
+    static final int SMALL_TARGET = 128;
+    // EXIF (APP1) лежит в начале JPEG, ограничен 64 КБ
+    private static final int EXIF_HEADER_BYTES = 64 * 1024;
+    private static final int POOL_SIZE = 4;
+    private static final int MAX_POOLED_BYTES = 1024 * 1024;
+
+    static {
+        // По умолчанию ImageIO кэширует потоки во временных файлах
+        ImageIO.setUseCache(false);
+    }
+
+    private final ArrayBlockingQueue<Buffers> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Subsampled decode + resize, result is a data URI string.
+     */
+    public String resize(String image, int width, int height, double quality) throws IOException {
+        DataUri uri = DataUri.parse(image);
+        Buffers buffers = acquire();
+        try {
+            int length = buffers.decode(image, uri.payloadStart);
+            Thumbnails.Builder<?> builder;
+            if (ExifOrientation.read(buffers.decoded, length) != ExifOrientation.NORMAL) {
+                // Поворот по EXIF умеет только Thumbnailator при чтении из потока - оставляем полный путь
+                builder = Thumbnails.of(new ByteArrayInputStream(buffers.decoded, 0, length));
+            } else {
+                builder = Thumbnails.of(readSubsampled(buffers.decoded, length, width, height));
+            }
+            if (Math.max(width, height) <= SMALL_TARGET) {
+                builder.scalingMode(ScalingMode.BILINEAR);
+            }
+            return encode(builder.size(width, height), uri.format, quality, buffers.output);
+        } finally {
+            release(buffers);
+        }
+    }
+
+    /**
+     * Low-quality placeholder: the image scaled to {@code size} px on the long side, box-blurred, reduced to
+     * 4 bits per channel and encoded as a PNG data URI (a few hundred bytes), plus its dominant color
+     * as {@code #rrggbb}. PNG rather than JPEG: at this size the JPEG headers alone are ~600 bytes.
+     */
+    public Placeholder placeholder(String image, int size) throws IOException {
+        DataUri uri = DataUri.parse(image);
+        Buffers buffers = acquire();
+        try {
+            int length = buffers.decode(image, uri.payloadStart);
+            BufferedImage source = readSubsampled(buffers.decoded, length, size, size);
+            source = flattenAlpha(ExifOrientation.apply(source, ExifOrientation.read(buffers.decoded, length)));
+            BufferedImage tiny = Thumbnails.of(source).size(size, size).asBufferedImage();
+            String dominantColor = dominantColor(tiny);
+            BufferedImage blurred = boxBlur(tiny);
+            PooledOutputStream output = buffers.output;
+            output.reset();
+            output.write("data:image/png;base64,".getBytes(StandardCharsets.US_ASCII));
+            try (OutputStream base64 = Base64.getEncoder().wrap(output)) {
+                ImageIO.write(blurred, "png", base64);
+            }
+            return new Placeholder(output.toString(StandardCharsets.US_ASCII), dominantColor);
+        } finally {
+            release(buffers);
+        }
+    }
+
+    // Размытие 3x3: при растягивании на всю карточку превью не рассыпается на квадраты.
+    // Младшие 4 бита каналов отбрасываются - после размытия их не видно, а PNG сжимается почти вдвое
+    static BufferedImage boxBlur(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = 0, g = 0, b = 0, n = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int sx = x + dx;
+                        int sy = y + dy;
+                        if (sx >= 0 && sx < width && sy >= 0 && sy < height) {
+                            int rgb = image.getRGB(sx, sy);
+                            r += (rgb >> 16) & 0xFF;
+                            g += (rgb >> 8) & 0xFF;
+                            b += rgb & 0xFF;
+                            n++;
+                        }
+                    }
+                }
+                result.setRGB(x, y, ((r / n) << 16 | (g / n) << 8 | (b / n)) & 0xF0F0F0);
+            }
+        }
+        return result;
+    }
+
+    // Самая населённая ячейка гистограммы 4x4x4 бита, цвет - среднее её пикселей (а не всей картинки)
+    static String dominantColor(BufferedImage image) {
+        int[] counts = new int[4096];
+        long[] sums = new long[4096 * 3];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                int bucket = (r >> 4) << 8 | (g >> 4) << 4 | (b >> 4);
+                counts[bucket]++;
+                sums[bucket * 3] += r;
+                sums[bucket * 3 + 1] += g;
+                sums[bucket * 3 + 2] += b;
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        int n = Math.max(1, counts[best]);
+        return String.format("#%02x%02x%02x", sums[best * 3] / n, sums[best * 3 + 1] / n, sums[best * 3 + 2] / n);
+    }
+
+    BufferedImage readSubsampled(byte[] data, int length, int width, int height) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data, 0, length))) {
+            return readSubsampled(input, width, height);
+        }
+    }
+
+    private BufferedImage readSubsampled(ImageInputStream input, int width, int height) throws IOException {
+        ImageReader reader = readerFor(input);
+        try {
+            reader.setInput(input, true, true);
+            // Размеры берутся из заголовка, пиксели ещё не декодированы
+            int factor = subsamplingFactor(reader.getWidth(0), reader.getHeight(0), width, height);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (factor > 1) {
+                param.setSourceSubsampling(factor, factor, 0, 0);
+            }
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Format name and size from the image header of an uploaded file, without decoding pixels.
+     */
+    public ImageInfo probe(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot read " + file);
+            }
+            ImageReader reader = readerFor(input);
+            try {
+                reader.setInput(input, true, true);
+                return new ImageInfo(reader.getFormatName().toLowerCase(), reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Ingest path for uploads: subsampled decode straight from the file, EXIF orientation applied,
+     * transparency flattened onto white, scaled to fit {@code maxSize} and stored as a JPEG data URI.
+     */
+    public String normalize(Path file, int maxSize, double quality) throws IOException {
+        int orientation;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(EXIF_HEADER_BYTES);
+            orientation = ExifOrientation.read(header, header.length);
+        }
+        BufferedImage image;
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot read " + file);
+            }
+            image = readSubsampled(input, maxSize, maxSize);
+        }
+        image = flattenAlpha(ExifOrientation.apply(image, orientation));
+        Buffers buffers = acquire();
+        try {
+            Thumbnails.Builder<?> builder = Thumbnails.of(image);
+            if (image.getWidth() > maxSize || image.getHeight() > maxSize) {
+                builder.size(maxSize, maxSize);
+            } else {
+                builder.scale(1.0);
+            }
+            return encode(builder, "jpg", quality, buffers.output);
+        } finally {
+            release(buffers);
+        }
+    }
+
+    // JPEG без альфа-канала: прозрачные PNG кладём на белый фон
+    private static BufferedImage flattenAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static ImageReader readerFor(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+        return readers.next();
+    }
+
+    static int subsamplingFactor(int sourceWidth, int sourceHeight, int width, int height) {
+        double scale = Math.min((double) width / sourceWidth, (double) height / sourceHeight);
+        if (scale >= 1.0) {
+            return 1;
+        }
+        // Для крупных превью декодируем минимум в 2x от цели, чтобы финальное уменьшение сгладило алиасинг
+        double headroom = Math.max(width, height) <= SMALL_TARGET ? 1.0 : 2.0;
+        return Math.max(1, (int) Math.floor(1.0 / (scale * headroom)));
+    }
+
+    private String encode(Thumbnails.Builder<?> builder, String format, double quality,
+                          PooledOutputStream output) throws IOException {
+        output.reset();
+        output.write(("data:image/" + format + ";base64,").getBytes(StandardCharsets.US_ASCII));
+        // Кодируем JPEG сразу в base64, без промежуточного массива
+        try (OutputStream base64 = Base64.getEncoder().wrap(output)) {
+            builder.outputFormat(format).outputQuality(quality).toOutputStream(base64);
+        }
+        return output.toString(StandardCharsets.US_ASCII);
+    }
+
+    private Buffers acquire() {
+        Buffers buffers = pool.poll();
+        return buffers != null ? buffers : new Buffers();
+    }
+
+    private void release(Buffers buffers) {
+        buffers.trim();
+        pool.offer(buffers);
+    }
+
+    public record ImageInfo(String format, int width, int height) {
+    }
+
+    public record Placeholder(String image, String dominantColor) {
+    }
+
+    /**
+     * Format and payload offset of a "data:image/png;base64,..." string or a bare base64 string (jpg).
+     */
+    static final class DataUri {
+        final String format;
+        final int payloadStart;
+
+        private DataUri(String format, int payloadStart) {
+            this.format = format;
+            this.payloadStart = payloadStart;
+        }
+
+        static DataUri parse(String image) {
+            if (image.startsWith("data:image/")) {
+                int commaIndex = image.indexOf(',');
+                if (commaIndex > 0) {
+                    String header = image.substring(0, commaIndex);
+                    return new DataUri(header.contains("png") ? "png" : "jpg", commaIndex + 1);
+                }
+            }
+            return new DataUri("jpg", 0);
+        }
+    }
+
+    private static final class Buffers {
+        private byte[] ascii = new byte[64 * 1024];
+        private byte[] decoded = new byte[48 * 1024];
+        private final PooledOutputStream output = new PooledOutputStream();
+
+        int decode(String image, int from) throws IOException {
+            int length = image.length() - from;
+            if (ascii.length < length) {
+                ascii = new byte[length];
+            }
+            for (int i = 0; i < length; i++) {
+                ascii[i] = (byte) image.charAt(from + i);
+            }
+            int maxDecoded = length / 4 * 3 + 3;
+            if (decoded.length < maxDecoded) {
+                decoded = new byte[maxDecoded];
+            }
+            try (InputStream in = Base64.getDecoder().wrap(new ByteArrayInputStream(ascii, 0, length))) {
+                return in.readNBytes(decoded, 0, decoded.length);
+            }
+        }
+
+        // Не держим в пуле буферы от огромных фото
+        void trim() {
+            if (ascii.length > MAX_POOLED_BYTES) {
+                ascii = new byte[64 * 1024];
+            }
+            if (decoded.length > MAX_POOLED_BYTES) {
+                decoded = new byte[48 * 1024];
+            }
+            output.trim(MAX_POOLED_BYTES);
+        }
+    }
+
+    private static final class PooledOutputStream extends ByteArrayOutputStream {
+        PooledOutputStream() {
+            super(32 * 1024);
+        }
+
+        void trim(int maxBytes) {
+            if (buf.length > maxBytes) {
+                buf = new byte[32 * 1024];
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.ClusterLease;
+import com.backend.hackathon.event.LeadershipChangedEvent;
+import com.backend.hackathon.repositrory.ClusterLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Leader election between backend instances over a lease row in the shared database. The leader runs
+ * the Telegram bot and the background jobs (snapshots, cleanup); every instance keeps serving HTTP.
+ * With cluster mode off the single instance is always the leader.
+ */
+@Service
+@Slf4j
+public class LeaderElectionService {
+
+    private static final String LEASE_NAME = "leader";
+
+    private final ClusterLeaseRepository leaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean clusterEnabled;
+    private final long leaseTtlMs;
+    private final String instanceId;
+
+    private volatile boolean leader;
+
+    public LeaderElectionService(ClusterLeaseRepository leaseRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${cluster.enabled:false}") boolean clusterEnabled,
+                                 @Value("${cluster.lease-ttl-ms:15000}") long leaseTtlMs) {
+        this.leaseRepository = leaseRepository;
+        this.eventPublisher = eventPublisher;
+        this.clusterEnabled = clusterEnabled;
+        this.leaseTtlMs = leaseTtlMs;
+        this.instanceId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public boolean isClusterEnabled() {
+        return clusterEnabled;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        log.info("Instance id {}, cluster mode {}", instanceId, clusterEnabled ? "on" : "off");
+        if (clusterEnabled) {
+            renew();
+        } else {
+            setLeader(true);
+        }
+    }
+
+    // Продлеваем аренду в несколько раз чаще её срока, чтобы пережить пару неудачных попыток
+    @Scheduled(fixedDelayString = "${cluster.lease-renew-ms:5000}",
+            initialDelayString = "${cluster.lease-renew-ms:5000}")
+    public void renew() {
+        if (!clusterEnabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (!leaseRepository.existsById(LEASE_NAME)) {
+                createLease();
+            }
+            boolean acquired = leaseRepository.tryAcquire(LEASE_NAME, instanceId, now + leaseTtlMs, now) > 0;
+            setLeader(acquired);
+        } catch (DataAccessException e) {
+            // Без базы не можем подтвердить аренду - другой экземпляр заберёт её после истечения срока
+            log.warn("Failed to renew leader lease: {}", e.getMessage());
+            setLeader(false);
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (clusterEnabled && leader) {
+            try {
+                leaseRepository.release(LEASE_NAME, instanceId);
+            } catch (DataAccessException e) {
+                log.warn("Failed to release leader lease: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Пустая просроченная аренда: саму аренду берём только через условный UPDATE
+    private void createLease() {
+        try {
+            leaseRepository.saveAndFlush(new ClusterLease(LEASE_NAME, "", 0L));
+        } catch (DataIntegrityViolationException e) {
+            // Строку одновременно создал другой экземпляр
+        }
+    }
+
+    private void setLeader(boolean value) {
+        if (leader == value) {
+            return;
+        }
+        leader = value;
+        log.info("Instance {} {} leadership", instanceId, value ? "acquired" : "lost");
+        eventPublisher.publishEvent(new LeadershipChangedEvent(value));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "backend";
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.entity.PersonSummary;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Rating-aware duel selection. Keeps every person's rating and exposure in memory, grouped into
+ * pools per event and duel filter. The first person of a duel is sampled by exposure (under-exposed persons
+ * are boosted), the opponent is sampled among the closest ratings. Both steps are O(log n).
+ * The leader periodically writes a {@link MatchmakingSnapshot}; on startup it is loaded and only rows
+ * whose version changed since are re-read, instead of scanning every photo for the has-photo flag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchmakingService {
+
+    public static final String MODE_RANDOM = "random";
+    public static final String MODE_WEIGHTED = "weighted";
+
+    // Ограничение на размер IN (...) при дочитывании изменившихся строк
+    private static final int RECONCILE_BATCH = 1000;
+
+    private final PersonRepository personRepository;
+    private final LeaderElectionService leaderElection;
+    private final Random random = new Random();
+
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+    private final Map<PoolKey, CandidatePool> pools = new HashMap<>();
+
+    @Value("${matchmaking.mode:random}")
+    private String mode;
+
+    // weight = (1 + exposure) ^ -exponent
+    @Value("${matchmaking.exposure-exponent:1.0}")
+    private double exposureExponent;
+
+    @Value("${matchmaking.rating-sigma:150}")
+    private double ratingSigma;
+
+    @Value("${matchmaking.neighbours:8}")
+    private int neighbours;
+
+    @Value("${storage.data-dir:data}")
+    private String dataDir;
+
+    public boolean isEnabled() {
+        return MODE_WEIGHTED.equalsIgnoreCase(mode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!isEnabled()) {
+            return;
+        }
+        MatchmakingSnapshot snapshot = loadSnapshot();
+        if (snapshot == null) {
+            rebuild();
+        } else {
+            reconcile(snapshot.toCandidates());
+        }
+    }
+
+    // person.sql заливается db-init уже после старта backend, поэтому периодически сверяем индекс с базой
+    @Scheduled(fixedDelayString = "${matchmaking.resync-interval-ms:300000}",
+            initialDelayString = "${matchmaking.resync-interval-ms:300000}")
+    public void scheduledRebuild() {
+        if (isEnabled()) {
+            Map<Long, Candidate> known;
+            synchronized (this) {
+                known = new HashMap<>(candidates);
+            }
+            reconcile(known);
+        }
+    }
+
+    /**
+     * Reloads all candidates from the database (without photos), keeping accumulated exposure counts.
+     */
+    public void rebuild() {
+        List<PersonSummary> summaries = personRepository.findAllSummaries();
+        synchronized (this) {
+            Map<Long, Candidate> previous = new HashMap<>(candidates);
+            candidates.clear();
+            pools.clear();
+            for (PersonSummary summary : summaries) {
+                Candidate candidate = candidateOf(summary);
+                Candidate old = previous.get(summary.getId());
+                if (old != null) {
+                    candidate.exposure = old.exposure;
+                }
+                attach(candidate);
+            }
+        }
+        log.info("Matchmaking index rebuilt: {} candidates in {} pools", summaries.size(), pools.size());
+    }
+
+    /**
+     * Rebuilds the index from {@code known} candidates (a snapshot or the current state). Ratings come from a
+     * cheap id/rating/version scan; only new rows and rows with a different version are re-read in full.
+     */
+    void reconcile(Map<Long, Candidate> known) {
+        List<PersonRatingVersion> rows = personRepository.findAllRatingVersions();
+        List<Long> changed = new ArrayList<>();
+        for (PersonRatingVersion row : rows) {
+            Candidate candidate = known.get(row.getId());
+            if (candidate == null || candidate.version != row.getVersion()) {
+                changed.add(row.getId());
+            }
+        }
+        Map<Long, PersonSummary> reread = new HashMap<>();
+        for (int i = 0; i < changed.size(); i += RECONCILE_BATCH) {
+            for (PersonSummary summary : personRepository.findSummariesByIdIn(
+                    changed.subList(i, Math.min(changed.size(), i + RECONCILE_BATCH)))) {
+                reread.put(summary.getId(), summary);
+            }
+        }
+
+        synchronized (this) {
+            Map<Long, Candidate> previous = new HashMap<>(candidates);
+            candidates.clear();
+            pools.clear();
+            for (PersonRatingVersion row : rows) {
+                Candidate old = known.get(row.getId());
+                PersonSummary summary = reread.get(row.getId());
+                Candidate candidate;
+                if (summary != null) {
+                    candidate = candidateOf(summary);
+                } else if (old != null && old.version == row.getVersion()) {
+                    candidate = new Candidate(old.id, old.eventCode, old.male, old.grade, old.hasPhoto, row.getRating(), old.version);
+                } else {
+                    // Удалён между двумя запросами
+                    continue;
+                }
+                // Показы с момента старта важнее сохранённых в снимке
+                Candidate live = previous.get(row.getId());
+                candidate.exposure = live != null ? live.exposure : old != null ? old.exposure : 0;
+                attach(candidate);
+            }
+        }
+        log.info("Matchmaking index reconciled: {} candidates, {} re-read from the database", rows.size(), reread.size());
+    }
+
+    @Scheduled(fixedDelayString = "${matchmaking.snapshot-interval-ms:60000}",
+            initialDelayString = "${matchmaking.snapshot-interval-ms:60000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        // Каталог данных общий для всех экземпляров - снимок пишет только лидер
+        if (!isEnabled() || !leaderElection.isLeader()) {
+            return;
+        }
+        MatchmakingSnapshot snapshot;
+        synchronized (this) {
+            if (candidates.isEmpty()) {
+                return;
+            }
+            snapshot = MatchmakingSnapshot.capture(candidates.values());
+        }
+        try {
+            snapshot.write(snapshotFile());
+            log.debug("Matchmaking snapshot written: {} candidates", snapshot.size());
+        } catch (IOException e) {
+            log.error("Failed to write matchmaking snapshot: {}", e.getMessage());
+        }
+    }
+
+    private MatchmakingSnapshot loadSnapshot() {
+        Path file = snapshotFile();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            long started = System.nanoTime();
+            MatchmakingSnapshot snapshot = MatchmakingSnapshot.read(file);
+            log.info("Loaded matchmaking snapshot of {} candidates from {} in {} ms", snapshot.size(),
+                    new Date(snapshot.createdAtMillis), (System.nanoTime() - started) / 1_000_000);
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("Ignoring matchmaking snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path snapshotFile() {
+        return Path.of(dataDir, "matchmaking.bin");
+    }
+
+    private static Candidate candidateOf(PersonSummary summary) {
+        return new Candidate(summary.getId(), summary.getEventCode(), summary.getMale(), ClassBand.parseGrade(summary.getSchoolClass()),
+                summary.isHasPhoto(), summary.getRating(), summary.getVersion());
+    }
+
+    /**
+     * Picks ids for a duel, or an empty list when the pool is too small (caller falls back to random).
+     * Pairs matching {@code rejected} are re-drawn up to {@code maxRetries} times; after that the last
+     * drawn pair is used anyway. Exposure is only counted for the pair actually returned.
+     */
+    public synchronized List<Long> pickPair(String eventCode, String male, Boolean oldSchool, boolean withPhoto,
+                                            BiPredicate<Long, Long> rejected, int maxRetries) {
+        CandidatePool pool = pools.get(new PoolKey(eventCode, male, ClassBand.of(oldSchool), withPhoto));
+        if (pool == null || pool.size() < 2) {
+            return Collections.emptyList();
+        }
+        Candidate first = null;
+        Candidate second = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            Candidate a = pool.sampleByWeight(random);
+            Candidate b = a == null ? null : pool.sampleOpponent(a, random, neighbours, ratingSigma);
+            if (b == null) {
+                continue;
+            }
+            first = a;
+            second = b;
+            if (!rejected.test(a.id, b.id)) {
+                break;
+            }
+        }
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        recordExposure(first);
+        recordExposure(second);
+        return List.of(first.id, second.id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onVote(VoteAppliedEvent event) {
+        addRating(event.winnerId(), event.delta());
+        addRating(event.loserId(), -event.delta());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonSaved(PersonSavedEvent event) {
+        onPersonSaved(event.person());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        onPersonDeleted(event.personId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        if (isEnabled()) {
+            rebuild();
+        }
+    }
+
+    private void addRating(long id, double delta) {
+        Candidate candidate = candidates.get(id);
+        if (candidate == null) {
+            return;
+        }
+        List<CandidatePool> memberOf = poolsOf(candidate);
+        memberOf.forEach(pool -> pool.detachRating(candidate));
+        candidate.rating += delta;
+        memberOf.forEach(pool -> pool.attachRating(candidate));
+    }
+
+    public synchronized void onPersonSaved(PersonMetadata person) {
+        Candidate old = candidates.get(person.getId());
+        if (old != null) {
+            detach(old);
+        }
+        Candidate candidate = new Candidate(person.getId(), person.getEventCode(), person.getMale(),
+                ClassBand.parseGrade(person.getSchoolClass()), person.isHasPhoto(), person.getRating(), person.getVersion());
+        if (old != null) {
+            candidate.exposure = old.exposure;
+        }
+        attach(candidate);
+    }
+
+    public synchronized void onPersonDeleted(long id) {
+        Candidate candidate = candidates.get(id);
+        if (candidate != null) {
+            detach(candidate);
+        }
+    }
+
+    private void recordExposure(Candidate candidate) {
+        candidate.exposure++;
+        double weight = weightOf(candidate);
+        for (CandidatePool pool : poolsOf(candidate)) {
+            pool.updateWeight(candidate, weight);
+        }
+    }
+
+    private double weightOf(Candidate candidate) {
+        return Math.pow(1.0 + candidate.exposure, -exposureExponent);
+    }
+
+    private void attach(Candidate candidate) {
+        candidates.put(candidate.id, candidate);
+        double weight = weightOf(candidate);
+        for (PoolKey key : poolKeysOf(candidate)) {
+            pools.computeIfAbsent(key, k -> new CandidatePool()).add(candidate, weight);
+        }
+    }
+
+    private void detach(Candidate candidate) {
+        candidates.remove(candidate.id);
+        for (CandidatePool pool : poolsOf(candidate)) {
+            pool.remove(candidate);
+        }
+    }
+
+    private List<CandidatePool> poolsOf(Candidate candidate) {
+        List<CandidatePool> result = new ArrayList<>(4);
+        for (PoolKey key : poolKeysOf(candidate)) {
+            CandidatePool pool = pools.get(key);
+            if (pool != null) {
+                result.add(pool);
+            }
+        }
+        return result;
+    }
+
+    // Каждый человек входит в пулы "любой класс" и своего диапазона классов, с фото и без фильтра по фото
+    private List<PoolKey> poolKeysOf(Candidate candidate) {
+        List<PoolKey> keys = new ArrayList<>(6);
+        for (ClassBand band : ClassBand.values()) {
+            if (band != ClassBand.ANY && (candidate.grade == 0 || !band.contains(candidate.grade))) {
+                continue;
+            }
+            keys.add(new PoolKey(candidate.eventCode, candidate.male, band, false));
+            if (candidate.hasPhoto) {
+                keys.add(new PoolKey(candidate.eventCode, candidate.male, band, true));
+            }
+        }
+        return keys;
+    }
+
+    // Пулы отдельные для каждого события: соперник всегда из того же события
+    private record PoolKey(String eventCode, String male, ClassBand band, boolean withPhoto) {
+    }
+}
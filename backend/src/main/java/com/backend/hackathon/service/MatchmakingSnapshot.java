@@ -0,0 +1,225 @@
+package com.backend.hackathon.service;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Columnar binary snapshot of the matchmaking candidates: ids, versions, ratings, exposure, grades,
+ * photo flags, gender and event codes as primitive arrays, followed by a CRC32 of everything before it.
+ * Read back through a memory-mapped buffer with bulk array reads.
+ */
+public final class MatchmakingSnapshot {
+
+    private static final int MAGIC = 0x4D4D534E; // "MMSN"
+    private static final int FORMAT_VERSION = 2;
+
+    public final long createdAtMillis;
+    final long[] ids;
+    final long[] versions;
+    final double[] ratings;
+    final int[] exposures;
+    final int[] grades;
+    final byte[] photoFlags;
+    final byte[] maleCodes;
+    final String[] maleValues;
+    final byte[] eventCodes;
+    final String[] eventValues;
+
+    private MatchmakingSnapshot(long createdAtMillis, int count, String[] maleValues, String[] eventValues) {
+        this.createdAtMillis = createdAtMillis;
+        this.ids = new long[count];
+        this.versions = new long[count];
+        this.ratings = new double[count];
+        this.exposures = new int[count];
+        this.grades = new int[count];
+        this.photoFlags = new byte[count];
+        this.maleCodes = new byte[count];
+        this.maleValues = maleValues;
+        this.eventCodes = new byte[count];
+        this.eventValues = eventValues;
+    }
+
+    /**
+     * Copies the candidates into arrays; the caller holds the matchmaking lock.
+     */
+    public static MatchmakingSnapshot capture(Collection<Candidate> candidates) {
+        // Значений пола единицы ("male", "female", "unknown") - храним словарь и байтовый код
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        // Событий на одном сервере тоже немного - тот же приём
+        Map<String, Integer> events = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            codes.putIfAbsent(candidate.male, codes.size());
+            events.putIfAbsent(candidate.eventCode, events.size());
+        }
+        if (codes.size() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct gender values for a snapshot: " + codes.size());
+        }
+        if (events.size() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many events for a snapshot: " + events.size());
+        }
+        MatchmakingSnapshot snapshot = new MatchmakingSnapshot(System.currentTimeMillis(), candidates.size(),
+                codes.keySet().toArray(new String[0]), events.keySet().toArray(new String[0]));
+        int i = 0;
+        for (Candidate candidate : candidates) {
+            snapshot.ids[i] = candidate.id;
+            snapshot.versions[i] = candidate.version;
+            snapshot.ratings[i] = candidate.rating;
+            snapshot.exposures[i] = candidate.exposure;
+            snapshot.grades[i] = candidate.grade;
+            snapshot.photoFlags[i] = (byte) (candidate.hasPhoto ? 1 : 0);
+            snapshot.maleCodes[i] = codes.get(candidate.male).byteValue();
+            snapshot.eventCodes[i] = events.get(candidate.eventCode).byteValue();
+            i++;
+        }
+        return snapshot;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Map<Long, Candidate> toCandidates() {
+        Map<Long, Candidate> result = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            Candidate candidate = new Candidate(ids[i], eventValues[eventCodes[i]], maleValues[maleCodes[i]], grades[i],
+                    photoFlags[i] != 0, ratings[i], versions[i]);
+            candidate.exposure = exposures[i];
+            result.put(candidate.id, candidate);
+        }
+        return result;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(createdAtMillis);
+            out.writeInt(ids.length);
+            writeDictionary(out, maleValues);
+            writeDictionary(out, eventValues);
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            for (long version : versions) {
+                out.writeLong(version);
+            }
+            for (double rating : ratings) {
+                out.writeDouble(rating);
+            }
+            for (int exposure : exposures) {
+                out.writeInt(exposure);
+            }
+            for (int grade : grades) {
+                out.writeInt(grade);
+            }
+            out.write(photoFlags);
+            out.write(maleCodes);
+            out.write(eventCodes);
+            out.flush();
+            // Контрольная сумма всего, что выше; сама в неё не входит
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @throws IOException on a missing file, unknown format or checksum mismatch
+     */
+    public static MatchmakingSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 32) {
+                throw new IOException("Snapshot is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int payloadSize = (int) (fileSize - Long.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, payloadSize));
+            if (crc.getValue() != buffer.getLong(payloadSize)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format");
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            String[] maleValues = readDictionary(buffer);
+            String[] eventValues = readDictionary(buffer);
+
+            MatchmakingSnapshot snapshot = new MatchmakingSnapshot(createdAt, count, maleValues, eventValues);
+            buffer.asLongBuffer().get(snapshot.ids);
+            skip(buffer, (long) count * Long.BYTES);
+            buffer.asLongBuffer().get(snapshot.versions);
+            skip(buffer, (long) count * Long.BYTES);
+            buffer.asDoubleBuffer().get(snapshot.ratings);
+            skip(buffer, (long) count * Double.BYTES);
+            buffer.asIntBuffer().get(snapshot.exposures);
+            skip(buffer, (long) count * Integer.BYTES);
+            buffer.asIntBuffer().get(snapshot.grades);
+            skip(buffer, (long) count * Integer.BYTES);
+            buffer.get(snapshot.photoFlags);
+            buffer.get(snapshot.maleCodes);
+            buffer.get(snapshot.eventCodes);
+            if (buffer.position() != payloadSize) {
+                throw new IOException("Snapshot size does not match its header");
+            }
+            for (byte code : snapshot.maleCodes) {
+                if (code < 0 || code >= maleValues.length) {
+                    throw new IOException("Snapshot has an invalid gender code " + code);
+                }
+            }
+            for (byte code : snapshot.eventCodes) {
+                if (code < 0 || code >= eventValues.length) {
+                    throw new IOException("Snapshot has an invalid event code " + code);
+                }
+            }
+            return snapshot;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot is truncated", e);
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            // -1 - null (пол не указан)
+            out.writeInt(value == null ? -1 : bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            int length = buffer.getInt();
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return values;
+    }
+
+    private static void skip(ByteBuffer buffer, long bytes) {
+        buffer.position(Math.toIntExact(buffer.position() + bytes));
+    }
+}
@@ -0,0 +1,200 @@
+package com.backend.hackathon.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.management.NotificationEmitter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single memory envelope (memory.budget-bytes) shared by all in-process caches. Each cache registers
+ * with a share and gets {@code budget * share / totalShares * factor} bytes. The factor drops when heap
+ * occupancy after GC crosses the warn/critical thresholds, so all caches shrink proportionally,
+ * and slowly recovers once the heap is calm again.
+ */
+@Component
+@Slf4j
+public class MemoryBudget {
+
+    /**
+     * A cache that can report its approximate size and trim itself to a byte limit.
+     */
+    public interface Consumer {
+        long sizeInBytes();
+
+        void setLimit(long limitBytes);
+    }
+
+    public record Allocation(String name, int share, long limitBytes, long usedBytes) {
+    }
+
+    private final long budgetBytes;
+    private final double warnOccupancy;
+    private final double criticalOccupancy;
+    private final double recoverOccupancy;
+    private final double minFactor;
+    private final MeterRegistry meterRegistry;
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<MemoryPoolMXBean> oldGenPools = new ArrayList<>();
+    private double factor = 1.0;
+    private double lastOccupancy;
+    private long lastGcCount;
+
+    public MemoryBudget(@Value("${memory.budget-bytes:25165824}") long budgetBytes,
+                        @Value("${memory.warn-occupancy:0.70}") double warnOccupancy,
+                        @Value("${memory.critical-occupancy:0.85}") double criticalOccupancy,
+                        @Value("${memory.recover-occupancy:0.55}") double recoverOccupancy,
+                        @Value("${memory.min-factor:0.1}") double minFactor,
+                        MeterRegistry meterRegistry) {
+        this.budgetBytes = budgetBytes;
+        this.warnOccupancy = warnOccupancy;
+        this.criticalOccupancy = criticalOccupancy;
+        this.recoverOccupancy = recoverOccupancy;
+        this.minFactor = minFactor;
+        this.meterRegistry = meterRegistry;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // После минорной сборки survivor бывает почти полным - смотрим только на старое поколение
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && !pool.getName().contains("Eden") && !pool.getName().contains("Survivor")) {
+                oldGenPools.add(pool);
+                long max = pool.getUsage().getMax();
+                if (max > 0) {
+                    // Уведомление приходит сразу после GC, не дожидаясь планового check()
+                    pool.setCollectionUsageThreshold((long) (max * warnOccupancy));
+                }
+            }
+        }
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter) {
+            emitter.addNotificationListener((notification, handback) -> check(),
+                    notification -> MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType()),
+                    null);
+        }
+
+        Gauge.builder("memory.budget.factor", this, MemoryBudget::getFactor)
+                .description("Share of the cache budget currently granted")
+                .register(meterRegistry);
+        Gauge.builder("memory.budget.heap.occupancy", this, MemoryBudget::getLastOccupancy)
+                .description("Heap occupancy after the last GC")
+                .register(meterRegistry);
+        log.info("Cache memory budget: {} bytes", budgetBytes);
+    }
+
+    /**
+     * Registers a cache and immediately applies its current limit.
+     */
+    public synchronized void register(String name, int share, Consumer consumer) {
+        Registration registration = new Registration(name, Math.max(1, share), consumer);
+        registrations.add(registration);
+        Gauge.builder("memory.budget.limit", registration, r -> r.limitBytes)
+                .tag("cache", name).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("memory.budget.used", consumer, Consumer::sizeInBytes)
+                .tag("cache", name).baseUnit("bytes").register(meterRegistry);
+        rebalance();
+    }
+
+    public synchronized List<Allocation> allocations() {
+        List<Allocation> result = new ArrayList<>(registrations.size());
+        for (Registration r : registrations) {
+            result.add(new Allocation(r.name, r.share, r.limitBytes, r.consumer.sizeInBytes()));
+        }
+        return result;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized double getFactor() {
+        return factor;
+    }
+
+    public synchronized double getLastOccupancy() {
+        return lastOccupancy;
+    }
+
+    @Scheduled(fixedDelayString = "${memory.check-interval-ms:5000}")
+    public synchronized void check() {
+        // Usage после GC не меняется до следующей сборки старого поколения - без неё не реагируем повторно
+        long gcCount = gcCount();
+        if (gcCount == lastGcCount) {
+            return;
+        }
+        lastGcCount = gcCount;
+        double occupancy = occupancyAfterGc();
+        lastOccupancy = occupancy;
+        double previous = factor;
+        if (occupancy >= criticalOccupancy) {
+            factor = Math.max(minFactor, factor * 0.5);
+        } else if (occupancy >= warnOccupancy) {
+            factor = Math.max(minFactor, factor * 0.8);
+        } else if (occupancy < recoverOccupancy) {
+            // Восстанавливаемся постепенно, чтобы не раскачивать GC
+            factor = Math.min(1.0, factor + 0.1);
+        }
+        if (factor != previous) {
+            log.info("Heap occupancy after GC {}%, cache budget factor {} -> {}",
+                    Math.round(occupancy * 100), previous, factor);
+            rebalance();
+        }
+    }
+
+    private void rebalance() {
+        int totalShares = registrations.stream().mapToInt(r -> r.share).sum();
+        for (Registration r : registrations) {
+            r.limitBytes = (long) (budgetBytes * factor * r.share / totalShares);
+            r.consumer.setLimit(r.limitBytes);
+        }
+    }
+
+    // Занятость после последней сборки - без мусора, который ещё не собран
+    private double occupancyAfterGc() {
+        double occupancy = 0;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            long max = pool.getUsage().getMax();
+            if (usage != null && max > 0) {
+                occupancy = Math.max(occupancy, (double) usage.getUsed() / max);
+            }
+        }
+        return occupancy;
+    }
+
+    // Только сборщики, которые обходят старое поколение: у Serial это полные сборки
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            for (String poolName : gc.getMemoryPoolNames()) {
+                if (oldGenPools.stream().anyMatch(pool -> pool.getName().equals(poolName))) {
+                    count += Math.max(0, gc.getCollectionCount());
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static class Registration {
+        final String name;
+        final int share;
+        final Consumer consumer;
+        long limitBytes;
+
+        Registration(String name, int share, Consumer consumer) {
+            this.name = name;
+            this.share = share;
+            this.consumer = consumer;
+        }
+    }
+}
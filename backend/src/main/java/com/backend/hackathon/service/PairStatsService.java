@@ -0,0 +1,299 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.entity.VoteLogEntry;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.repositrory.VoteLogRepository;
+import com.backend.hackathon.util.PairWinCounter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Head-to-head results of every pair that has met in a duel ("A beat B n times"), kept in a
+ * {@link PairWinCounter}. The leader periodically writes the counters to a binary file together with the
+ * highest vote_log id applied to them; on startup every instance loads the file and replays the vote log
+ * after that id, or the whole log when there is no file.
+ */
+@Service
+@Slf4j
+public class PairStatsService {
+
+    private static final int MAGIC = 0x50414952; // "PAIR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    public record PairStats(long firstId, long secondId, int firstWins, int secondWins) {
+    }
+
+    public record Rival(long opponentId, int wins, int losses) {
+    }
+
+    private final PairWinCounter counter;
+    private final VoteLogRepository voteLogRepository;
+    private final PersonRepository personRepository;
+    private final LeaderElectionService leaderElection;
+    private final Path snapshotFile;
+    private final int replayBatch;
+    // Удаления копятся и снимаются одним проходом по полосам при следующем чтении: синхронизация импорта удаляет
+    // людей пачками, а проход на каждого - это N перестроений всей таблицы
+    private final Set<Long> pendingDeletes = ConcurrentHashMap.newKeySet();
+    // Голоса применяются под общей блокировкой, снимок копирует счётчики под исключительной - вместе с id последней
+    // применённой записи журнала, так что голос не попадёт в снимок без своего id и не посчитается дважды.
+    // Голос, закоммиченный позже голоса с большим id и не успевший в снимок, после перезапуска не дочитается
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final AtomicLong lastAppliedId = new AtomicLong();
+
+    public PairStatsService(@Value("${pair-stats.stripes:64}") int stripes,
+                            @Value("${pair-stats.initial-capacity:65536}") int initialCapacity,
+                            @Value("${pair-stats.replay-batch:5000}") int replayBatch,
+                            @Value("${storage.data-dir:data}") String dataDir,
+                            VoteLogRepository voteLogRepository, PersonRepository personRepository,
+                            LeaderElectionService leaderElection) {
+        this.counter = new PairWinCounter(stripes, initialCapacity);
+        this.voteLogRepository = voteLogRepository;
+        this.personRepository = personRepository;
+        this.leaderElection = leaderElection;
+        this.snapshotFile = Path.of(dataDir, "pair-stats.bin");
+        this.replayBatch = replayBatch;
+    }
+
+    public PairStats pair(long firstId, long secondId) {
+        dropDeleted();
+        return new PairStats(firstId, secondId, counter.wins(firstId, secondId), counter.wins(secondId, firstId));
+    }
+
+    /**
+     * The persons {@code personId} has met most often, with its wins and losses against each.
+     * Scans all pairs: fine for a school, not for a hot path.
+     */
+    public List<Rival> rivals(long personId, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        dropDeleted();
+        Comparator<Rival> byGames = Comparator.comparingInt((Rival rival) -> rival.wins() + rival.losses())
+                .thenComparingLong(rival -> -rival.opponentId());
+        PriorityQueue<Rival> top = new PriorityQueue<>(limit + 1, byGames);
+        counter.forEach((key, lowWins, highWins) -> {
+            Rival rival;
+            if (PairWinCounter.lowId(key) == personId) {
+                rival = new Rival(PairWinCounter.highId(key), lowWins, highWins);
+            } else if (PairWinCounter.highId(key) == personId) {
+                rival = new Rival(PairWinCounter.lowId(key), highWins, lowWins);
+            } else {
+                return;
+            }
+            top.add(rival);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Rival> result = new ArrayList<>(top);
+        result.sort(byGames.reversed());
+        return result;
+    }
+
+    public long size() {
+        dropDeleted();
+        return counter.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVote(VoteAppliedEvent event) {
+        apply(event.voteLogId(), event.winnerId(), event.loserId());
+    }
+
+    private void apply(long voteLogId, long winnerId, long loserId) {
+        snapshotLock.readLock().lock();
+        try {
+            if (winnerId != loserId) {
+                counter.recordWin(winnerId, loserId);
+            }
+            lastAppliedId.accumulateAndGet(voteLogId, Math::max);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        pendingDeletes.add(event.personId());
+    }
+
+    private void dropDeleted() {
+        if (pendingDeletes.isEmpty()) {
+            return;
+        }
+        Set<Long> batch = new HashSet<>(pendingDeletes);
+        counter.removePersons(batch::contains);
+        pendingDeletes.removeAll(batch);
+    }
+
+    // После импорта людей могло не остаться - их пары больше не нужны
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        Set<Long> existing = new HashSet<>();
+        for (PersonRatingVersion person : personRepository.findAllRatingVersions()) {
+            existing.add(person.getId());
+        }
+        counter.removePersons(id -> !existing.contains(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        long started = System.nanoTime();
+        // Граница дочитывания фиксируется до загрузки: голоса после неё придут событиями
+        Long maxId = voteLogRepository.findMaxId();
+        long lastId = loadSnapshot();
+        lastAppliedId.accumulateAndGet(lastId, Math::max);
+        long replayed = replay(lastId, maxId == null ? 0 : maxId);
+        log.info("Pair stats ready: {} pairs, {} votes replayed from the log, {} ms", counter.size(), replayed,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long replay(long afterId, long upToId) {
+        long replayed = 0;
+        long cursor = afterId;
+        while (cursor < upToId) {
+            List<VoteLogEntry> page = voteLogRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                    cursor, upToId, PageRequest.of(0, replayBatch));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (VoteLogEntry entry : page) {
+                apply(entry.getId(), entry.getWinnerId(), entry.getLoserId());
+                cursor = entry.getId();
+            }
+            replayed += page.size();
+        }
+        return replayed;
+    }
+
+    @Scheduled(fixedDelayString = "${pair-stats.snapshot-interval-ms:300000}",
+            initialDelayString = "${pair-stats.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        dropDeleted();
+        // Каталог данных общий для всех экземпляров - снимок пишет только лидер
+        if (counter.size() == 0 || !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            long written = writeSnapshot(snapshotFile);
+            log.debug("Pair stats snapshot written: {} pairs", written);
+        } catch (IOException e) {
+            log.error("Failed to write pair stats snapshot: {}", e.getMessage());
+        }
+    }
+
+    private long writeSnapshot(Path file) throws IOException {
+        // Копия в памяти (16 байт на пару) снимается под блокировкой, на диск пишется уже без неё
+        ByteArrayOutputStream pairs = new ByteArrayOutputStream(Math.toIntExact(counter.size() * ENTRY_BYTES));
+        DataOutputStream pairsOut = new DataOutputStream(pairs);
+        long[] written = {0};
+        long lastVoteLogId;
+        snapshotLock.writeLock().lock();
+        try {
+            lastVoteLogId = lastAppliedId.get();
+            counter.forEach((key, lowWins, highWins) -> {
+                try {
+                    pairsOut.writeLong(key);
+                    pairsOut.writeInt(lowWins);
+                    pairsOut.writeInt(highWins);
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(lastVoteLogId);
+            pairs.writeTo(out);
+            out.writeInt(Math.toIntExact(written[0]));
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written[0];
+    }
+
+    /**
+     * Adds the counters from the snapshot file.
+     *
+     * @return the last vote_log id included in the file, 0 if there is no usable file
+     */
+    private long loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + Integer.BYTES + Long.BYTES) {
+                throw new IOException("Snapshot is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int payloadSize = Math.toIntExact(fileSize - Long.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, payloadSize));
+            if (crc.getValue() != buffer.getLong(payloadSize)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format");
+            }
+            long createdAt = buffer.getLong();
+            long lastVoteLogId = buffer.getLong();
+            int count = buffer.getInt(payloadSize - Integer.BYTES);
+            if ((long) count * ENTRY_BYTES != payloadSize - HEADER_BYTES - Integer.BYTES) {
+                throw new IOException("Snapshot size does not match its pair count");
+            }
+            for (int i = 0; i < count; i++) {
+                counter.add(buffer.getLong(), buffer.getInt(), buffer.getInt());
+            }
+            log.info("Loaded pair stats snapshot of {} pairs from {}", count, new Date(createdAt));
+            return lastVoteLogId;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            // Проверки идут до первой записи в счётчики - без снимка журнал дочитывается целиком
+            log.warn("Ignoring pair stats snapshot {}: {}", snapshotFile, e.getMessage());
+            return 0;
+        }
+    }
+}
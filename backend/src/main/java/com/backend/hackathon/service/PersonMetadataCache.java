@@ -0,0 +1,114 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Spring Cache over person metadata (no photo). Size, expiry and stats come from spring.cache.caffeine.spec;
+ * hit/miss counters are exported by actuator as cache.gets. Committed votes add their delta to cached ratings.
+ * The entry limit is derived from the {@link MemoryBudget} share using an estimated entry size.
+ * Misses must be loaded on the primary: call it outside readOnly transactions, which may go to the replica.
+ */
+@Component
+@RequiredArgsConstructor
+public class PersonMetadataCache implements MemoryBudget.Consumer {
+
+    public static final String CACHE_NAME = "personMetadata";
+
+    // Ключ Long, узел Caffeine и PersonMetadata с тремя короткими строками, цветом, хэшем фото и превью (~500 символов base64)
+    private static final long ESTIMATED_ENTRY_BYTES = 1000;
+
+    private final PersonRepository personRepository;
+    private final CacheManager cacheManager;
+    private final MemoryBudget memoryBudget;
+
+    @Value("${memory.share.person-metadata:4}")
+    private int share;
+
+    @PostConstruct
+    void registerBudget() {
+        memoryBudget.register(CACHE_NAME, share, this);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        CaffeineCache cache = caffeineCache();
+        return cache == null ? 0 : cache.getNativeCache().estimatedSize() * ESTIMATED_ENTRY_BYTES;
+    }
+
+    @Override
+    public void setLimit(long limitBytes) {
+        CaffeineCache cache = caffeineCache();
+        if (cache != null) {
+            // Требует maximumSize в spring.cache.caffeine.spec; значение оттуда - только стартовое
+            cache.getNativeCache().policy().eviction().ifPresent(
+                    eviction -> eviction.setMaximum(Math.max(1, limitBytes / ESTIMATED_ENTRY_BYTES)));
+        }
+    }
+
+    private CaffeineCache caffeineCache() {
+        return cacheManager.getCache(CACHE_NAME) instanceof CaffeineCache caffeineCache ? caffeineCache : null;
+    }
+
+    @Cacheable(cacheNames = CACHE_NAME, unless = "#result == null")
+    public PersonMetadata get(long id) {
+        return personRepository.findMetadataById(id);
+    }
+
+    /**
+     * Adds the vote's delta to cached entries, if present.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVote(VoteAppliedEvent event) {
+        addRating(event.winnerId(), event.delta());
+        addRating(event.loserId(), -event.delta());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonSaved(PersonSavedEvent event) {
+        evict(event.person().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        evict(event.personId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        clear();
+    }
+
+    // Запись, загруженная между коммитом голоса и этим слушателем, учтёт его дважды - до expireAfterWrite
+    private void addRating(long id, double delta) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().asMap().computeIfPresent(id,
+                    (key, value) -> ((PersonMetadata) value).withRating(((PersonMetadata) value).getRating() + delta));
+        } else if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    @CacheEvict(cacheNames = CACHE_NAME)
+    public void evict(long id) {
+    }
+
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+    public void clear() {
+    }
+}
@@ -0,0 +1,355 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over name, surname and school class. Tokens are case-folded with ё → е, kept in
+ * a sorted map, so a prefix is one range scan. Every query term has to prefix-match some token of a person;
+ * exact tokens and name matches rank above prefixes and class matches, ties go to the higher rating.
+ * Each event has its own token map, so a query only walks the persons of its event.
+ * Updated incrementally from committed changes.
+ */
+@Service
+@Slf4j
+public class PersonSearchIndex {
+
+    private static final int FIELD_NAME = 0;
+    private static final int FIELD_CLASS = 1;
+    private static final int RESYNC_BATCH = 500;
+
+    private final PersonRepository personRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, NavigableMap<String, List<Posting>>> tokensByEvent = new HashMap<>();
+    private final Map<Long, Doc> docs = new HashMap<>();
+
+    public PersonSearchIndex(PersonRepository personRepository) {
+        this.personRepository = personRepository;
+    }
+
+    /**
+     * Ranked matches for a free-text query among the persons of one event, at most {@code limit}.
+     */
+    public List<PersonMetadata> search(String eventCode, String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, List<Posting>> tokens = tokensByEvent.get(eventCode);
+            if (tokens == null) {
+                return Collections.emptyList();
+            }
+            Map<Long, Integer> scores = null;
+            for (String term : terms) {
+                Map<Long, Integer> termScores = matchTerm(tokens, term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Все слова запроса должны совпасть
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            Map<Long, Integer> finalScores = scores;
+            PriorityQueue<Doc> top = new PriorityQueue<>(limit + 1, rankOrder(finalScores).reversed());
+            for (Long id : finalScores.keySet()) {
+                top.add(docs.get(id));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Doc> ranked = new ArrayList<>(top);
+            ranked.sort(rankOrder(finalScores));
+            List<PersonMetadata> result = new ArrayList<>(ranked.size());
+            for (Doc doc : ranked) {
+                result.add(doc.metadata);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Metadata of one person from memory, or null. Used when the database is unavailable.
+     */
+    public PersonMetadata get(long id) {
+        lock.readLock().lock();
+        try {
+            Doc doc = docs.get(id);
+            return doc == null ? null : doc.metadata;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Metadata of all persons of the event by id, from memory. Used when the database is unavailable.
+     */
+    public List<PersonMetadata> list(String eventCode) {
+        List<PersonMetadata> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Doc doc : docs.values()) {
+                if (eventOf(doc.metadata).equals(eventCode)) {
+                    result.add(doc.metadata);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingLong(PersonMetadata::getId));
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Лучшее совпадение слова с каждым человеком: точное > префикс, имя/фамилия > класс
+    private static Map<Long, Integer> matchTerm(NavigableMap<String, List<Posting>> tokens, String term) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (Map.Entry<String, List<Posting>> entry : tokens.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            boolean exact = entry.getKey().length() == term.length();
+            for (Posting posting : entry.getValue()) {
+                int score = (posting.field == FIELD_NAME ? 2 : 1) + (exact ? 2 : 0);
+                result.merge(posting.personId, score, Math::max);
+            }
+        }
+        return result;
+    }
+
+    private Comparator<Doc> rankOrder(Map<Long, Integer> scores) {
+        return Comparator.<Doc>comparingInt(doc -> scores.get(doc.metadata.getId())).reversed()
+                .thenComparing(Comparator.<Doc>comparingDouble(doc -> doc.metadata.getRating()).reversed())
+                .thenComparingLong(doc -> doc.metadata.getId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Catches rows written past the application (person.sql loaded by db-init after start): compares ids from a
+     * scan that does not touch photos and reads metadata only for the missing rows. Everything else arrives as events.
+     */
+    @Scheduled(fixedDelayString = "${matchmaking.resync-interval-ms:300000}",
+            initialDelayString = "${matchmaking.resync-interval-ms:300000}")
+    public void resync() {
+        Set<Long> ids = new HashSet<>();
+        for (PersonRatingVersion row : personRepository.findAllRatingVersions()) {
+            ids.add(row.getId());
+        }
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                if (!docs.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (Long id : docs.keySet()) {
+                if (!ids.contains(id)) {
+                    stale.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (missing.isEmpty() && stale.isEmpty()) {
+            return;
+        }
+        List<PersonMetadata> added = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += RESYNC_BATCH) {
+            added.addAll(personRepository.findMetadataByIdIn(missing.subList(i, Math.min(missing.size(), i + RESYNC_BATCH))));
+        }
+        lock.writeLock().lock();
+        try {
+            stale.forEach(this::remove);
+            for (PersonMetadata metadata : added) {
+                remove(metadata.getId());
+                index(metadata);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index resynced: {} added, {} removed", added.size(), stale.size());
+    }
+
+    public void rebuild() {
+        List<PersonMetadata> all = personRepository.findAllMetadata();
+        lock.writeLock().lock();
+        try {
+            tokensByEvent.clear();
+            docs.clear();
+            all.forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index rebuilt: {} persons in {} events", all.size(), tokensByEvent.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonSaved(PersonSavedEvent event) {
+        PersonMetadata metadata = event.person();
+        lock.writeLock().lock();
+        try {
+            remove(metadata.getId());
+            index(metadata);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.personId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVote(VoteAppliedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addRating(event.winnerId(), event.delta());
+            addRating(event.loserId(), -event.delta());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        rebuild();
+    }
+
+    private void addRating(long id, double delta) {
+        Doc doc = docs.get(id);
+        if (doc != null) {
+            doc.metadata = doc.metadata.withRating(doc.metadata.getRating() + delta);
+        }
+    }
+
+    private void index(PersonMetadata metadata) {
+        Doc doc = new Doc(metadata);
+        for (String token : tokenize(metadata.getName())) {
+            addPosting(doc, token, FIELD_NAME);
+        }
+        for (String token : tokenize(metadata.getSurname())) {
+            addPosting(doc, token, FIELD_NAME);
+        }
+        for (String token : tokenize(metadata.getSchoolClass())) {
+            addPosting(doc, token, FIELD_CLASS);
+        }
+        docs.put(metadata.getId(), doc);
+    }
+
+    private void addPosting(Doc doc, String token, int field) {
+        tokensByEvent.computeIfAbsent(eventOf(doc.metadata), e -> new TreeMap<>())
+                .computeIfAbsent(token, t -> new ArrayList<>(1)).add(new Posting(doc.metadata.getId(), field));
+        doc.tokens.add(token);
+    }
+
+    private void remove(long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        String eventCode = eventOf(doc.metadata);
+        NavigableMap<String, List<Posting>> tokens = tokensByEvent.get(eventCode);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : doc.tokens) {
+            List<Posting> postings = tokens.get(token);
+            if (postings != null) {
+                postings.removeIf(posting -> posting.personId == id);
+                if (postings.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+        if (tokens.isEmpty()) {
+            tokensByEvent.remove(eventCode);
+        }
+    }
+
+    // Строки, созданные до появления событий, относятся к событию по умолчанию
+    private static String eventOf(PersonMetadata metadata) {
+        return metadata.getEventCode() != null ? metadata.getEventCode() : EventContext.DEFAULT;
+    }
+
+    /**
+     * Lower case, ё → е, split on everything except letters and digits. "10Б" stays one token "10б".
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(2);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                result.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private record Posting(long personId, int field) {
+    }
+
+    private static final class Doc {
+        PersonMetadata metadata;
+        final List<String> tokens = new ArrayList<>(4);
+
+        Doc(PersonMetadata metadata) {
+            this.metadata = metadata;
+        }
+    }
+}
@@ -1,27 +1,39 @@
 package com.backend.hackathon.service;
 
 import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonPatch;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
 @Service
 public interface PersonService {
-    List<Person> getAllPersons();
+    List<Person> getAllPersons(String eventCode);
 
-    List<Person> getPersonsFilteredByMale(String male);
+    List<Person> getPersonsFilteredByMale(String eventCode, String male);
 
     Person getPersonById(long id);
 
+    PersonMetadata getPersonMetadata(long id);
+
+    String getPersonPhoto(long id);
+
     Person createPerson(Person person);
 
     Person updatePerson(long id,Person person);
 
+    PersonMetadata patchPerson(long id, PersonPatch patch, Long expectedVersion);
+
+    PersonMetadata updatePersonPhoto(long id, String photo, ImageResizer.Placeholder placeholder, Long expectedVersion);
+
+    boolean updatePhotoDerivatives(long id, long version, String photoHash, ImageResizer.Placeholder placeholder);
+
     void deletePerson(long id);
 
-    List<Person> getTwoRandomPersonsByMale(String male, Boolean oldSchool);
+    List<Person> getTwoRandomPersonsByMale(String eventCode, String male, Boolean oldSchool, Long viewerId);
 
-    List<Person> getTwoRandomPersonsByMaleAndPhoto(String male, boolean haveAvatar, Boolean oldSchool);
+    List<Person> getTwoRandomPersonsByMaleAndPhoto(String eventCode, String male, boolean haveAvatar, Boolean oldSchool, Long viewerId);
 
     void duoVote(long winnerId, long loserId);
 }
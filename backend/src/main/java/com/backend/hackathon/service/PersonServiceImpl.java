@@ -1,12 +1,22 @@
 package com.backend.hackathon.service;
 
+import com.backend.hackathon.auth.EventContext;
 import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonPatch;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.exceptionHandling.PersonNotFoundException;
+import com.backend.hackathon.exceptionHandling.VersionConflictException;
 import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.util.PhotoHash;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -15,72 +25,158 @@ import java.util.stream.Collectors;
 @Transactional
 public class PersonServiceImpl implements PersonService{
 
+    private static final double VOTE_DELTA = 10;
+
     private final PersonRepository personRepository;
+    private final MatchmakingService matchmakingService;
+    private final SeenPairService seenPairService;
+    private final PersonMetadataCache metadataCache;
+    private final EventService eventService;
+    private final VoteLogService voteLogService;
+    private final ApplicationEventPublisher eventPublisher;
     private final Random random = new Random();
     
     @PersistenceContext
     private EntityManager entityManager;
 
-    public PersonServiceImpl(PersonRepository personRepository) {
+    public PersonServiceImpl(PersonRepository personRepository, MatchmakingService matchmakingService,
+                             SeenPairService seenPairService, PersonMetadataCache metadataCache,
+                             EventService eventService, VoteLogService voteLogService,
+                             ApplicationEventPublisher eventPublisher) {
         this.personRepository = personRepository;
+        this.matchmakingService = matchmakingService;
+        this.seenPairService = seenPairService;
+        this.metadataCache = metadataCache;
+        this.eventService = eventService;
+        this.voteLogService = voteLogService;
+        this.eventPublisher = eventPublisher;
     }
 
 
     @Override
-    public List<Person> getAllPersons() {
-        return personRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Person> getAllPersons(String eventCode) {
+        return personRepository.findByEventCode(eventCode);
     }
 
     @Override
-    public List<Person> getPersonsFilteredByMale(String male) {
-        List<Person> persons = personRepository.findAll();
-        List<Person> personsFilteredByMalePersons = new ArrayList<>();
-        for(Person person:persons){
-            if (person.getMale().equals(male)){
-                personsFilteredByMalePersons.add(person);
-            }
-        }
-        return personsFilteredByMalePersons;
+    @Transactional(readOnly = true)
+    public List<Person> getPersonsFilteredByMale(String eventCode, String male) {
+        return personRepository.findByEventCodeAndMale(eventCode, male);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Person getPersonById(long id) {
         return personRepository.getPersonById(id);
     }
 
+    // Не readOnly: промах кэша читается с основной базы - рейтинг с отстающей реплики остался бы в кэше,
+    // и duoVote разослал бы посчитанные от него рейтинги во все индексы
+    @Override
+    @Transactional
+    public PersonMetadata getPersonMetadata(long id) {
+        return metadataCache.get(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getPersonPhoto(long id) {
+        return personRepository.findPhotoById(id);
+    }
+
     @Override
     public Person createPerson(Person person) {
         person.setRating(1000);
-        return personRepository.save(person);
+        person.setVersion(0);
+        if (person.getEventCode() == null) {
+            person.setEventCode(EventContext.DEFAULT);
+        }
+        // Превью строится из фото на сервере (дозаполнение в PhotoCompressionService), а не приходит от клиента
+        person.setPlaceholder(null);
+        person.setDominantColor(null);
+        person.setPhotoHash(isRealPhoto(person.getPhoto()) ? PhotoHash.of(person.getPhoto()) : null);
+        Person saved = personRepository.save(person);
+        eventPublisher.publishEvent(new PersonSavedEvent(PersonMetadata.of(saved, isRealPhoto(saved.getPhoto())), true));
+        return saved;
     }
 
+    // PUT меняет только поля: фото - через отдельный эндпоинт, рейтинг - только голосованием
     @Override
     public Person updatePerson(long id,Person person) {
-        return personRepository.save(person);
+        int updated = personRepository.patchFields(id, person.getName(), person.getSurname(),
+                person.getSchoolClass(), person.getMale(), null);
+        return afterUpdate(id, updated, false).toPerson(null);
+    }
+
+    @Override
+    public PersonMetadata patchPerson(long id, PersonPatch patch, Long expectedVersion) {
+        int updated = personRepository.patchFields(id, patch.getName(), patch.getSurname(),
+                patch.getSchoolClass(), patch.getMale(), expectedVersion);
+        return afterUpdate(id, updated, false);
+    }
+
+    @Override
+    public PersonMetadata updatePersonPhoto(long id, String photo, ImageResizer.Placeholder placeholder, Long expectedVersion) {
+        int updated = personRepository.updatePhoto(id, photo, PhotoHash.of(photo),
+                placeholder != null ? placeholder.image() : null,
+                placeholder != null ? placeholder.dominantColor() : null, expectedVersion);
+        return afterUpdate(id, updated, true);
+    }
+
+    // false - фото успели заменить, хэш и превью посчитаны от старого
+    @Override
+    public boolean updatePhotoDerivatives(long id, long version, String photoHash, ImageResizer.Placeholder placeholder) {
+        if (personRepository.updatePhotoDerivatives(id, photoHash, placeholder != null ? placeholder.image() : null,
+                placeholder != null ? placeholder.dominantColor() : null, version) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new PersonSavedEvent(personRepository.findMetadataById(id), false));
+        return true;
+    }
+
+    // 0 изменённых строк: либо человека нет, либо версия уже другая
+    private PersonMetadata afterUpdate(long id, int updated, boolean photoChanged) {
+        PersonMetadata metadata = personRepository.findMetadataById(id);
+        if (metadata == null) {
+            throw new PersonNotFoundException(id);
+        }
+        if (updated == 0) {
+            throw new VersionConflictException(id, metadata.getVersion());
+        }
+        eventPublisher.publishEvent(new PersonSavedEvent(metadata, photoChanged));
+        return metadata;
     }
 
     @Override
     public void deletePerson(long id) {
         Person person = personRepository.getPersonById(id);
         personRepository.delete(person);
+        eventPublisher.publishEvent(new PersonDeletedEvent(id));
     }
 
     @Override
-    public List<Person> getTwoRandomPersonsByMale(String male, Boolean oldSchool) {
+    @Transactional(readOnly = true)
+    public List<Person> getTwoRandomPersonsByMale(String eventCode, String male, Boolean oldSchool, Long viewerId) {
+        List<Person> matched = pickMatchedPair(eventCode, male, oldSchool, false, viewerId);
+        if (matched != null) {
+            return matched;
+        }
+
         List<Person> filteredPersons;
 
         if (oldSchool == null) {
             // Если параметр не передан - выбираем из всех классов
-            filteredPersons = personRepository.findByMale(male);
+            filteredPersons = personRepository.findByEventCodeAndMale(eventCode, male);
         } else if (oldSchool) {
             // oldSchool=true: классы 9-11
             String classPattern = "%-%"; // любой класс
-            List<Person> allPersons = personRepository.findByMaleAndClassLike(male, classPattern);
+            List<Person> allPersons = personRepository.findByMaleAndClassLike(eventCode, male, classPattern);
             filteredPersons = filterByClassRange(allPersons, 9, 11);
         } else {
             // oldSchool=false: классы 5-8
             String classPattern = "%-%"; // любой класс
-            List<Person> allPersons = personRepository.findByMaleAndClassLike(male, classPattern);
+            List<Person> allPersons = personRepository.findByMaleAndClassLike(eventCode, male, classPattern);
             filteredPersons = filterByClassRange(allPersons, 5, 8);
         }
 
@@ -90,28 +186,31 @@ public class PersonServiceImpl implements PersonService{
             throw new RuntimeException("Not enough persons found for male: " + male + " and oldSchool: " + oldSchool + ". Found: " + filteredPersons.size());
         }
 
-        // Перемешиваем и берем первых двух
+        // Перемешиваем и берем первую пару, которую пользователь ещё не видел
         Collections.shuffle(filteredPersons);
-        List<Person> result = filteredPersons.subList(0, 2);
-
-
-        return result;
+        return pickUnseenPair(filteredPersons, viewerId);
     }
 
     @Override
-    public List<Person> getTwoRandomPersonsByMaleAndPhoto(String male, boolean haveAvatar, Boolean oldSchool) {
+    @Transactional(readOnly = true)
+    public List<Person> getTwoRandomPersonsByMaleAndPhoto(String eventCode, String male, boolean haveAvatar, Boolean oldSchool, Long viewerId) {
+        List<Person> matched = pickMatchedPair(eventCode, male, oldSchool, haveAvatar, viewerId);
+        if (matched != null) {
+            return matched;
+        }
+
         List<Person> filteredPersons;
         if (haveAvatar) {
             // Для случая с фото используем более строгую фильтрацию
             if (oldSchool == null) {
                 // Сначала получаем всех с фото
-                List<Person> withPhoto = personRepository.findPersonsByMaleWithPhoto(male);
+                List<Person> withPhoto = personRepository.findPersonsByMaleWithPhoto(eventCode, male);
                 // Затем дополнительно фильтруем в коде
                 filteredPersons = filterRealPhotos(withPhoto);
             } else {
                 String classPattern = "%-%"; // любой класс
                 // Используем метод репозитория для фото и класса
-                List<Person> withPhotoAndClass = personRepository.findByMaleAndClassLikeWithPhoto(male, classPattern);
+                List<Person> withPhotoAndClass = personRepository.findByMaleAndClassLikeWithPhoto(eventCode, male, classPattern);
                 List<Person> filteredByPhoto = filterRealPhotos(withPhotoAndClass);
 
                 if (oldSchool) {
@@ -125,14 +224,14 @@ public class PersonServiceImpl implements PersonService{
         } else {
             // Без фото - используем ту же логику, что и в getTwoRandomPersonsByMale
             if (oldSchool == null) {
-                filteredPersons = personRepository.findByMale(male);
+                filteredPersons = personRepository.findByEventCodeAndMale(eventCode, male);
             } else if (oldSchool) {
                 String classPattern = "%-%"; // любой класс
-                List<Person> allPersons = personRepository.findByMaleAndClassLike(male, classPattern);
+                List<Person> allPersons = personRepository.findByMaleAndClassLike(eventCode, male, classPattern);
                 filteredPersons = filterByClassRange(allPersons, 9, 11);
             } else {
                 String classPattern = "%-%"; // любой класс
-                List<Person> allPersons = personRepository.findByMaleAndClassLike(male, classPattern);
+                List<Person> allPersons = personRepository.findByMaleAndClassLike(eventCode, male, classPattern);
                 filteredPersons = filterByClassRange(allPersons, 5, 8);
             }
         }
@@ -143,11 +242,43 @@ public class PersonServiceImpl implements PersonService{
                     " found for male: " + male + " and oldSchool: " + oldSchool + ". Found: " + filteredPersons.size());
         }
 
-        // Перемешиваем и берем первых двух
+        // Перемешиваем и берем первую пару, которую пользователь ещё не видел
         Collections.shuffle(filteredPersons);
-        List<Person> result = filteredPersons.subList(0, 2);
+        return pickUnseenPair(filteredPersons, viewerId);
+    }
 
+    // Пара из индекса матчмейкинга; null - режим выключен или индекс ещё пуст, тогда работает старый случайный выбор
+    private List<Person> pickMatchedPair(String eventCode, String male, Boolean oldSchool, boolean withPhoto, Long viewerId) {
+        if (!matchmakingService.isEnabled()) {
+            return null;
+        }
+        List<Long> ids = matchmakingService.pickPair(eventCode, male, oldSchool, withPhoto,
+                (first, second) -> seenPairService.wasSeen(viewerId, first, second),
+                seenPairService.getMaxRetries());
+        if (ids.size() < 2) {
+            return null;
+        }
+        Person first = personRepository.getPersonById(ids.get(0));
+        Person second = personRepository.getPersonById(ids.get(1));
+        if (first == null || second == null) {
+            return null;
+        }
+        seenPairService.markSeen(viewerId, first.getId(), second.getId());
+        return new ArrayList<>(List.of(first, second));
+    }
 
+    // Идём по перемешанному списку парами, не больше maxRetries повторов; если все виденные - берём последнюю
+    private List<Person> pickUnseenPair(List<Person> shuffled, Long viewerId) {
+        int attempts = Math.min(seenPairService.getMaxRetries() + 1, shuffled.size() / 2);
+        int start = 0;
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            start = attempt * 2;
+            if (!seenPairService.wasSeen(viewerId, shuffled.get(start).getId(), shuffled.get(start + 1).getId())) {
+                break;
+            }
+        }
+        List<Person> result = shuffled.subList(start, start + 2);
+        seenPairService.markSeen(viewerId, result.get(0).getId(), result.get(1).getId());
         return result;
     }
 
@@ -173,31 +304,50 @@ public class PersonServiceImpl implements PersonService{
     private List<Person> filterRealPhotos(List<Person> persons) {
         List<Person> result = new ArrayList<>();
         for (Person person : persons) {
-            String photo = person.getPhoto();
-            if (photo != null && !photo.trim().isEmpty()) {
-                // Проверяем, что это не stock photo
-                if (!photo.contains("pravatar.cc") && !photo.contains("placeholder")) {
-                    // Проверяем, что это реальное фото
-                    boolean isValidPhoto = photo.startsWith("data:image/") ||
-                            photo.startsWith("http://") ||
-                            photo.startsWith("https://") ||
-                            photo.startsWith("/9j/") ||
-                            photo.startsWith("iVBORw0KGgo") ||
-                            (photo.length() > 100 && !photo.startsWith("data:") && !photo.contains("."));
-                    if (isValidPhoto) {
-                        result.add(person);
-                    }
-                }
+            if (isRealPhoto(person.getPhoto())) {
+                result.add(person);
             }
         }
         return result;
     }
 
+    static boolean isRealPhoto(String photo) {
+        if (photo == null || photo.trim().isEmpty()) {
+            return false;
+        }
+        // Проверяем, что это не stock photo
+        if (photo.contains("pravatar.cc") || photo.contains("placeholder")) {
+            return false;
+        }
+        // Проверяем, что это реальное фото
+        return photo.startsWith("data:image/") ||
+                photo.startsWith("http://") ||
+                photo.startsWith("https://") ||
+                photo.startsWith("/9j/") ||
+                photo.startsWith("iVBORw0KGgo") ||
+                (photo.length() > 100 && !photo.startsWith("data:") && !photo.contains("."));
+    }
+
     @Override
     public void duoVote(long winnerId, long loserId) {
-        Person winner = personRepository.getPersonById(winnerId);
-        Person loser = personRepository.getPersonById(loserId);
-        winner.setRating(winner.getRating()+10);
-        loser.setRating(loser.getRating()-10);
+        // Событие голоса - событие участников (метаданные обычно уже в кэше); голос между событиями не принимается
+        PersonMetadata winner = metadataCache.get(winnerId);
+        PersonMetadata loser = metadataCache.get(loserId);
+        if (winner == null || loser == null || !Objects.equals(winner.getEventCode(), loser.getEventCode())) {
+            throw new PersonNotFoundException(winner == null ? winnerId : loserId);
+        }
+        eventService.requireActive(winner.getEventCode());
+        // Два точечных UPDATE вместо загрузки обеих сущностей вместе с фото
+        if (personRepository.addRating(winnerId, VOTE_DELTA) == 0 || personRepository.addRating(loserId, -VOTE_DELTA) == 0) {
+            throw new RuntimeException("Person not found for vote: winner " + winnerId + ", loser " + loserId);
+        }
+        double winnerRating = personRepository.findRatingById(winnerId);
+        double loserRating = personRepository.findRatingById(loserId);
+        long timestamp = System.currentTimeMillis();
+        long voteLogId = voteLogService.append(winnerId, loserId, winnerRating, loserRating, VOTE_DELTA, timestamp,
+                winner.getEventCode());
+        // Слушатели (индексы, кэши, история) получают событие только после коммита
+        eventPublisher.publishEvent(new VoteAppliedEvent(winnerId, loserId, winnerRating, loserRating,
+                VOTE_DELTA, timestamp, winner.getEventCode(), voteLogId));
     }
 }
@@ -0,0 +1,332 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.auth.EventContext;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonProfile;
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rating aggregates of each event per school class, per gender and overall: count, sum, mean, a fixed-bucket histogram
+ * and members ordered by rating for the top. Built once from metadata (no photos), then updated
+ * incrementally from committed votes and person changes: a vote moves two members, a class change moves
+ * a member between groups, a delete removes it. Reading a group costs its histogram plus the requested top,
+ * independent of the number of persons. A periodic check compares ids and ratings with the database and rebuilds
+ * on any difference; the rebuild also wipes the rounding drift of the sums.
+ */
+@Service
+@Slf4j
+public class PersonStatsService {
+
+    public record GroupSummary(String key, int count, double mean, double minRating, double maxRating) {
+    }
+
+    public record RankedPerson(long id, String name, String surname, String schoolClass, String male, double rating) {
+    }
+
+    public record GroupStats(String key, int count, double sum, double mean, double minRating, double maxRating,
+                             double histogramMin, double bucketWidth, int[] histogram, List<RankedPerson> top) {
+    }
+
+    private final PersonRepository personRepository;
+    private final double histogramMin;
+    private final double bucketWidth;
+    private final int bucketCount;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Member> members = new HashMap<>();
+    private final Map<String, EventGroups> events = new HashMap<>();
+
+    public PersonStatsService(PersonRepository personRepository,
+                              @Value("${stats.histogram-min:0}") double histogramMin,
+                              @Value("${stats.histogram-bucket-width:50}") double bucketWidth,
+                              @Value("${stats.histogram-buckets:60}") int bucketCount) {
+        this.personRepository = personRepository;
+        this.histogramMin = histogramMin;
+        this.bucketWidth = bucketWidth;
+        this.bucketCount = bucketCount;
+    }
+
+    /**
+     * Summaries of all classes of the event, best mean rating first.
+     */
+    public List<GroupSummary> classes(String eventCode) {
+        return summaries(eventCode, true);
+    }
+
+    public List<GroupSummary> genders(String eventCode) {
+        return summaries(eventCode, false);
+    }
+
+    /**
+     * Full stats of one class with its {@code topSize} best-rated members, or null if the class is empty.
+     */
+    public GroupStats schoolClass(String eventCode, String schoolClass, int topSize) {
+        lock.readLock().lock();
+        try {
+            EventGroups groups = events.get(eventCode);
+            Group group = groups == null ? null : groups.byClass.get(schoolClass);
+            return group == null ? null : group.stats(topSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public GroupStats gender(String eventCode, String male, int topSize) {
+        lock.readLock().lock();
+        try {
+            EventGroups groups = events.get(eventCode);
+            Group group = groups == null ? null : groups.byGender.get(male);
+            return group == null ? null : group.stats(topSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Пустое событие - нулевая статистика, а не 404: список участников может быть ещё не загружен
+    public GroupStats overall(String eventCode, int topSize) {
+        lock.readLock().lock();
+        try {
+            EventGroups groups = events.get(eventCode);
+            return (groups == null ? new Group("all") : groups.overall).stats(topSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<GroupSummary> summaries(String eventCode, boolean classes) {
+        List<GroupSummary> result;
+        lock.readLock().lock();
+        try {
+            EventGroups groups = events.get(eventCode);
+            if (groups == null) {
+                return Collections.emptyList();
+            }
+            Map<String, Group> byKey = classes ? groups.byClass : groups.byGender;
+            result = new ArrayList<>(byKey.size());
+            for (Group group : byKey.values()) {
+                result.add(group.summary());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingDouble(GroupSummary::mean).reversed().thenComparing(GroupSummary::key));
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    // Изменения приходят событиями; строки, залитые в базу мимо приложения (person.sql от db-init), и разошедшиеся
+    // рейтинги ищутся дешёвой сверкой id и рейтингов без чтения фото - перестройка только при расхождении
+    @Scheduled(fixedDelayString = "${matchmaking.resync-interval-ms:300000}",
+            initialDelayString = "${matchmaking.resync-interval-ms:300000}")
+    public void resync() {
+        List<PersonRatingVersion> rows = personRepository.findAllRatingVersions();
+        boolean drift;
+        lock.readLock().lock();
+        try {
+            drift = rows.size() != members.size() || !rows.stream().allMatch(row -> {
+                Member member = members.get(row.getId());
+                return member != null && member.person().rating() == row.getRating();
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (drift) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        List<PersonProfile> all = personRepository.findAllProfiles();
+        lock.writeLock().lock();
+        try {
+            members.clear();
+            events.clear();
+            for (PersonProfile profile : all) {
+                add(member(profile.getEventCode(), new RankedPerson(profile.getId(), profile.getName(),
+                        profile.getSurname(), profile.getSchoolClass(), profile.getMale(), profile.getRating())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Stats rebuilt: {} persons in {} events", all.size(), events.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonSaved(PersonSavedEvent event) {
+        PersonMetadata metadata = event.person();
+        lock.writeLock().lock();
+        try {
+            remove(metadata.getId());
+            add(memberOf(metadata));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.personId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVote(VoteAppliedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addRating(event.winnerId(), event.delta());
+            addRating(event.loserId(), -event.delta());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        rebuild();
+    }
+
+    private void addRating(long id, double delta) {
+        Member member = remove(id);
+        if (member != null) {
+            RankedPerson person = member.person();
+            add(new Member(member.eventCode(), new RankedPerson(person.id(), person.name(), person.surname(),
+                    person.schoolClass(), person.male(), person.rating() + delta)));
+        }
+    }
+
+    private static Member memberOf(PersonMetadata metadata) {
+        return member(metadata.getEventCode(), new RankedPerson(metadata.getId(), metadata.getName(),
+                metadata.getSurname(), metadata.getSchoolClass(), metadata.getMale(), metadata.getRating()));
+    }
+
+    private static Member member(String eventCode, RankedPerson person) {
+        // Строки, созданные до появления событий, относятся к событию по умолчанию
+        return new Member(eventCode != null ? eventCode : EventContext.DEFAULT, person);
+    }
+
+    private void add(Member member) {
+        RankedPerson person = member.person();
+        members.put(person.id(), member);
+        EventGroups groups = events.computeIfAbsent(member.eventCode(), code -> new EventGroups());
+        groups.overall.add(person);
+        if (person.schoolClass() != null) {
+            groups.byClass.computeIfAbsent(person.schoolClass(), Group::new).add(person);
+        }
+        if (person.male() != null) {
+            groups.byGender.computeIfAbsent(person.male(), Group::new).add(person);
+        }
+    }
+
+    private Member remove(long id) {
+        Member member = members.remove(id);
+        if (member == null) {
+            return null;
+        }
+        RankedPerson person = member.person();
+        EventGroups groups = events.get(member.eventCode());
+        groups.overall.remove(person);
+        removeFrom(groups.byClass, person.schoolClass(), person);
+        removeFrom(groups.byGender, person.male(), person);
+        if (groups.overall.ranked.isEmpty()) {
+            events.remove(member.eventCode());
+        }
+        return member;
+    }
+
+    // Опустевшая группа (класс, из которого все перешли) исчезает из списка
+    private static void removeFrom(Map<String, Group> groups, String key, RankedPerson person) {
+        if (key == null) {
+            return;
+        }
+        Group group = groups.get(key);
+        if (group != null) {
+            group.remove(person);
+            if (group.ranked.isEmpty()) {
+                groups.remove(key);
+            }
+        }
+    }
+
+    private int bucket(double rating) {
+        int bucket = (int) Math.floor((rating - histogramMin) / bucketWidth);
+        return Math.max(0, Math.min(bucketCount - 1, bucket));
+    }
+
+    private record Member(String eventCode, RankedPerson person) {
+    }
+
+    private final class EventGroups {
+        final Map<String, Group> byClass = new HashMap<>();
+        final Map<String, Group> byGender = new HashMap<>();
+        final Group overall = new Group("all");
+    }
+
+    private final class Group {
+        final String key;
+        // По убыванию рейтинга; равные - по id, чтобы не склеивались
+        final NavigableSet<RankedPerson> ranked = new TreeSet<>(
+                Comparator.comparingDouble(RankedPerson::rating).reversed().thenComparingLong(RankedPerson::id));
+        final int[] histogram = new int[bucketCount];
+        double sum;
+
+        Group(String key) {
+            this.key = key;
+        }
+
+        void add(RankedPerson person) {
+            ranked.add(person);
+            histogram[bucket(person.rating())]++;
+            sum += person.rating();
+        }
+
+        void remove(RankedPerson person) {
+            if (ranked.remove(person)) {
+                histogram[bucket(person.rating())]--;
+                sum -= person.rating();
+            }
+        }
+
+        GroupSummary summary() {
+            int count = ranked.size();
+            return new GroupSummary(key, count, count == 0 ? 0 : sum / count,
+                    count == 0 ? 0 : ranked.last().rating(), count == 0 ? 0 : ranked.first().rating());
+        }
+
+        GroupStats stats(int topSize) {
+            GroupSummary summary = summary();
+            List<RankedPerson> top = new ArrayList<>(Math.min(topSize, ranked.size()));
+            for (RankedPerson person : ranked) {
+                if (top.size() >= topSize) {
+                    break;
+                }
+                top.add(person);
+            }
+            return new GroupStats(key, summary.count(), sum, summary.mean(), summary.minRating(), summary.maxRating(),
+                    histogramMin, bucketWidth, histogram.clone(), top);
+        }
+    }
+}
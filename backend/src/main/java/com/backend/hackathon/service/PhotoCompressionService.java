@@ -1,17 +1,27 @@
 package com.backend.hackathon.service;
 
 import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.exceptionHandling.ImageProcessingUnavailableException;
+import com.backend.hackathon.profiling.Phase;
+import com.backend.hackathon.profiling.RequestTiming;
 import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.util.PhotoHash;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 @Service
 @RequiredArgsConstructor
@@ -19,9 +29,36 @@ import java.util.List;
 public class PhotoCompressionService {
 
     private final PersonRepository personRepository;
+    private final ImageResizer imageResizer;
+    private final ImageProcessingExecutor imageProcessingExecutor;
+    private final PhotoRenditionCache renditionCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PersonService personService;
+    private final LeaderElectionService leaderElection;
     private static final int MAX_WIDTH = 400;
     private static final int MAX_HEIGHT = 400;
     private static final double QUALITY = 0.7; // 70% quality
+    // Размер колонки person.placeholder
+    private static final int MAX_PLACEHOLDER_CHARS = 2048;
+
+    @Value("${image-processing.deadline-ms:3000}")
+    private long deadlineMs;
+
+    // original - отдать исходное фото, reject - ответить 503 с Retry-After
+    @Value("${image-processing.saturation-policy:original}")
+    private String saturationPolicy;
+
+    @Value("${image-processing.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${photo-placeholder.size:16}")
+    private int placeholderSize;
+
+    @Value("${photo-placeholder.backfill-batch:50}")
+    private int backfillBatch;
+
+    // Фото, из которых превью не получилось (битые, не картинка) - не декодируем их на каждом проходе
+    private final Set<Long> placeholderFailures = ConcurrentHashMap.newKeySet();
 
     @Transactional
     public int compressAllPhotos() {
@@ -30,7 +67,7 @@ public class PhotoCompressionService {
         
         for (Person person : allPersons) {
             String photo = person.getPhoto();
-            if (photo == null || photo.trim().isEmpty()) {
+            if (photo == null || photo.trim().isEmpty() || isStockPhoto(photo)) {
                 continue;
             }
             
@@ -46,9 +83,13 @@ public class PhotoCompressionService {
             
             try {
                 String compressedPhoto = compressBase64Image(photo);
-                if (compressedPhoto != null && compressedPhoto.length() < photo.length()) {
-                    person.setPhoto(compressedPhoto);
-                    personRepository.save(person);
+                ImageResizer.Placeholder placeholder = compressedPhoto != null ? createPlaceholder(compressedPhoto) : null;
+                // Точечный UPDATE фото: save() перезаписал бы рейтинг, изменённый голосами во время сжатия
+                if (compressedPhoto != null && compressedPhoto.length() < photo.length()
+                        && personRepository.updatePhoto(person.getId(), compressedPhoto, PhotoHash.of(compressedPhoto),
+                        placeholder != null ? placeholder.image() : null,
+                        placeholder != null ? placeholder.dominantColor() : null, person.getVersion()) > 0) {
+                    eventPublisher.publishEvent(new PersonSavedEvent(personRepository.findMetadataById(person.getId()), true));
                     compressed++;
                     log.info("Compressed photo for person ID {}: {} -> {} bytes", 
                             person.getId(), photo.length(), compressedPhoto.length());
@@ -63,107 +104,140 @@ public class PhotoCompressionService {
     }
     
     /**
-     * Resize a base64 image to specified dimensions on-the-fly (does not save to database)
-     * @param base64Image The original base64 image string
-     * @param width Target width
-     * @param height Target height
-     * @return Resized base64 image string, or null if error
+     * Blurred ~16px preview and dominant color of a stored photo, or null if the photo cannot be decoded.
+     * Generated once when the photo is written and sent with the person so the card is not empty
+     * while the full rendition loads.
      */
-    public String resizeBase64Image(String base64Image, int width, int height) {
-        if (base64Image == null || base64Image.trim().isEmpty()) {
+    public ImageResizer.Placeholder createPlaceholder(String photo) {
+        try {
+            ImageResizer.Placeholder placeholder = imageResizer.placeholder(photo, placeholderSize);
+            if (placeholder.image().length() > MAX_PLACEHOLDER_CHARS) {
+                log.warn("Photo placeholder is {} chars, over the {} limit", placeholder.image().length(), MAX_PLACEHOLDER_CHARS);
+                return null;
+            }
+            return placeholder;
+        } catch (Exception e) {
+            log.warn("Failed to create photo placeholder: {}", e.getMessage());
             return null;
         }
-        
-        // Skip stock photos
-        if (base64Image.contains("pravatar.cc") || base64Image.contains("placeholder")) {
-            return base64Image; // Return as-is for stock photos
+    }
+
+    /**
+     * Fills in content hashes and placeholders for photos stored before they existed or written by the import,
+     * a batch per run.
+     */
+    @Scheduled(initialDelayString = "${photo-placeholder.backfill-interval-ms:60000}",
+            fixedDelayString = "${photo-placeholder.backfill-interval-ms:60000}")
+    public void backfillPhotoDerivatives() {
+        if (!leaderElection.isLeader()) {
+            return;
         }
-        
-        try {
-            // Remove data URI prefix if present
-            String base64Data = base64Image;
-            String format = "jpg";
-            
-            if (base64Image.startsWith("data:image/")) {
-                int commaIndex = base64Image.indexOf(",");
-                if (commaIndex > 0) {
-                    String header = base64Image.substring(0, commaIndex);
-                    base64Data = base64Image.substring(commaIndex + 1);
-                    
-                    // Extract format
-                    if (header.contains("png")) {
-                        format = "png";
-                    } else if (header.contains("jpeg") || header.contains("jpg")) {
-                        format = "jpg";
-                    }
+        int filled = 0;
+        List<Long> ids = personRepository.findIdsMissingPhotoDerivatives(
+                PageRequest.of(0, backfillBatch + placeholderFailures.size()));
+        for (Long id : ids) {
+            if (filled >= backfillBatch) {
+                break;
+            }
+            Person person = placeholderFailures.contains(id) ? null : personRepository.getPersonById(id);
+            if (person == null) {
+                continue;
+            }
+            // Хэш пишем и для фото, из которого превью не получилось - его размеры всё равно можно опубликовать
+            ImageResizer.Placeholder placeholder = person.getPlaceholder() != null ? null : createPlaceholder(person.getPhoto());
+            if (placeholder == null && person.getPlaceholder() == null) {
+                placeholderFailures.add(id);
+                if (person.getPhotoHash() != null) {
+                    continue;
                 }
             }
-            
-            // Decode base64
-            byte[] imageBytes = Base64.getDecoder().decode(base64Data);
-            
-            // Resize image
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            Thumbnails.of(new ByteArrayInputStream(imageBytes))
-                    .size(width, height)
-                    .outputFormat(format)
-                    .outputQuality(QUALITY)
-                    .toOutputStream(outputStream);
-            
-            byte[] resizedBytes = outputStream.toByteArray();
-            
-            // Encode back to base64
-            String resizedBase64 = Base64.getEncoder().encodeToString(resizedBytes);
-            
-            // Add data URI prefix back
-            return "data:image/" + format + ";base64," + resizedBase64;
-            
-        } catch (Exception e) {
-            log.error("Error resizing image: {}", e.getMessage());
-            return base64Image; // Return original on error
+            if (personService.updatePhotoDerivatives(id, person.getVersion(), PhotoHash.of(person.getPhoto()), placeholder)) {
+                filled++;
+            }
+        }
+        if (filled > 0) {
+            log.info("Filled photo hashes and placeholders for {} persons", filled);
         }
     }
-    
+
+    // Стоковые фото отдаются как есть
+    private static boolean isStockPhoto(String photo) {
+        return photo.contains("pravatar.cc") || photo.contains("placeholder");
+    }
+
+    public String getCachedRendition(long personId, int width, int height) {
+        return renditionCache.get(personId, width, height);
+    }
+
+    /**
+     * Resizes the photos of the given persons in place on the image executor. All resizes share one
+     * deadline; when the executor is saturated or the deadline passes, the nearest cached rendition
+     * (or the original photo, depending on the saturation policy) is served instead.
+     */
+    public void resizePersonPhotos(List<Person> persons, int width, int height) {
+        try (RequestTiming.Scope ignored = RequestTiming.phase(Phase.RESIZE, width + "x" + height)) {
+            resizeWithDeadline(persons, width, height);
+        }
+    }
+
+    private void resizeWithDeadline(List<Person> persons, int width, int height) {
+        long deadline = System.nanoTime() + deadlineMs * 1_000_000L;
+        List<Person> pending = new ArrayList<>();
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (Person person : persons) {
+            String photo = person.getPhoto();
+            if (photo == null || photo.trim().isEmpty()) {
+                continue;
+            }
+            String cached = renditionCache.get(person.getId(), width, height);
+            if (cached != null) {
+                person.setPhoto(cached);
+                continue;
+            }
+            Future<String> future = imageProcessingExecutor.trySubmit(() -> imageResizer.resize(photo, width, height, QUALITY));
+            if (future == null) {
+                degrade(person, width, height);
+            } else {
+                pending.add(person);
+                futures.add(future);
+            }
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            Person person = pending.get(i);
+            String resized;
+            try {
+                resized = imageProcessingExecutor.await(futures.get(i), deadline);
+            } catch (ExecutionException e) {
+                // Фото не читается - отдаём оригинал и не кэшируем
+                log.error("Error resizing photo of person ID {}: {}", person.getId(), e.getCause().getMessage());
+                continue;
+            }
+            if (resized == null) {
+                degrade(person, width, height);
+            } else {
+                renditionCache.put(person.getId(), width, height, resized);
+                person.setPhoto(resized);
+            }
+        }
+    }
+
+    private void degrade(Person person, int width, int height) {
+        String nearest = renditionCache.getNearest(person.getId(), width, height);
+        if (nearest != null) {
+            person.setPhoto(nearest);
+            return;
+        }
+        if ("reject".equalsIgnoreCase(saturationPolicy)) {
+            throw new ImageProcessingUnavailableException(retryAfterSeconds);
+        }
+        log.warn("Image processing saturated, serving original photo for person ID {}", person.getId());
+    }
+
     private String compressBase64Image(String base64Image) {
         try {
-            // Remove data URI prefix if present
-            String base64Data = base64Image;
-            String format = "jpg";
-            
-            if (base64Image.startsWith("data:image/")) {
-                int commaIndex = base64Image.indexOf(",");
-                if (commaIndex > 0) {
-                    String header = base64Image.substring(0, commaIndex);
-                    base64Data = base64Image.substring(commaIndex + 1);
-                    
-                    // Extract format
-                    if (header.contains("png")) {
-                        format = "png";
-                    } else if (header.contains("jpeg") || header.contains("jpg")) {
-                        format = "jpg";
-                    }
-                }
-            }
-            
-            // Decode base64
-            byte[] imageBytes = Base64.getDecoder().decode(base64Data);
-            
-            // Compress image
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            Thumbnails.of(new ByteArrayInputStream(imageBytes))
-                    .size(MAX_WIDTH, MAX_HEIGHT)
-                    .outputFormat(format)
-                    .outputQuality(QUALITY)
-                    .toOutputStream(outputStream);
-            
-            byte[] compressedBytes = outputStream.toByteArray();
-            
-            // Encode back to base64
-            String compressedBase64 = Base64.getEncoder().encodeToString(compressedBytes);
-            
-            // Add data URI prefix back
-            return "data:image/" + format + ";base64," + compressedBase64;
-            
+            return imageResizer.resize(base64Image, MAX_WIDTH, MAX_HEIGHT, QUALITY);
         } catch (Exception e) {
             log.error("Error compressing image: {}", e.getMessage());
             return null;
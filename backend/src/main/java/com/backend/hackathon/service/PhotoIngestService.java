@@ -0,0 +1,181 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.exceptionHandling.ImageProcessingUnavailableException;
+import com.backend.hackathon.exceptionHandling.InvalidPhotoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Photo upload: the request body is streamed to a temp file under a byte limit, the header is checked
+ * (format, dimensions) before any pixels are decoded, then the image is normalized once - upright,
+ * JPEG, at most {@code stored-size} px - and the configured renditions and the blurred placeholder are
+ * generated right away.
+ */
+@Service
+@Slf4j
+public class PhotoIngestService {
+
+    private static final Set<String> ACCEPTED_FORMATS = Set.of("jpeg", "png");
+
+    private final PersonService personService;
+    private final ImageResizer imageResizer;
+    private final ImageProcessingExecutor imageProcessingExecutor;
+    private final PhotoRenditionCache renditionCache;
+    private final PhotoCompressionService photoCompressionService;
+    private final RenditionPublisher renditionPublisher;
+
+    private final long maxBytes;
+    private final int maxDimension;
+    private final long maxPixels;
+    private final int storedSize;
+    private final double quality;
+    private final List<int[]> renditions;
+    private final long deadlineMs;
+    private final int retryAfterSeconds;
+
+    public PhotoIngestService(PersonService personService,
+                              ImageResizer imageResizer,
+                              ImageProcessingExecutor imageProcessingExecutor,
+                              PhotoRenditionCache renditionCache,
+                              PhotoCompressionService photoCompressionService,
+                              RenditionPublisher renditionPublisher,
+                              @Value("${photo-upload.max-bytes:10485760}") long maxBytes,
+                              @Value("${photo-upload.max-dimension:8000}") int maxDimension,
+                              @Value("${photo-upload.max-pixels:40000000}") long maxPixels,
+                              @Value("${photo-upload.stored-size:400}") int storedSize,
+                              @Value("${photo-upload.quality:0.7}") double quality,
+                              @Value("${photo-upload.renditions:144x144}") List<String> renditions,
+                              @Value("${photo-upload.deadline-ms:15000}") long deadlineMs,
+                              @Value("${image-processing.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.personService = personService;
+        this.imageResizer = imageResizer;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+        this.renditionCache = renditionCache;
+        this.photoCompressionService = photoCompressionService;
+        this.renditionPublisher = renditionPublisher;
+        this.maxBytes = maxBytes;
+        this.maxDimension = maxDimension;
+        this.maxPixels = maxPixels;
+        this.storedSize = storedSize;
+        this.quality = quality;
+        this.renditions = parseSizes(renditions);
+        this.deadlineMs = deadlineMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public PersonMetadata ingest(long personId, InputStream body, Long expectedVersion) throws IOException {
+        Path temp = Files.createTempFile("photo-upload-", ".tmp");
+        try {
+            copyLimited(body, temp);
+            ImageResizer.ImageInfo info = probe(temp);
+            if (info.width() > maxDimension || info.height() > maxDimension
+                    || (long) info.width() * info.height() > maxPixels) {
+                throw new InvalidPhotoException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Image is " + info.width() + "x" + info.height() + ", limit " + maxDimension + " px / " + maxPixels + " pixels");
+            }
+
+            Future<Processed> future = imageProcessingExecutor.trySubmit(() -> process(temp));
+            Processed processed;
+            try {
+                processed = future == null ? null
+                        : imageProcessingExecutor.await(future, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs));
+            } catch (ExecutionException e) {
+                // Заголовок распознан, а сама картинка не декодируется - повтор не поможет, 503 здесь только для перегрузки
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                log.warn("Photo of person {} cannot be decoded: {}", personId, e.getCause().getMessage());
+                throw new InvalidPhotoException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Image cannot be decoded");
+            }
+            if (processed == null) {
+                throw new ImageProcessingUnavailableException(retryAfterSeconds);
+            }
+
+            PersonMetadata updated = personService.updatePersonPhoto(personId, processed.photo, processed.placeholder,
+                    expectedVersion);
+            // Транзакция уже закоммичена и старые копии вытеснены - кладём новые
+            for (int i = 0; i < renditions.size(); i++) {
+                String rendition = processed.renditions.get(i);
+                if (rendition != null) {
+                    renditionCache.put(personId, renditions.get(i)[0], renditions.get(i)[1], rendition);
+                    renditionPublisher.publish(updated.getPhotoHash(), renditions.get(i)[0], renditions.get(i)[1], rendition);
+                }
+            }
+            log.info("Photo of person {} replaced: {}x{} {} -> {} chars", personId, info.width(), info.height(),
+                    info.format(), processed.photo.length());
+            return updated;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Processed process(Path file) throws IOException {
+        String photo = imageResizer.normalize(file, storedSize, quality);
+        List<String> resized = new ArrayList<>(renditions.size());
+        for (int[] size : renditions) {
+            resized.add(imageResizer.resize(photo, size[0], size[1], quality));
+        }
+        return new Processed(photo, resized, photoCompressionService.createPlaceholder(photo));
+    }
+
+    private void copyLimited(InputStream body, Path target) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new InvalidPhotoException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        if (total == 0) {
+            throw new InvalidPhotoException(HttpStatus.BAD_REQUEST, "Empty upload");
+        }
+    }
+
+    private ImageResizer.ImageInfo probe(Path file) {
+        ImageResizer.ImageInfo info;
+        try {
+            info = imageResizer.probe(file);
+        } catch (IOException e) {
+            throw new InvalidPhotoException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Not a readable image");
+        }
+        if (!ACCEPTED_FORMATS.contains(info.format())) {
+            throw new InvalidPhotoException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported image format " + info.format());
+        }
+        return info;
+    }
+
+    // "144x144,1200x1200"
+    private static List<int[]> parseSizes(List<String> sizes) {
+        List<int[]> result = new ArrayList<>();
+        for (String size : sizes) {
+            String[] parts = size.trim().toLowerCase().split("x");
+            if (parts.length == 2) {
+                result.add(new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())});
+            }
+        }
+        return result;
+    }
+
+    private record Processed(String photo, List<String> renditions, ImageResizer.Placeholder placeholder) {
+    }
+}
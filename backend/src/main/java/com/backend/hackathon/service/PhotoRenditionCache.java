@@ -0,0 +1,137 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.event.DataReloadedEvent;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * LRU cache of resized photos keyed by (person, width, height), bounded by total string length.
+ * The bound is granted by {@link MemoryBudget} and shrinks under heap pressure. Also used as the fallback when image processing is saturated: the nearest cached size is
+ * served instead of a fresh resize.
+ */
+@Component
+public class PhotoRenditionCache implements MemoryBudget.Consumer {
+
+    private long maxBytes;
+    private final LinkedHashMap<RenditionKey, String> renditions = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Long, List<RenditionKey>> keysByPerson = new HashMap<>();
+    private long currentBytes;
+
+    public PhotoRenditionCache(MemoryBudget memoryBudget,
+                               @Value("${memory.share.photo-renditions:16}") int share) {
+        memoryBudget.register("photoRenditions", share, this);
+    }
+
+    public synchronized String get(long personId, int width, int height) {
+        return renditions.get(new RenditionKey(personId, width, height));
+    }
+
+    /**
+     * Cached rendition of the person with the closest size to the requested one, or null.
+     */
+    public synchronized String getNearest(long personId, int width, int height) {
+        List<RenditionKey> keys = keysByPerson.get(personId);
+        if (keys == null) {
+            return null;
+        }
+        RenditionKey best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (RenditionKey key : keys) {
+            long distance = Math.abs((long) key.width * key.height - (long) width * height);
+            if (distance < bestDistance) {
+                best = key;
+                bestDistance = distance;
+            }
+        }
+        return best == null ? null : renditions.get(best);
+    }
+
+    public synchronized void put(long personId, int width, int height, String photo) {
+        if (photo == null || photo.length() > maxBytes) {
+            return;
+        }
+        RenditionKey key = new RenditionKey(personId, width, height);
+        String previous = renditions.put(key, photo);
+        if (previous != null) {
+            currentBytes -= previous.length();
+        } else {
+            keysByPerson.computeIfAbsent(personId, id -> new ArrayList<>(2)).add(key);
+        }
+        currentBytes += photo.length();
+        trim();
+    }
+
+    @Override
+    public synchronized void setLimit(long limitBytes) {
+        maxBytes = limitBytes;
+        trim();
+    }
+
+    public synchronized void evict(long personId) {
+        List<RenditionKey> keys = keysByPerson.remove(personId);
+        if (keys != null) {
+            for (RenditionKey key : keys) {
+                String removed = renditions.remove(key);
+                if (removed != null) {
+                    currentBytes -= removed.length();
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        renditions.clear();
+        keysByPerson.clear();
+        currentBytes = 0;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonSaved(PersonSavedEvent event) {
+        if (event.photoChanged()) {
+            evict(event.person().getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        evict(event.personId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataReloaded(DataReloadedEvent event) {
+        clear();
+    }
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return currentBytes;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<RenditionKey, String>> eldest = renditions.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<RenditionKey, String> entry = eldest.next();
+            currentBytes -= entry.getValue().length();
+            eldest.remove();
+            forgetKey(entry.getKey());
+        }
+    }
+
+    private void forgetKey(RenditionKey key) {
+        List<RenditionKey> keys = keysByPerson.get(key.personId);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByPerson.remove(key.personId);
+            }
+        }
+    }
+
+    private record RenditionKey(long personId, int width, int height) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.backend.hackathon.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Rating history of one person: one ring buffer of (bucket, rating) per resolution tier, in primitive
+ * arrays. Every vote updates all tiers - a tier overwrites its last point while still in the same
+ * bucket, so coarse tiers always hold the closing rating of each hour/day. Memory is fixed per person.
+ */
+final class RatingHistory {
+
+    private final int[] bucketMinutes;
+    private final int[][] buckets;
+    private final float[][] ratings;
+    private final int[] heads;
+    private final int[] sizes;
+    // Время последнего записанного голоса: слушатели двух одновременных голосов могут прийти в любом порядке
+    private long lastTimestampMillis = Long.MIN_VALUE;
+
+    RatingHistory(int[] bucketMinutes, int[] capacities) {
+        this.bucketMinutes = bucketMinutes;
+        this.buckets = new int[bucketMinutes.length][];
+        this.ratings = new float[bucketMinutes.length][];
+        for (int tier = 0; tier < bucketMinutes.length; tier++) {
+            buckets[tier] = new int[capacities[tier]];
+            ratings[tier] = new float[capacities[tier]];
+        }
+        this.heads = new int[bucketMinutes.length];
+        this.sizes = new int[bucketMinutes.length];
+    }
+
+    /**
+     * Records the rating after a vote; a vote older than the last recorded one is ignored, its rating is stale.
+     */
+    synchronized void record(long timestampMillis, double rating) {
+        if (timestampMillis < lastTimestampMillis) {
+            return;
+        }
+        lastTimestampMillis = timestampMillis;
+        long epochMinute = timestampMillis / 60_000L;
+        for (int tier = 0; tier < bucketMinutes.length; tier++) {
+            put(tier, (int) (epochMinute / bucketMinutes[tier]), (float) rating);
+        }
+    }
+
+    private void put(int tier, int bucket, float rating) {
+        int capacity = buckets[tier].length;
+        if (sizes[tier] > 0) {
+            int last = (heads[tier] - 1 + capacity) % capacity;
+            if (buckets[tier][last] == bucket) {
+                ratings[tier][last] = rating;
+                return;
+            }
+        }
+        buckets[tier][heads[tier]] = bucket;
+        ratings[tier][heads[tier]] = rating;
+        heads[tier] = (heads[tier] + 1) % capacity;
+        sizes[tier] = Math.min(sizes[tier] + 1, capacity);
+    }
+
+    /**
+     * Chronological points, coarsest tier first: each finer tier takes over where its data begins.
+     */
+    synchronized Points points() {
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        long[] minutes = new long[total];
+        float[] values = new float[total];
+        int count = 0;
+        long coveredFrom = Long.MAX_VALUE;
+        // От мелкого уровня к крупному: берём только точки, начинающиеся раньше более подробных данных
+        for (int tier = 0; tier < bucketMinutes.length; tier++) {
+            int capacity = buckets[tier].length;
+            for (int i = 0; i < sizes[tier]; i++) {
+                int index = (heads[tier] - 1 - i + capacity) % capacity;
+                long start = (long) buckets[tier][index] * bucketMinutes[tier];
+                if (start >= coveredFrom) {
+                    continue;
+                }
+                minutes[total - 1 - count] = start;
+                values[total - 1 - count] = ratings[tier][index];
+                count++;
+            }
+            if (sizes[tier] > 0) {
+                coveredFrom = Math.min(coveredFrom, firstBucketStart(tier));
+            }
+        }
+        long[] resultMinutes = new long[count];
+        float[] resultValues = new float[count];
+        System.arraycopy(minutes, total - count, resultMinutes, 0, count);
+        System.arraycopy(values, total - count, resultValues, 0, count);
+        return new Points(resultMinutes, resultValues);
+    }
+
+    private long firstBucketStart(int tier) {
+        int capacity = buckets[tier].length;
+        int oldest = (heads[tier] - sizes[tier] + capacity) % capacity;
+        return (long) buckets[tier][oldest] * bucketMinutes[tier];
+    }
+
+    synchronized void write(DataOutputStream out) throws IOException {
+        for (int tier = 0; tier < bucketMinutes.length; tier++) {
+            int capacity = buckets[tier].length;
+            out.writeInt(sizes[tier]);
+            for (int i = sizes[tier]; i > 0; i--) {
+                int index = (heads[tier] - i + capacity) % capacity;
+                out.writeInt(buckets[tier][index]);
+                out.writeFloat(ratings[tier][index]);
+            }
+        }
+    }
+
+    synchronized void read(DataInputStream in) throws IOException {
+        for (int tier = 0; tier < bucketMinutes.length; tier++) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                put(tier, in.readInt(), in.readFloat());
+            }
+        }
+    }
+
+    record Points(long[] epochMinutes, float[] ratings) {
+    }
+}
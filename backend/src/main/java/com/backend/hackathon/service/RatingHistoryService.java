@@ -0,0 +1,140 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.RatingHistoryResponse;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps "rating over time" per person in fixed-size {@link RatingHistory} ring buffers (minute, hour and
+ * day resolution), fed by committed votes. Persisted as a compact binary snapshot in the data directory.
+ */
+@Service
+@Slf4j
+public class RatingHistoryService {
+
+    private static final int MAGIC = 0x52484953; // "RHIS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int[] BUCKET_MINUTES = {1, 60, 1440};
+
+    private final LeaderElectionService leaderElection;
+    private final Map<Long, RatingHistory> histories = new ConcurrentHashMap<>();
+    private final int[] capacities;
+    private final Path snapshotFile;
+
+    public RatingHistoryService(@Value("${rating-history.minute-buckets:60}") int minuteBuckets,
+                                @Value("${rating-history.hour-buckets:168}") int hourBuckets,
+                                @Value("${rating-history.day-buckets:180}") int dayBuckets,
+                                @Value("${storage.data-dir:data}") String dataDir,
+                                LeaderElectionService leaderElection) {
+        this.leaderElection = leaderElection;
+        this.capacities = new int[]{minuteBuckets, hourBuckets, dayBuckets};
+        this.snapshotFile = Path.of(dataDir, "rating-history.bin");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVote(VoteAppliedEvent event) {
+        historyOf(event.winnerId()).record(event.timestampMillis(), event.winnerRating());
+        historyOf(event.loserId()).record(event.timestampMillis(), event.loserRating());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonDeleted(PersonDeletedEvent event) {
+        histories.remove(event.personId());
+    }
+
+    public RatingHistoryResponse getHistory(long personId) {
+        RatingHistory history = histories.get(personId);
+        if (history == null) {
+            return new RatingHistoryResponse(personId, new long[0], new float[0]);
+        }
+        RatingHistory.Points points = history.points();
+        long[] timestamps = points.epochMinutes();
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] *= 60L;
+        }
+        return new RatingHistoryResponse(personId, timestamps, points.ratings());
+    }
+
+    private RatingHistory historyOf(long personId) {
+        return histories.computeIfAbsent(personId, id -> new RatingHistory(BUCKET_MINUTES, capacities));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Unknown rating history snapshot format, ignoring {}", snapshotFile);
+                return;
+            }
+            int[] storedCapacities = {in.readInt(), in.readInt(), in.readInt()};
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                // При других размерах буферов put() сам отбросит лишние старые точки
+                historyOf(in.readLong()).read(in);
+            }
+            if (!Arrays.equals(storedCapacities, capacities)) {
+                log.info("Rating history capacities changed from {} to {}",
+                        Arrays.toString(storedCapacities), Arrays.toString(capacities));
+            }
+            log.info("Loaded rating history for {} persons", count);
+        } catch (IOException e) {
+            log.error("Failed to load rating history snapshot: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rating-history.snapshot-interval-ms:300000}",
+            initialDelayString = "${rating-history.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        // Каталог данных общий для всех экземпляров - снимок пишет только лидер
+        if (histories.isEmpty() || !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            int written;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                for (int capacity : capacities) {
+                    out.writeInt(capacity);
+                }
+                // Снимок ключей: количество пишем заранее, поэтому фиксируем набор
+                Long[] ids = histories.keySet().toArray(new Long[0]);
+                RatingHistory empty = new RatingHistory(BUCKET_MINUTES, new int[]{1, 1, 1});
+                out.writeInt(ids.length);
+                for (Long id : ids) {
+                    out.writeLong(id);
+                    // Человека могли удалить во время записи - пишем пустую историю
+                    RatingHistory history = histories.get(id);
+                    (history != null ? history : empty).write(out);
+                }
+                written = ids.length;
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Rating history snapshot written: {} persons", written);
+        } catch (IOException e) {
+            log.error("Failed to write rating history snapshot: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.repositrory.PersonRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Publishes photo renditions as static files {@code {hash}_{width}x{height}.jpg} into a directory that Caddy
+ * serves directly, so photo bytes no longer pass through the JVM. The hash is the person's
+ * {@code photoHash}, hence a file never changes and is cached as immutable; responses carry its URL instead of
+ * inline base64. Sizes are snapped to a fixed ladder to keep the number of files bounded. Files are written
+ * through a temp file and an atomic rename; the leader deletes files no person refers to any more.
+ */
+@Service
+@Slf4j
+public class RenditionPublisher {
+
+    private static final Pattern FILE_NAME = Pattern.compile("([0-9a-f]+)_(\\d+)x(\\d+)\\.(jpg|png)");
+
+    private final PhotoCompressionService photoCompressionService;
+    private final PhotoRenditionCache renditionCache;
+    private final PersonRepository personRepository;
+    private final LeaderElectionService leaderElection;
+    private final boolean enabled;
+    private final Path dir;
+    private final String baseUrl;
+    private final List<int[]> sizes;
+    private final long gcGraceMs;
+    private final Counter publishedCounter;
+
+    // Имена файлов, которые точно есть на диске; файлы других экземпляров добавляются при первой проверке
+    private final Set<String> published = ConcurrentHashMap.newKeySet();
+
+    public RenditionPublisher(PhotoCompressionService photoCompressionService,
+                              PhotoRenditionCache renditionCache,
+                              PersonRepository personRepository,
+                              LeaderElectionService leaderElection,
+                              MeterRegistry meterRegistry,
+                              @Value("${renditions.publish.enabled:false}") boolean enabled,
+                              @Value("${renditions.publish.dir:renditions}") String dir,
+                              @Value("${renditions.publish.base-url:/renditions}") String baseUrl,
+                              @Value("${renditions.publish.sizes:144x144,400x400,1200x1200}") List<String> sizes,
+                              @Value("${renditions.publish.gc-grace-ms:3600000}") long gcGraceMs) throws IOException {
+        this.photoCompressionService = photoCompressionService;
+        this.renditionCache = renditionCache;
+        this.personRepository = personRepository;
+        this.leaderElection = leaderElection;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.sizes = parseSizes(sizes);
+        this.gcGraceMs = gcGraceMs;
+        this.publishedCounter = Counter.builder("renditions.published").register(meterRegistry);
+        if (enabled) {
+            Files.createDirectories(this.dir);
+            log.info("Publishing photo renditions {} to {} as {}", sizes, this.dir.toAbsolutePath(), this.baseUrl);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replaces inline photos with URLs of published renditions, publishing the missing ones first.
+     * Persons without a photo hash yet (not backfilled) or whose resize did not finish in time keep the
+     * inline photo, resized as before.
+     */
+    public void attachUrls(List<Person> persons, Integer width, Integer height) {
+        int[] size = ladderSize(width, height);
+        List<Person> missing = new ArrayList<>();
+        for (Person person : persons) {
+            if (person.getPhoto() == null) {
+                continue;
+            }
+            String name = publishedName(person.getPhotoHash(), size);
+            if (name != null) {
+                person.setPhotoUrl(url(name));
+                person.setPhoto(null);
+            } else {
+                missing.add(person);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        photoCompressionService.resizePersonPhotos(missing, size[0], size[1]);
+        for (Person person : missing) {
+            // В кэше размеров только удачные ресайзы - оригинал, отданный при перегрузке, не публикуем
+            String rendition = renditionCache.get(person.getId(), size[0], size[1]);
+            String name = person.getPhotoHash() != null && rendition != null
+                    ? publish(person.getPhotoHash(), size[0], size[1], rendition) : null;
+            if (name != null) {
+                person.setPhotoUrl(url(name));
+                person.setPhoto(null);
+            }
+        }
+    }
+
+    /**
+     * URL of an already published rendition of the given size (snapped to the ladder), or null.
+     * Does not touch the database or resize anything - used while the database is unavailable.
+     */
+    public String publishedUrl(String photoHash, Integer width, Integer height) {
+        if (!enabled) {
+            return null;
+        }
+        String name = publishedName(photoHash, ladderSize(width, height));
+        return name != null ? url(name) : null;
+    }
+
+    /**
+     * Writes a rendition if its size is on the ladder (ingest generates renditions of its own sizes).
+     *
+     * @return the file name, or null when not published
+     */
+    public String publish(String photoHash, int width, int height, String rendition) {
+        if (!enabled || photoHash == null || !onLadder(width, height)) {
+            return null;
+        }
+        ImageResizer.DataUri uri = ImageResizer.DataUri.parse(rendition);
+        String name = fileName(photoHash, new int[]{width, height}, uri.format);
+        if (published.contains(name)) {
+            return name;
+        }
+        Path target = dir.resolve(name);
+        // Временный файл в том же каталоге: rename атомарен, Caddy никогда не отдаст недописанный файл
+        Path temp = dir.resolve("." + name + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(temp, Base64.getDecoder().decode(rendition.substring(uri.payloadStart)));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            published.add(name);
+            publishedCounter.increment();
+            return name;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to publish rendition {}: {}", name, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Останется - удалит сборка мусора
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Deletes files of hashes no person has any more, of sizes removed from the ladder and abandoned temp
+     * files. Only files older than the grace period: a client may still hold the URL of a just-replaced photo.
+     */
+    @Scheduled(initialDelayString = "${renditions.publish.gc-interval-ms:3600000}",
+            fixedDelayString = "${renditions.publish.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        if (!enabled || !leaderElection.isLeader()) {
+            return;
+        }
+        Set<String> live;
+        try {
+            live = new HashSet<>(personRepository.findAllPhotoHashes());
+        } catch (DataAccessException e) {
+            log.warn("Skipping rendition cleanup, database unavailable: {}", e.getMessage());
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - gcGraceMs;
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = FILE_NAME.matcher(name);
+                boolean orphan = matcher.matches()
+                        ? !live.contains(matcher.group(1))
+                        || !onLadder(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)))
+                        : name.endsWith(".tmp");
+                if (orphan && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    published.remove(name);
+                    if (Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Rendition cleanup failed: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} orphaned rendition files", deleted);
+        }
+    }
+
+    // Загруженные фото всегда JPEG; PNG бывает только у старых фото из импорта
+    private String publishedName(String photoHash, int[] size) {
+        if (photoHash == null) {
+            return null;
+        }
+        for (String format : new String[]{"jpg", "png"}) {
+            String name = fileName(photoHash, size, format);
+            if (published.contains(name)) {
+                return name;
+            }
+            if (Files.exists(dir.resolve(name))) {
+                published.add(name);
+                return name;
+            }
+        }
+        return null;
+    }
+
+    // Наименьший размер лестницы, покрывающий запрошенный; без размера или больше всех - наибольший
+    int[] ladderSize(Integer width, Integer height) {
+        int[] largest = sizes.get(sizes.size() - 1);
+        if (width == null || height == null) {
+            return largest;
+        }
+        for (int[] size : sizes) {
+            if (size[0] >= width && size[1] >= height) {
+                return size;
+            }
+        }
+        return largest;
+    }
+
+    private boolean onLadder(int width, int height) {
+        for (int[] size : sizes) {
+            if (size[0] == width && size[1] == height) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String url(String name) {
+        return baseUrl + "/" + name;
+    }
+
+    private static String fileName(String photoHash, int[] size, String format) {
+        return photoHash + "_" + size[0] + "x" + size[1] + "." + format;
+    }
+
+    // "144x144,400x400" по возрастанию площади
+    private static List<int[]> parseSizes(List<String> sizes) {
+        List<int[]> result = new ArrayList<>();
+        for (String size : sizes) {
+            String[] parts = size.trim().toLowerCase().split("x");
+            if (parts.length == 2) {
+                result.add(new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())});
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("renditions.publish.sizes is empty");
+        }
+        result.sort(Comparator.comparingLong(size -> (long) size[0] * size[1]));
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.util.RotatingBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which duel pairs each Telegram user has recently been shown, so the same pair is not
+ * served again right away. Every active user gets one fixed-size {@link RotatingBloomFilter}; idle
+ * users are evicted and the total number of filters is capped by the {@link MemoryBudget} share.
+ */
+@Service
+@Slf4j
+public class SeenPairService implements MemoryBudget.Consumer {
+
+    // Примерный оверхед на запись в LinkedHashMap, объект фильтра и ключ
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final int bits;
+    private final int hashes;
+    private final int generationSize;
+    private final long idleTimeoutMs;
+    private final long bytesPerUser;
+    private int maxUsers = 1;
+    private final int maxRetries;
+
+    private final LinkedHashMap<Long, UserFilter> filters = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserFilter> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    public SeenPairService(@Value("${seen-pairs.bits-per-user:4096}") int bits,
+                           @Value("${seen-pairs.hashes:4}") int hashes,
+                           @Value("${seen-pairs.generation-size:200}") int generationSize,
+                           @Value("${seen-pairs.idle-timeout-ms:1800000}") long idleTimeoutMs,
+                           @Value("${seen-pairs.max-retries:3}") int maxRetries,
+                           @Value("${memory.share.seen-pairs:4}") int share,
+                           MemoryBudget memoryBudget) {
+        this.bits = bits;
+        this.hashes = hashes;
+        this.generationSize = generationSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.bytesPerUser = RotatingBloomFilter.sizeInBytes(bits) + ENTRY_OVERHEAD_BYTES;
+        memoryBudget.register("seenPairs", share, this);
+        log.info("Seen-pair filters: {} bytes per user, up to {} active users", bytesPerUser, maxUsers);
+    }
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return filters.size() * bytesPerUser;
+    }
+
+    @Override
+    public synchronized void setLimit(long limitBytes) {
+        maxUsers = (int) Math.max(1, Math.min(Integer.MAX_VALUE, limitBytes / bytesPerUser));
+        // removeEldestEntry срабатывает только на вставке - лишних убираем сразу
+        Iterator<UserFilter> eldest = filters.values().iterator();
+        while (filters.size() > maxUsers && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public synchronized boolean wasSeen(Long telegramId, long firstId, long secondId) {
+        if (telegramId == null) {
+            return false;
+        }
+        UserFilter filter = filters.get(telegramId);
+        if (filter == null) {
+            return false;
+        }
+        // get уже передвинул запись в хвост access-order - время должно идти вместе с ней, иначе evictIdle
+        // остановится на "свежей" по порядку, но старой по времени записи
+        filter.lastAccess = System.currentTimeMillis();
+        return filter.bloom.mightContain(pairKey(firstId, secondId));
+    }
+
+    public synchronized void markSeen(Long telegramId, long firstId, long secondId) {
+        if (telegramId == null) {
+            return;
+        }
+        UserFilter filter = filters.computeIfAbsent(telegramId,
+                id -> new UserFilter(new RotatingBloomFilter(bits, hashes, generationSize)));
+        filter.lastAccess = System.currentTimeMillis();
+        filter.bloom.put(pairKey(firstId, secondId));
+    }
+
+    public synchronized int activeUsers() {
+        return filters.size();
+    }
+
+    @Scheduled(fixedDelayString = "${seen-pairs.sweep-interval-ms:60000}")
+    public synchronized void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeoutMs;
+        // access-order: самые давние пользователи идут первыми
+        Iterator<UserFilter> iterator = filters.values().iterator();
+        while (iterator.hasNext() && iterator.next().lastAccess < threshold) {
+            iterator.remove();
+        }
+    }
+
+    // Пара не зависит от порядка показа
+    private static long pairKey(long firstId, long secondId) {
+        long min = Math.min(firstId, secondId);
+        long max = Math.max(firstId, secondId);
+        return (min << 32) ^ max;
+    }
+
+    private static class UserFilter {
+        final RotatingBloomFilter bloom;
+        long lastAccess;
+
+        UserFilter(RotatingBloomFilter bloom) {
+            this.bloom = bloom;
+        }
+    }
+}
@@ -2,11 +2,13 @@ package com.backend.hackathon.service;
 
 import com.backend.hackathon.entity.Person;
 import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.util.PhotoHash;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +18,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class StudentConverterService {
 
     private static final double DEFAULT_RATING = 1000.0;
@@ -28,7 +31,17 @@ public class StudentConverterService {
     private EntityManager entityManager;
 
     @Transactional
-    public List<Person> convertAndSaveStudents(InputStream studentsJsonStream, InputStream dataJsonStream) {
+    public List<Person> convertAndSaveStudents(String eventCode, InputStream studentsJsonStream, InputStream dataJsonStream) {
+        // Сохраняем пакетами
+        return saveInBatches(convert(eventCode, studentsJsonStream, dataJsonStream));
+    }
+
+    /**
+     * Parses students.json and the VK results into persons of the event, with the import key and content hash
+     * set but nothing saved. Without a VK id the key is the name plus the class; namesakes in one class
+     * (or found as the same VK account) get "#2", "#3"... appended in file order.
+     */
+    public List<Person> convert(String eventCode, InputStream studentsJsonStream, InputStream dataJsonStream) {
         try {
             ObjectMapper objectMapper = new ObjectMapper();
             objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -43,19 +56,33 @@ public class StudentConverterService {
                     objectMapper.getTypeFactory().constructCollectionType(List.class, VkData.class)
             );
 
-            Map<String, String> classByFullName = studentDataList.stream()
-                    .collect(Collectors.toMap(StudentData::getName, StudentData::getSchoolClass));
+            // У тёзок несколько классов: n-я запись VK с этим именем получает n-й класс из students.json
+            Map<String, List<String>> classesByFullName = studentDataList.stream()
+                    .collect(Collectors.groupingBy(StudentData::getName, Collectors.mapping(StudentData::getSchoolClass,
+                            Collectors.toList())));
+            Map<String, Integer> nameOccurrences = new HashMap<>();
 
             List<Person> allPersons = new ArrayList<>();
+            Map<String, Integer> keyOccurrences = new HashMap<>();
             for (VkData vkData : vkDataList) {
-                Person person = convertToPerson(vkData, classByFullName);
+                int nameOccurrence = nameOccurrences.merge(vkData.getOriginalName(), 1, Integer::sum);
+                Person person = convertToPerson(vkData, classOf(classesByFullName.get(vkData.getOriginalName()), nameOccurrence));
                 if (person != null) {
+                    person.setEventCode(eventCode);
+                    String key = StudentSyncService.sourceKey(vkData.getVkId(), vkData.getOriginalName(),
+                            person.getSchoolClass());
+                    int occurrence = keyOccurrences.merge(key, 1, Integer::sum);
+                    if (occurrence > 1) {
+                        log.info("Record {} repeats key {}, keeping it as #{}", vkData.getOriginalName(), key, occurrence);
+                        key = key + "#" + occurrence;
+                    }
+                    person.setSourceKey(key);
+                    person.setPhotoHash(PersonServiceImpl.isRealPhoto(person.getPhoto()) ? PhotoHash.of(person.getPhoto()) : null);
+                    person.setContentHash(StudentSyncService.contentHash(person));
                     allPersons.add(person);
                 }
             }
-
-            // Сохраняем пакетами
-            return saveInBatches(allPersons);
+            return allPersons;
 
         } catch (Exception e) {
             throw new RuntimeException("Error converting and saving students data", e);
@@ -69,7 +96,7 @@ public class StudentConverterService {
             int end = Math.min(persons.size(), i + BATCH_SIZE);
             List<Person> batch = persons.subList(i, end);
 
-            System.out.println("Saving batch " + (i/BATCH_SIZE + 1) + ", records: " + batch.size());
+            log.debug("Saving batch {}, records: {}", i / BATCH_SIZE + 1, batch.size());
 
             List<Person> savedBatch = personRepository.saveAll(batch);
             savedPersons.addAll(savedBatch);
@@ -86,18 +113,18 @@ public class StudentConverterService {
             }
         }
 
-        System.out.println("Total saved: " + savedPersons.size());
+        log.info("Total saved: {}", savedPersons.size());
         return savedPersons;
     }
 
-    @Transactional
-    public void clearAndSaveStudents(InputStream studentsJsonStream, InputStream dataJsonStream) {
-        // Очищаем таблицу перед сохранением новых данных
-        personRepository.deleteAll();
-        convertAndSaveStudents(studentsJsonStream, dataJsonStream);
+    private static String classOf(List<String> classes, int occurrence) {
+        if (classes == null || classes.isEmpty()) {
+            return null;
+        }
+        return classes.get(Math.min(occurrence, classes.size()) - 1);
     }
 
-    private Person convertToPerson(VkData vkData, Map<String, String> classByFullName) {
+    private Person convertToPerson(VkData vkData, String schoolClass) {
         Person person = new Person();
 
         // Разбиваем original_name на имя и фамилию
@@ -110,8 +137,7 @@ public class StudentConverterService {
             person.setSurname("");
         }
 
-        // Ищем класс по полному имени в students.json
-        String schoolClass = classByFullName.get(vkData.getOriginalName());
+        // Класс найден по полному имени в students.json
         if (schoolClass != null) {
             person.setSchoolClass(schoolClass);
         } else {
@@ -191,5 +217,9 @@ public class StudentConverterService {
         public String getAvatarBase64() {
             return avatarBase64;
         }
+
+        public String getVkId() {
+            return vkId;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonSyncState;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Idempotent roster import: brings the persons of one event in line with the import files instead of
+ * deleting and re-inserting them. Records are matched by a stable key (VK id, otherwise the normalized full
+ * name and class) and compared by a hash of the imported fields and photo. New records are inserted, changed ones are
+ * updated in place (the photo LOB only when its hash differs), missing ones are soft-deleted; ratings are
+ * never touched. Changes are applied in short transactions of {@code import.batch-size} rows, and in-memory
+ * indexes get per-person events, so an unchanged re-import costs parsing and hashing only.
+ */
+@Service
+@Slf4j
+public class StudentSyncService {
+
+    private static final int HASH_BYTES = 16;
+    private static final String NAME_KEY_PREFIX = "name:";
+
+    public record SyncReport(String eventCode, int inserted, int updated, int deleted, int unchanged, long elapsedMs) {
+    }
+
+    public record Update(long id, Person person, boolean photoChanged) {
+    }
+
+    public record SyncPlan(List<Person> inserts, List<Update> updates, List<Long> deletes, int unchanged) {
+    }
+
+    private final StudentConverterService converterService;
+    private final PersonRepository personRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+
+    public StudentSyncService(StudentConverterService converterService, PersonRepository personRepository,
+                              ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                              @Value("${import.batch-size:100}") int batchSize) {
+        this.converterService = converterService;
+        this.personRepository = personRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    // Два импорта одного события параллельно не имеют смысла; между экземплярами дубли не пустит уникальный ключ
+    public synchronized SyncReport sync(String eventCode, InputStream studentsJsonStream, InputStream dataJsonStream) {
+        long started = System.nanoTime();
+        List<Person> incoming = converterService.convert(eventCode, studentsJsonStream, dataJsonStream);
+        SyncPlan plan = plan(incoming, personRepository.findSyncStates(eventCode));
+
+        for (List<Person> batch : batches(plan.inserts())) {
+            transaction.executeWithoutResult(status -> insert(batch));
+        }
+        for (List<Update> batch : batches(plan.updates())) {
+            transaction.executeWithoutResult(status -> update(batch));
+        }
+        long deletedAt = System.currentTimeMillis();
+        for (List<Long> batch : batches(plan.deletes())) {
+            transaction.executeWithoutResult(status -> softDelete(batch, deletedAt));
+        }
+
+        SyncReport report = new SyncReport(eventCode, plan.inserts().size(), plan.updates().size(),
+                plan.deletes().size(), plan.unchanged(), (System.nanoTime() - started) / 1_000_000);
+        log.info("Roster sync of {}: {} inserted, {} updated, {} deleted, {} unchanged in {} ms", eventCode,
+                report.inserted(), report.updated(), report.deleted(), report.unchanged(), report.elapsedMs());
+        return report;
+    }
+
+    // Слушатели (индексы, кэши) получают события после коммита пакета
+    private void insert(List<Person> batch) {
+        for (Person person : batch) {
+            person.setRating(1000);
+            person.setVersion(0);
+        }
+        for (Person saved : personRepository.saveAll(batch)) {
+            eventPublisher.publishEvent(new PersonSavedEvent(
+                    PersonMetadata.of(saved, PersonServiceImpl.isRealPhoto(saved.getPhoto())), true));
+        }
+    }
+
+    private void update(List<Update> batch) {
+        for (Update update : batch) {
+            Person person = update.person();
+            personRepository.syncFields(update.id(), person.getSourceKey(), person.getContentHash(), person.getName(),
+                    person.getSurname(), person.getSchoolClass(), person.getMale());
+            if (update.photoChanged()) {
+                personRepository.syncPhoto(update.id(), person.getPhoto(), person.getPhotoHash());
+            }
+        }
+        for (Update update : batch) {
+            PersonMetadata metadata = personRepository.findMetadataById(update.id());
+            if (metadata != null) {
+                eventPublisher.publishEvent(new PersonSavedEvent(metadata, update.photoChanged()));
+            }
+        }
+    }
+
+    private void softDelete(List<Long> batch, long deletedAt) {
+        personRepository.softDelete(batch, deletedAt);
+        for (Long id : batch) {
+            eventPublisher.publishEvent(new PersonDeletedEvent(id));
+        }
+    }
+
+    private <T> List<List<T>> batches(List<T> items) {
+        List<List<T>> result = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += batchSize) {
+            result.add(items.subList(i, Math.min(items.size(), i + batchSize)));
+        }
+        return result;
+    }
+
+    /**
+     * Compares the imported persons with the current state of their event. Keys are matched first; a record
+     * left without a match then adopts a live row of the same full name that has no key or a name key and was
+     * not matched itself (namesakes in id order). That keeps the rating of a row imported before keys existed,
+     * or under an older name key, and of a person without a VK id who moved to another class.
+     * A soft-deleted row that appears again is restored.
+     */
+    public static SyncPlan plan(List<Person> incoming, List<PersonSyncState> existing) {
+        Map<String, PersonSyncState> byKey = new HashMap<>();
+        for (PersonSyncState state : existing) {
+            if (state.getSourceKey() != null) {
+                byKey.put(state.getSourceKey(), state);
+            }
+        }
+        // Сначала точные совпадения ключей, чтобы подбор по имени не забрал чужую строку
+        PersonSyncState[] states = new PersonSyncState[incoming.size()];
+        Set<Long> matched = new HashSet<>();
+        for (int i = 0; i < states.length; i++) {
+            states[i] = byKey.get(incoming.get(i).getSourceKey());
+            if (states[i] != null) {
+                matched.add(states[i].getId());
+            }
+        }
+        Map<String, Deque<PersonSyncState>> byName = new HashMap<>();
+        for (PersonSyncState state : existing) {
+            if (state.getDeletedAt() == null && !matched.contains(state.getId())
+                    && (state.getSourceKey() == null || state.getSourceKey().startsWith(NAME_KEY_PREFIX))) {
+                byName.computeIfAbsent(nameKey(state.getSurname() + " " + state.getName()),
+                        name -> new ArrayDeque<>()).add(state);
+            }
+        }
+
+        List<Person> inserts = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        int unchanged = 0;
+        for (int i = 0; i < states.length; i++) {
+            Person person = incoming.get(i);
+            PersonSyncState state = states[i];
+            if (state == null) {
+                Deque<PersonSyncState> namesakes = byName.get(nameKey(person.getSurname() + " " + person.getName()));
+                state = namesakes == null ? null : namesakes.poll();
+            }
+            if (state == null) {
+                inserts.add(person);
+                continue;
+            }
+            matched.add(state.getId());
+            if (state.getDeletedAt() == null && person.getContentHash().equals(state.getContentHash())) {
+                unchanged++;
+            } else {
+                updates.add(new Update(state.getId(), person,
+                        !Objects.equals(state.getPhotoHash(), person.getPhotoHash())));
+            }
+        }
+
+        // Выгрузка - полный состав события: кого в ней нет, тот выбывает (вместе с добавленными вручную)
+        List<Long> deletes = new ArrayList<>();
+        for (PersonSyncState state : existing) {
+            if (state.getDeletedAt() == null && !matched.contains(state.getId())) {
+                deletes.add(state.getId());
+            }
+        }
+        return new SyncPlan(inserts, updates, deletes, unchanged);
+    }
+
+    /**
+     * "vk:&lt;id&gt;" when the VK id is known, otherwise "name:&lt;normalized full name&gt;|&lt;class&gt;":
+     * the class tells namesakes apart regardless of their order in the files.
+     */
+    public static String sourceKey(String vkId, String fullName, String schoolClass) {
+        if (vkId != null && !vkId.isBlank()) {
+            return "vk:" + vkId.trim();
+        }
+        return NAME_KEY_PREFIX + nameKey(fullName) + "|" + nameKey(schoolClass);
+    }
+
+    // Нижний регистр, ё → е, пробелы схлопнуты: "Петрова  Алёна" и "петрова алена" - один человек
+    static String nameKey(String fullName) {
+        if (fullName == null) {
+            return "";
+        }
+        return String.join(" ", fullName.trim().toLowerCase(Locale.ROOT).replace('ё', 'е').split("\\s+"));
+    }
+
+    /**
+     * First 128 bits of SHA-256 over the imported fields and the photo hash, as hex. The rating is not part of
+     * it: it belongs to the voting, not to the import.
+     */
+    public static String contentHash(Person person) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : new String[]{person.getName(), person.getSurname(), person.getSchoolClass(),
+                    person.getMale(), person.getPhotoHash()}) {
+                // Длина перед значением: ("ab", "c") и ("a", "bc") дают разные хэши; -1 - null
+                byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+                int length = field == null ? -1 : bytes.length;
+                digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
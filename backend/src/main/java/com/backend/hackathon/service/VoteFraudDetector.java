@@ -0,0 +1,173 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.util.HeavyHitters;
+import com.backend.hackathon.util.SlidingCountMinSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming vote-burst detector on the vote path. Two sliding-window count-min sketches count votes per
+ * (voter, winner) and per winner in fixed memory; a vote whose count goes over its threshold is flagged
+ * and goes to quarantine instead of being applied. The heaviest keys of both are tracked for the admin
+ * report. Per vote: two sketch updates of {@code depth} counters and two heavy-hitter offers.
+ * <p>
+ * Counts are per instance. Caddy pins a user to one instance, so (voter, winner) counts are complete.
+ * A winner is flagged only above both the absolute threshold and {@code winner-share} of all votes the
+ * instance counted in the window: on a busy event a popular person collects many honest votes, but not
+ * a large part of every vote cast.
+ */
+@Component
+@Slf4j
+public class VoteFraudDetector {
+
+    public enum Reason {
+        VOTER_WINNER_BURST, WINNER_BURST
+    }
+
+    public record Verdict(Reason reason, int votes, int threshold) {
+    }
+
+    public record VoterWinnerCount(String voter, long winnerId, int votes) {
+    }
+
+    public record WinnerCount(long winnerId, int votes) {
+    }
+
+    public record Report(boolean enabled, long windowMs, int voterWinnerThreshold, int winnerThreshold,
+                         double winnerShare, int windowVotes, List<VoterWinnerCount> topVoterWinners,
+                         List<WinnerCount> topWinners) {
+    }
+
+    private final boolean enabled;
+    private final int voterWinnerThreshold;
+    private final int winnerThreshold;
+    private final double winnerShare;
+    private final SlidingCountMinSketch voterWinners;
+    private final SlidingCountMinSketch winners;
+    // Все голоса окна: один ключ, поэтому счёт точный
+    private final SlidingCountMinSketch allVotes;
+    private final HeavyHitters topVoterWinners;
+    private final HeavyHitters topWinners;
+    private final Counter inspected;
+    private final Counter flaggedVoterWinner;
+    private final Counter flaggedWinner;
+
+    public VoteFraudDetector(@Value("${vote-fraud.enabled:true}") boolean enabled,
+                             @Value("${vote-fraud.window-ms:600000}") long windowMs,
+                             @Value("${vote-fraud.buckets:10}") int buckets,
+                             @Value("${vote-fraud.sketch-width:2048}") int width,
+                             @Value("${vote-fraud.sketch-depth:4}") int depth,
+                             @Value("${vote-fraud.voter-winner-threshold:30}") int voterWinnerThreshold,
+                             @Value("${vote-fraud.winner-threshold:600}") int winnerThreshold,
+                             @Value("${vote-fraud.winner-share:0.2}") double winnerShare,
+                             @Value("${vote-fraud.top-size:20}") int topSize,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.voterWinnerThreshold = voterWinnerThreshold;
+        this.winnerThreshold = winnerThreshold;
+        this.winnerShare = winnerShare;
+        this.voterWinners = new SlidingCountMinSketch(width, depth, buckets, windowMs);
+        this.winners = new SlidingCountMinSketch(width, depth, buckets, windowMs);
+        this.allVotes = new SlidingCountMinSketch(16, 1, buckets, windowMs);
+        this.topVoterWinners = new HeavyHitters(topSize, voterWinners.getWindowMs());
+        this.topWinners = new HeavyHitters(topSize, winners.getWindowMs());
+        this.inspected = Counter.builder("votes.inspected").register(meterRegistry);
+        this.flaggedVoterWinner = Counter.builder("votes.flagged").tag("reason", "voter_winner").register(meterRegistry);
+        this.flaggedWinner = Counter.builder("votes.flagged").tag("reason", "winner").register(meterRegistry);
+        if (enabled) {
+            log.info("Vote fraud detector: {} KB of sketches, window {} ms",
+                    2 * SlidingCountMinSketch.sizeInBytes(width, depth, buckets) / 1024, voterWinners.getWindowMs());
+        }
+    }
+
+    /**
+     * Telegram user id, or the client address when the request carries none.
+     */
+    public static long voterKey(Long telegramId, String clientIp) {
+        if (telegramId != null) {
+            return telegramId;
+        }
+        // Адреса - в отрицательной половине, чтобы не пересекаться с id Telegram
+        return Long.MIN_VALUE | (clientIp == null ? 0 : clientIp.hashCode() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Client address without the port: Caddy's {remote} is host:port, and the port changes per connection.
+     */
+    public static String clientHost(String remote) {
+        if (remote == null) {
+            return null;
+        }
+        if (remote.startsWith("[")) {
+            int end = remote.indexOf(']');
+            return end > 0 ? remote.substring(1, end) : remote;
+        }
+        int colon = remote.indexOf(':');
+        // Больше одного двоеточия - IPv6 без скобок и без порта
+        return colon > 0 && colon == remote.lastIndexOf(':') ? remote.substring(0, colon) : remote;
+    }
+
+    public static String voterLabel(Long telegramId, String clientIp) {
+        return telegramId != null ? "tg:" + telegramId : "ip:" + clientIp;
+    }
+
+    /**
+     * Counts the vote and checks it against the thresholds.
+     *
+     * @return null if the vote looks normal, otherwise why it was flagged
+     */
+    public Verdict inspect(long voterKey, String voterLabel, long winnerId) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long pairKey = voterKey * 0x9E3779B97F4A7C15L + winnerId;
+        int pairVotes;
+        int winnerVotes;
+        int totalVotes;
+        synchronized (this) {
+            pairVotes = voterWinners.add(pairKey, now);
+            winnerVotes = winners.add(winnerId, now);
+            totalVotes = allVotes.add(0, now);
+            // Метка нужна только для адресов: id Telegram восстанавливается из ключа
+            topVoterWinners.offer(pairKey, voterKey, winnerId, voterKey < 0 ? voterLabel : null, pairVotes, now);
+            topWinners.offer(winnerId, winnerId, 0, null, winnerVotes, now);
+        }
+        inspected.increment();
+        if (pairVotes > voterWinnerThreshold) {
+            flaggedVoterWinner.increment();
+            return new Verdict(Reason.VOTER_WINNER_BURST, pairVotes, voterWinnerThreshold);
+        }
+        if (winnerVotes > winnerThreshold && winnerVotes > winnerShare * totalVotes) {
+            flaggedWinner.increment();
+            return new Verdict(Reason.WINNER_BURST, winnerVotes, winnerThreshold);
+        }
+        return null;
+    }
+
+    public synchronized Report report() {
+        long now = System.currentTimeMillis();
+        List<VoterWinnerCount> pairs = new ArrayList<>();
+        for (HeavyHitters.Entry entry : topVoterWinners.top(now)) {
+            String voter = entry.label() != null ? entry.label() : "tg:" + entry.first();
+            pairs.add(new VoterWinnerCount(voter, entry.second(), voterWinners.estimate(entry.key(), now)));
+        }
+        List<WinnerCount> winnerCounts = new ArrayList<>();
+        for (HeavyHitters.Entry entry : topWinners.top(now)) {
+            winnerCounts.add(new WinnerCount(entry.first(), winners.estimate(entry.key(), now)));
+        }
+        // Оценка по текущему окну: записи топа могли устареть
+        pairs.removeIf(pair -> pair.votes() == 0);
+        winnerCounts.removeIf(winner -> winner.votes() == 0);
+        pairs.sort((a, b) -> Integer.compare(b.votes(), a.votes()));
+        winnerCounts.sort((a, b) -> Integer.compare(b.votes(), a.votes()));
+        return new Report(enabled, voterWinners.getWindowMs(), voterWinnerThreshold, winnerThreshold, winnerShare,
+                allVotes.estimate(0, now), pairs, winnerCounts);
+    }
+}
@@ -0,0 +1,43 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.VoteLogEntry;
+import com.backend.hackathon.repositrory.VoteLogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Appends every vote to the vote_log table in the voting transaction, so the log never disagrees
+ * with the ratings. Called by the vote itself, so replays of other instances' votes are not logged twice.
+ */
+@Service
+public class VoteLogService {
+
+    private final VoteLogRepository voteLogRepository;
+    private final boolean enabled;
+
+    public VoteLogService(VoteLogRepository voteLogRepository,
+                          @Value("${votes.log-enabled:true}") boolean enabled) {
+        this.voteLogRepository = voteLogRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the id of the new vote_log row, 0 when the log is disabled
+     */
+    public long append(long winnerId, long loserId, double winnerRating, double loserRating, double delta,
+                       long timestampMillis, String eventCode) {
+        if (!enabled) {
+            return 0;
+        }
+        VoteLogEntry entry = new VoteLogEntry();
+        entry.setWinnerId(winnerId);
+        entry.setLoserId(loserId);
+        entry.setWinnerRating(winnerRating);
+        entry.setLoserRating(loserRating);
+        entry.setDelta(delta);
+        entry.setCreatedAt(timestampMillis);
+        entry.setEventCode(eventCode);
+        // id нужен событию голоса: по нему счётчики пар знают, до какой записи журнала они дошли
+        return voteLogRepository.save(entry).getId();
+    }
+}
@@ -0,0 +1,88 @@
+package com.backend.hackathon.service;
+
+import com.backend.hackathon.entity.QuarantinedVote;
+import com.backend.hackathon.repositrory.QuarantinedVoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Votes flagged by {@link VoteFraudDetector} wait in the vote_quarantine table until an admin releases
+ * (applies) or discards them.
+ */
+@Service
+@Slf4j
+public class VoteQuarantineService {
+
+    private final QuarantinedVoteRepository repository;
+    private final PersonService personService;
+    private final DatabaseCircuitBreaker databaseBreaker;
+    private final Counter dropped;
+
+    public VoteQuarantineService(QuarantinedVoteRepository repository, PersonService personService,
+                                 DatabaseCircuitBreaker databaseBreaker, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.personService = personService;
+        this.databaseBreaker = databaseBreaker;
+        this.dropped = Counter.builder("votes.quarantine.dropped").register(meterRegistry);
+    }
+
+    public void quarantine(long winnerId, long loserId, String voter, VoteFraudDetector.Verdict verdict) {
+        QuarantinedVote vote = new QuarantinedVote();
+        vote.setWinnerId(winnerId);
+        vote.setLoserId(loserId);
+        vote.setVoter(voter);
+        vote.setReason(verdict.reason().name());
+        vote.setVotes(verdict.votes());
+        vote.setCreatedAt(System.currentTimeMillis());
+        // Подозрительный голос не стоит места в локальном файле голосов: без базы он просто отбрасывается
+        boolean saved = databaseBreaker.call(() -> {
+            repository.save(vote);
+            return true;
+        }, () -> false);
+        if (!saved) {
+            dropped.increment();
+            log.warn("Database unavailable, dropping quarantined vote {} > {} from {}", winnerId, loserId, voter);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<QuarantinedVote> recent() {
+        return repository.findTop100ByOrderByIdDesc();
+    }
+
+    @Transactional(readOnly = true)
+    public long count() {
+        return repository.count();
+    }
+
+    /**
+     * Applies the vote now (with the current ratings) and removes it from quarantine.
+     *
+     * @return false if there is no such quarantined vote
+     */
+    @Transactional
+    public boolean release(long id) {
+        QuarantinedVote vote = repository.findById(id).orElse(null);
+        if (vote == null) {
+            return false;
+        }
+        personService.duoVote(vote.getWinnerId(), vote.getLoserId());
+        repository.delete(vote);
+        log.info("Released quarantined vote {}: {} > {} from {}", id, vote.getWinnerId(), vote.getLoserId(), vote.getVoter());
+        return true;
+    }
+
+    @Transactional
+    public boolean discard(long id) {
+        if (!repository.existsById(id)) {
+            return false;
+        }
+        repository.deleteById(id);
+        return true;
+    }
+}
@@ -0,0 +1,283 @@
+package com.backend.hackathon.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Local durable queue of votes taken while the database is unavailable. Fixed-size records
+ * (winner, loser, time, CRC32) are appended and fsynced; the scheduled replay applies them in order
+ * once the database answers again and keeps its position in a side file, so after a restart only the
+ * vote that was in flight can be applied twice. Disk use is capped by vote-spill.max-bytes.
+ * <p>
+ * Every instance holds an exclusive lock on its own file. A {@code vote-spill-*.bin} file next to it that
+ * nobody holds belongs to an instance that is gone (a recreated container gets a new hostname), so its
+ * pending votes are moved into this file and replayed here.
+ */
+@Component
+@Slf4j
+public class VoteSpillLog {
+
+    private static final int RECORD_BYTES = 3 * Long.BYTES + Integer.BYTES;
+    private static final String ORPHAN_GLOB = "vote-spill-*.bin";
+    private static final int LOCK_ATTEMPTS = 50;
+
+    private final Path file;
+    private final Path offsetFile;
+    private final long maxBytes;
+    private final PersonService personService;
+    private final DatabaseCircuitBreaker databaseBreaker;
+
+    private FileChannel channel;
+    private long size;
+    private long replayed;
+
+    // Файл на каждый экземпляр (HOSTNAME контейнера): каталог данных общий, свой файл экземпляр держит под блокировкой,
+    // файлы без блокировки (экземпляр пересоздан или упал) забирает себе любой живой
+    public VoteSpillLog(@Value("${vote-spill.file:${storage.data-dir:data}/vote-spill-${HOSTNAME:local}.bin}") String file,
+                        @Value("${vote-spill.max-bytes:16777216}") long maxBytes,
+                        PersonService personService,
+                        DatabaseCircuitBreaker databaseBreaker,
+                        MeterRegistry meterRegistry) throws IOException {
+        this.file = Path.of(file);
+        this.offsetFile = this.file.resolveSibling(this.file.getFileName() + ".offset");
+        this.maxBytes = maxBytes;
+        this.personService = personService;
+        this.databaseBreaker = databaseBreaker;
+        open();
+        Gauge.builder("votes.spill.pending", this, VoteSpillLog::pending)
+                .description("Votes waiting in the local spill file")
+                .register(meterRegistry);
+    }
+
+    private synchronized void open() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = lockOwnFile();
+        // Оборванная при падении последняя запись отбрасывается
+        size = channel.size() - channel.size() % RECORD_BYTES;
+        channel.truncate(size);
+        replayed = Math.min(size, readOffset(offsetFile));
+        if (pending() > 0) {
+            log.warn("{} spilled votes are waiting for replay in {}", pending(), file);
+        }
+    }
+
+    // Чужой экземпляр может держать файл, пока забирает его как брошенный, и затем удалить - тогда файл создаётся заново
+    private FileChannel lockOwnFile() throws IOException {
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+            FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (opened.tryLock() != null && Files.exists(file)) {
+                return opened;
+            }
+            opened.close();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while locking " + file, e);
+            }
+        }
+        throw new IOException("Spill file " + file + " is locked by another instance");
+    }
+
+    /**
+     * Moves the pending votes of spill files left by instances that are gone into this file.
+     * A crash between the copy and the removal of the old file replays the copied votes twice.
+     */
+    public void adoptOrphans() {
+        Path dir = file.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, ORPHAN_GLOB)) {
+            for (Path orphan : files) {
+                if (!orphan.getFileName().equals(file.getFileName())) {
+                    adopt(orphan);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to look for orphaned spill files in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void adopt(Path orphan) throws IOException {
+        try (FileChannel orphanChannel = FileChannel.open(orphan, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Блокировку держит живой владелец
+            if (orphanChannel.tryLock() == null) {
+                return;
+            }
+            Path orphanOffset = orphan.resolveSibling(orphan.getFileName() + ".offset");
+            long orphanSize = orphanChannel.size() - orphanChannel.size() % RECORD_BYTES;
+            long from = Math.min(orphanSize, readOffset(orphanOffset));
+            ByteBuffer records = ByteBuffer.allocate(Math.toIntExact(orphanSize - from));
+            while (records.hasRemaining()) {
+                if (orphanChannel.read(records, from + records.position()) < 0) {
+                    throw new IOException("Unexpected end of spill file");
+                }
+            }
+            records.flip();
+            int count = records.remaining() / RECORD_BYTES;
+            if (count > 0 && !appendRecords(records)) {
+                log.warn("No room to adopt {} spilled votes from {}, will retry", count, orphan);
+                return;
+            }
+            // Удаление под блокировкой: владелец с тем же именем дождётся её и создаст файл заново
+            Files.deleteIfExists(orphanOffset);
+            Files.delete(orphan);
+            if (count > 0) {
+                log.warn("Adopted {} spilled votes from {}", count, orphan);
+            }
+        } catch (OverlappingFileLockException e) {
+            // Файл открыт в этой же JVM
+        }
+    }
+
+    // Записи уже с CRC - копируются как есть
+    private synchronized boolean appendRecords(ByteBuffer records) throws IOException {
+        if (size + records.remaining() > maxBytes) {
+            return false;
+        }
+        long position = size;
+        while (records.hasRemaining()) {
+            position += channel.write(records, position);
+        }
+        channel.force(false);
+        size = position;
+        return true;
+    }
+
+    public synchronized long pending() {
+        return (size - replayed) / RECORD_BYTES;
+    }
+
+    public synchronized boolean hasPending() {
+        return size > replayed;
+    }
+
+    /**
+     * Durably appends a vote.
+     *
+     * @return false when the spill file is full or cannot be written
+     */
+    public synchronized boolean append(long winnerId, long loserId, long timestampMillis) {
+        if (size + RECORD_BYTES > maxBytes) {
+            return false;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(winnerId).putLong(loserId).putLong(timestampMillis);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, 3 * Long.BYTES);
+        record.putInt((int) crc.getValue()).flip();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record, size + record.position());
+            }
+            channel.force(false);
+            size += RECORD_BYTES;
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to spill vote {} > {}: {}", winnerId, loserId, e.getMessage());
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${vote-spill.replay-interval-ms:2000}")
+    public void replay() {
+        adoptOrphans();
+        if (!hasPending() || !databaseBreaker.allowRequest()) {
+            return;
+        }
+        int applied = 0;
+        try {
+            while (true) {
+                long[] vote = readNext();
+                if (vote == null) {
+                    break;
+                }
+                try {
+                    personService.duoVote(vote[0], vote[1]);
+                    applied++;
+                } catch (RuntimeException e) {
+                    if (DatabaseCircuitBreaker.isUnavailable(e)) {
+                        databaseBreaker.recordFailure(e);
+                        return;
+                    }
+                    // Человека удалили, пока база была недоступна - голос пропускаем
+                    log.warn("Dropping spilled vote {} > {}: {}", vote[0], vote[1], e.getMessage());
+                }
+                databaseBreaker.recordSuccess();
+                advance();
+            }
+        } catch (IOException e) {
+            log.error("Failed to replay spilled votes: {}", e.getMessage());
+        } finally {
+            if (applied > 0) {
+                log.info("Replayed {} spilled votes, {} pending", applied, pending());
+            }
+        }
+    }
+
+    // null - всё воспроизведено; тогда файл очищается, пока новые голоса ждут на мониторе
+    private synchronized long[] readNext() throws IOException {
+        while (replayed < size) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            while (record.hasRemaining()) {
+                if (channel.read(record, replayed + record.position()) < 0) {
+                    throw new IOException("Unexpected end of spill file");
+                }
+            }
+            record.flip();
+            long winnerId = record.getLong();
+            long loserId = record.getLong();
+            // Время голоса хранится для разбора инцидентов; применяется голос временем воспроизведения
+            long timestamp = record.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, 3 * Long.BYTES);
+            if ((int) crc.getValue() == record.getInt()) {
+                return new long[]{winnerId, loserId, timestamp};
+            }
+            log.error("Corrupted spilled vote at offset {}, skipping it", replayed);
+            advance();
+        }
+        channel.truncate(0);
+        channel.force(false);
+        size = 0;
+        replayed = 0;
+        Files.deleteIfExists(offsetFile);
+        return null;
+    }
+
+    // Позиция пишется через временный файл: оборванная запись не должна откатить её к началу
+    private synchronized void advance() throws IOException {
+        replayed += RECORD_BYTES;
+        Path temp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        Files.write(temp, ByteBuffer.allocate(Long.BYTES).putLong(replayed).array());
+        Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long readOffset(Path offsetFile) throws IOException {
+        if (!Files.exists(offsetFile)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(offsetFile);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
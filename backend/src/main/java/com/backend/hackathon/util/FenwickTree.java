@@ -0,0 +1,118 @@
+package com.backend.hackathon.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fenwick (binary indexed) tree over non-negative double weights.
+ * Point updates, prefix sums and weighted sampling all run in O(log n).
+ * Capacity grows by doubling when a slot past the end is written.
+ */
+public class FenwickTree {
+
+    private double[] weights;
+    private double[] tree; // 1-based
+
+    public FenwickTree(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.weights = new double[capacity];
+        this.tree = new double[capacity + 1];
+    }
+
+    public int capacity() {
+        return weights.length;
+    }
+
+    public double get(int index) {
+        return index < weights.length ? weights[index] : 0.0;
+    }
+
+    public void set(int index, double weight) {
+        if (weight < 0 || Double.isNaN(weight)) {
+            throw new IllegalArgumentException("Weight must be non-negative: " + weight);
+        }
+        if (index >= weights.length) {
+            grow(index + 1);
+        }
+        double delta = weight - weights[index];
+        weights[index] = weight;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of weights in slots [0, count).
+     */
+    public double prefixSum(int count) {
+        double sum = 0.0;
+        for (int i = Math.min(count, weights.length); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    public double total() {
+        return prefixSum(weights.length);
+    }
+
+    /**
+     * Returns the slot whose cumulative weight range contains {@code target},
+     * i.e. the smallest index with prefixSum(index + 1) > target.
+     */
+    public int find(double target) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+        return Math.min(pos, weights.length - 1);
+    }
+
+    /**
+     * Picks a slot with probability proportional to its weight, or -1 if all weights are zero.
+     */
+    public int sample(Random random) {
+        double total = total();
+        if (total <= 0) {
+            return -1;
+        }
+        // Накопленная погрешность double может указать на пустой слот - пробуем ещё раз
+        for (int attempt = 0; attempt < 3; attempt++) {
+            int index = find(random.nextDouble() * total);
+            if (weights[index] > 0) {
+                return index;
+            }
+        }
+        rebuild();
+        int index = find(random.nextDouble() * total());
+        return weights[index] > 0 ? index : -1;
+    }
+
+    /**
+     * Recomputes the internal sums from the raw weights in O(n), dropping accumulated rounding drift.
+     */
+    public void rebuild() {
+        Arrays.fill(tree, 0.0);
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = weights.length;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        weights = Arrays.copyOf(weights, capacity);
+        tree = new double[capacity + 1];
+        rebuild();
+    }
+}
@@ -0,0 +1,78 @@
+package com.backend.hackathon.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code capacity} keys with the highest windowed counts seen so far, fed with estimates from a
+ * {@link SlidingCountMinSketch}. A key not seen for a whole window counts as zero and is the first to be
+ * replaced. Each key carries two longs and a label of payload (e.g. voter and winner), so the report can
+ * name them.
+ * Offering a key that does not make it into the top costs one comparison. Not thread-safe.
+ */
+public class HeavyHitters {
+
+    public record Entry(long key, long first, long second, String label, int count, long lastSeenMillis) {
+    }
+
+    private final int capacity;
+    private final long windowMs;
+    private final Map<Long, Entry> entries;
+    // Наименьший счётчик в топе на момент minCountAt. Записи устаревают со временем,
+    // поэтому через восьмую часть окна значение перестаёт учитываться и offer пересчитывает его
+    private int minCount;
+    private long minCountAt;
+
+    public HeavyHitters(int capacity, long windowMs) {
+        this.capacity = capacity;
+        this.windowMs = windowMs;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(long key, long first, long second, String label, int count, long nowMillis) {
+        if (entries.size() < capacity || entries.containsKey(key)) {
+            entries.put(key, new Entry(key, first, second, label, count, nowMillis));
+            return;
+        }
+        if (count <= minCount && nowMillis - minCountAt < windowMs / 8) {
+            return;
+        }
+        Entry weakest = null;
+        for (Entry candidate : entries.values()) {
+            if (weakest == null || effectiveCount(candidate, nowMillis) < effectiveCount(weakest, nowMillis)) {
+                weakest = candidate;
+            }
+        }
+        if (count > effectiveCount(weakest, nowMillis)) {
+            entries.remove(weakest.key());
+            entries.put(key, new Entry(key, first, second, label, count, nowMillis));
+        }
+        int min = Integer.MAX_VALUE;
+        for (Entry candidate : entries.values()) {
+            min = Math.min(min, effectiveCount(candidate, nowMillis));
+        }
+        minCount = min;
+        minCountAt = nowMillis;
+    }
+
+    /**
+     * Entries still within the window, highest count first.
+     */
+    public List<Entry> top(long nowMillis) {
+        List<Entry> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (effectiveCount(entry, nowMillis) > 0) {
+                result.add(entry);
+            }
+        }
+        result.sort(Comparator.comparingInt(Entry::count).reversed());
+        return result;
+    }
+
+    private int effectiveCount(Entry entry, long nowMillis) {
+        return nowMillis - entry.lastSeenMillis() > windowMs ? 0 : entry.count();
+    }
+}
@@ -0,0 +1,226 @@
+package com.backend.hackathon.util;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Head-to-head win counts for every pair of persons that has met in a duel. The pair is packed into one
+ * long, (smaller id << 32) | larger id, and kept in open-addressing tables with linear probing: a long[] of
+ * keys and an int[] with two counters per slot (wins of the smaller id, wins of the larger id). That is
+ * 16 bytes per slot, no object per pair. The key space is split into power-of-two stripes, each with its
+ * own table and monitor, so concurrent votes rarely contend. Ids must fit in 32 bits.
+ */
+public class PairWinCounter {
+
+    private static final long EMPTY = 0;
+    private static final float MAX_LOAD = 0.7f;
+
+    /**
+     * Receives pairs during {@link #forEach}: the packed key and the wins of its smaller and larger id.
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(long key, int lowWins, int highWins);
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public PairWinCounter(int stripeCount, int initialCapacity) {
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+        this.stripes = new Stripe[stripeCount];
+        int perStripe = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity / stripeCount)) * 2);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    public static long pairKey(long firstId, long secondId) {
+        long min = Math.min(firstId, secondId);
+        long max = Math.max(firstId, secondId);
+        if (min <= 0 || max > 0xFFFFFFFFL || min == max) {
+            throw new IllegalArgumentException("Cannot pack pair " + firstId + ", " + secondId);
+        }
+        return (min << 32) | max;
+    }
+
+    public static long lowId(long key) {
+        return key >>> 32;
+    }
+
+    public static long highId(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+
+    public void recordWin(long winnerId, long loserId) {
+        add(pairKey(winnerId, loserId), winnerId < loserId ? 1 : 0, winnerId < loserId ? 0 : 1);
+    }
+
+    /**
+     * Adds to the counters of a packed pair; used when loading a snapshot.
+     */
+    public void add(long key, int lowWins, int highWins) {
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        synchronized (stripe) {
+            stripe.add(key, hash, lowWins, highWins);
+        }
+    }
+
+    /**
+     * How many times {@code winnerId} has beaten {@code loserId}.
+     */
+    public int wins(long winnerId, long loserId) {
+        long key = pairKey(winnerId, loserId);
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                return 0;
+            }
+            return stripe.wins[2 * slot + (winnerId < loserId ? 0 : 1)];
+        }
+    }
+
+    /**
+     * Drops every pair the person is part of. Rebuilds the tables, so meant for rare deletions.
+     */
+    public void removePerson(long personId) {
+        removePersons(id -> id == personId);
+    }
+
+    /**
+     * Drops every pair with at least one person matching {@code removed}.
+     */
+    public void removePersons(LongPredicate removed) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.removeIf(removed);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.reset(16);
+            }
+        }
+    }
+
+    /**
+     * Visits all pairs, one stripe at a time; pairs updated meanwhile in other stripes may or may not be seen.
+     */
+    public void forEach(PairVisitor visitor) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int slot = 0; slot < stripe.keys.length; slot++) {
+                    long key = stripe.keys[slot];
+                    if (key != EMPTY) {
+                        visitor.visit(key, stripe.wins[2 * slot], stripe.wins[2 * slot + 1]);
+                    }
+                }
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += (long) stripe.keys.length * (Long.BYTES + 2 * Integer.BYTES);
+            }
+        }
+        return bytes;
+    }
+
+    // splitmix64 finalizer, как в RotatingBloomFilter
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Stripe {
+        long[] keys;
+        int[] wins;
+        int size;
+
+        Stripe(int capacity) {
+            reset(capacity);
+        }
+
+        void reset(int capacity) {
+            keys = new long[capacity];
+            wins = new int[2 * capacity];
+            size = 0;
+        }
+
+        // Младшие биты хэша - позиция в таблице, старшие - номер полосы
+        int find(long key, long hash) {
+            int mask = keys.length - 1;
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void add(long key, long hash, int lowWins, int highWins) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != key && keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                if (size + 1 > keys.length * MAX_LOAD) {
+                    grow(keys.length * 2, null);
+                    add(key, hash, lowWins, highWins);
+                    return;
+                }
+                keys[slot] = key;
+                size++;
+            }
+            wins[2 * slot] += lowWins;
+            wins[2 * slot + 1] += highWins;
+        }
+
+        void removeIf(LongPredicate removed) {
+            for (long key : keys) {
+                if (key != EMPTY && (removed.test(lowId(key)) || removed.test(highId(key)))) {
+                    grow(keys.length, removed);
+                    return;
+                }
+            }
+        }
+
+        // Перестройка в таблицу нужного размера, без пар с удалёнными (removed == null - без исключений)
+        void grow(int capacity, LongPredicate removed) {
+            long[] oldKeys = keys;
+            int[] oldWins = wins;
+            reset(capacity);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                long key = oldKeys[slot];
+                if (key != EMPTY && (removed == null || !removed.test(lowId(key)) && !removed.test(highId(key)))) {
+                    add(key, mix(key), oldWins[2 * slot], oldWins[2 * slot + 1]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.backend.hackathon.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hash of a stored photo: the first 128 bits of SHA-256 over the photo string, as hex.
+ * Names the published rendition files, so a new photo always gets a new URL.
+ */
+public final class PhotoHash {
+
+    private static final int HASH_BYTES = 16;
+
+    private PhotoHash() {
+    }
+
+    /**
+     * @return 32 hex chars, or null for a missing photo
+     */
+    public static String of(String photo) {
+        if (photo == null || photo.isEmpty()) {
+            return null;
+        }
+        try {
+            // Фото хранится как base64/data URI - ASCII, поэтому кодировка однозначна
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(photo.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest, 0, HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.backend.hackathon.util;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over long keys that remembers only recent insertions. Two generations of the same
+ * size are kept: once the current one has taken {@code generationSize} keys it becomes the previous
+ * one and a fresh generation starts, so old keys age out and memory stays fixed.
+ */
+public class RotatingBloomFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final int generationSize;
+    private long[] current;
+    private long[] previous;
+    private int insertedInCurrent;
+
+    public RotatingBloomFilter(int bits, int hashes, int generationSize) {
+        if (bits < 64 || hashes < 1 || generationSize < 1) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters");
+        }
+        this.bits = bits;
+        this.hashes = hashes;
+        this.generationSize = generationSize;
+        this.current = new long[(bits + 63) / 64];
+        this.previous = new long[current.length];
+    }
+
+    /**
+     * Bytes held by the bit arrays of one filter with the given size.
+     */
+    public static long sizeInBytes(int bits) {
+        return 2L * ((bits + 63) / 64) * Long.BYTES;
+    }
+
+    public boolean mightContain(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        return contains(current, hash1, hash2) || contains(previous, hash1, hash2);
+    }
+
+    public void put(long key) {
+        if (insertedInCurrent >= generationSize) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            insertedInCurrent = 0;
+        }
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) Long.remainderUnsigned(hash1 + i * hash2, bits);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        insertedInCurrent++;
+    }
+
+    private boolean contains(long[] words, long hash1, long hash2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) Long.remainderUnsigned(hash1 + i * hash2, bits);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,109 @@
+package com.backend.hackathon.util;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch over long keys that counts only the last {@code windowMs}. The window is split into
+ * {@code buckets} intervals, each with its own counters, plus a running total of all of them; when an
+ * interval expires its counters are subtracted from the total. Adding and estimating cost {@code depth}
+ * counter updates regardless of traffic, memory is fixed. Estimates never undercount; they overcount by at
+ * most about {@code e / width} of the votes in the window with probability {@code 1 - e^-depth}.
+ * The window is approximate: it covers between {@code buckets - 1} and {@code buckets} whole intervals.
+ * Not thread-safe.
+ */
+public class SlidingCountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final int buckets;
+    private final long bucketMs;
+    private final int[][] bucketCounters;
+    private final int[] total;
+    // Номер текущего интервала (время / bucketMs)
+    private long currentBucket = Long.MIN_VALUE;
+
+    public SlidingCountMinSketch(int width, int depth, int buckets, long windowMs) {
+        if (width < 16 || depth < 1 || buckets < 2 || windowMs < buckets) {
+            throw new IllegalArgumentException("Invalid count-min sketch parameters");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.buckets = buckets;
+        this.bucketMs = windowMs / buckets;
+        this.bucketCounters = new int[buckets][width * depth];
+        this.total = new int[width * depth];
+    }
+
+    /**
+     * Bytes held by the counters of one sketch with the given parameters.
+     */
+    public static long sizeInBytes(int width, int depth, int buckets) {
+        return (buckets + 1L) * width * depth * Integer.BYTES;
+    }
+
+    /**
+     * Counts one occurrence of {@code key} and returns its estimated count in the window, this one included.
+     */
+    public int add(long key, long nowMillis) {
+        advance(nowMillis);
+        int[] current = bucketCounters[(int) Math.floorMod(currentBucket, (long) buckets)];
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + (int) Long.remainderUnsigned(hash1 + row * hash2, width);
+            current[index]++;
+            min = Math.min(min, ++total[index]);
+        }
+        return min;
+    }
+
+    public int estimate(long key, long nowMillis) {
+        advance(nowMillis);
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, total[row * width + (int) Long.remainderUnsigned(hash1 + row * hash2, width)]);
+        }
+        return min;
+    }
+
+    public long getWindowMs() {
+        return bucketMs * buckets;
+    }
+
+    private void advance(long nowMillis) {
+        long bucket = nowMillis / bucketMs;
+        if (currentBucket == Long.MIN_VALUE) {
+            currentBucket = bucket;
+            return;
+        }
+        if (bucket <= currentBucket) {
+            return;
+        }
+        if (bucket - currentBucket >= buckets) {
+            // Голосов не было дольше окна - всё устарело разом
+            for (int[] counters : bucketCounters) {
+                Arrays.fill(counters, 0);
+            }
+            Arrays.fill(total, 0);
+        } else {
+            for (long expired = currentBucket + 1; expired <= bucket; expired++) {
+                int[] counters = bucketCounters[(int) Math.floorMod(expired, (long) buckets)];
+                for (int i = 0; i < counters.length; i++) {
+                    total[i] -= counters[i];
+                }
+                Arrays.fill(counters, 0);
+            }
+        }
+        currentBucket = bucket;
+    }
+
+    // splitmix64 finalizer, как в RotatingBloomFilter
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,55 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.entity.ChangeFeedEntry;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.repositrory.ChangeFeedRepository;
+import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.service.ChangeFeedService;
+import com.backend.hackathon.service.LeaderElectionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ChangeFeedServiceTest {
+
+    private final ChangeFeedRepository feedRepository = mock(ChangeFeedRepository.class);
+    private final LeaderElectionService leaderElection = mock(LeaderElectionService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    void shouldApplyEntryCommittedAfterHigherIdsWereRead() {
+        when(leaderElection.getInstanceId()).thenReturn("me");
+        ChangeFeedService feed = new ChangeFeedService(feedRepository, mock(PersonRepository.class), leaderElection,
+                eventPublisher, true, 60_000, 600_000);
+        feed.onStartup();
+
+        // Запись 2 вставлена раньше 3, но закоммичена позже
+        when(feedRepository.findTop500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(deleted(1, 10), deleted(3, 30)));
+        feed.poll();
+        verify(eventPublisher).publishEvent(new PersonDeletedEvent(10));
+        verify(eventPublisher).publishEvent(new PersonDeletedEvent(30));
+
+        when(feedRepository.findByIdInOrderByIdAsc(Set.of(2L))).thenReturn(List.of(deleted(2, 20)));
+        feed.poll();
+        verify(eventPublisher).publishEvent(new PersonDeletedEvent(20));
+
+        // Дождались - больше не спрашиваем
+        feed.poll();
+        verify(feedRepository, times(1)).findByIdInOrderByIdAsc(anyCollection());
+        verify(feedRepository, times(3)).findTop500ByIdGreaterThanOrderByIdAsc(anyLong());
+    }
+
+    private static ChangeFeedEntry deleted(long id, long personId) {
+        ChangeFeedEntry entry = new ChangeFeedEntry();
+        entry.setId(id);
+        entry.setOrigin("other");
+        entry.setKind(ChangeFeedEntry.PERSON_DELETED);
+        entry.setPersonId(personId);
+        return entry;
+    }
+}
@@ -0,0 +1,39 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.util.FenwickTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenwickTreeTest {
+
+    @Test
+    void shouldKeepPrefixSumsWhileGrowing() {
+        FenwickTree tree = new FenwickTree(2);
+        for (int i = 0; i < 10; i++) {
+            tree.set(i, i);
+        }
+
+        assertEquals(45.0, tree.total(), 1e-9);
+        assertEquals(6.0, tree.prefixSum(4), 1e-9);
+        assertEquals(3, tree.find(5.5));
+    }
+
+    @Test
+    void shouldNeverSampleZeroWeightSlots() {
+        FenwickTree tree = new FenwickTree(8);
+        tree.set(1, 1.0);
+        tree.set(5, 3.0);
+
+        Random random = new Random(42);
+        int[] counts = new int[8];
+        for (int i = 0; i < 4000; i++) {
+            counts[tree.sample(random)]++;
+        }
+
+        assertEquals(4000, counts[1] + counts[5]);
+        assertTrue(counts[5] > counts[1] * 2);
+    }
+}
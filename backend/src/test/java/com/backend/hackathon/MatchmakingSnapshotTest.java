@@ -0,0 +1,107 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.service.Candidate;
+import com.backend.hackathon.service.MatchmakingSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchmakingSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRoundTripCandidates() throws Exception {
+        Candidate anna = candidate(1, "default", "female", 10, true, 1512.5, 3);
+        anna.exposure = 7;
+        Candidate oleg = candidate(2, "school-2", "male", 9, false, 1488, 1);
+        // Пол не указан - в словаре хранится null
+        Candidate unknown = candidate(3, "default", null, 0, true, 1500, 0);
+        Path file = dir.resolve("snapshots").resolve("matchmaking.bin");
+
+        MatchmakingSnapshot written = MatchmakingSnapshot.capture(List.of(anna, oleg, unknown));
+        written.write(file);
+        MatchmakingSnapshot read = MatchmakingSnapshot.read(file);
+
+        assertEquals(written.createdAtMillis, read.createdAtMillis);
+        assertEquals(3, read.size());
+        Map<Long, Candidate> candidates = read.toCandidates();
+        assertEquals(3, candidates.size());
+        assertCandidate(anna, candidates.get(1L));
+        assertCandidate(oleg, candidates.get(2L));
+        assertCandidate(unknown, candidates.get(3L));
+        assertFalse(Files.exists(file.resolveSibling("matchmaking.bin.tmp")));
+    }
+
+    @Test
+    void shouldRoundTripEmptySnapshot() throws Exception {
+        Path file = dir.resolve("matchmaking.bin");
+        MatchmakingSnapshot.capture(List.of()).write(file);
+
+        assertEquals(0, MatchmakingSnapshot.read(file).size());
+    }
+
+    @Test
+    void shouldRejectCorruptedSnapshot() throws Exception {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+        // Портим байт в середине колонок - заголовок цел, расхождение ловит только контрольная сумма
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> MatchmakingSnapshot.read(file));
+        assertEquals("Snapshot checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshot() throws Exception {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> MatchmakingSnapshot.read(file));
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        IOException e = assertThrows(IOException.class, () -> MatchmakingSnapshot.read(file));
+        assertEquals("Snapshot is truncated", e.getMessage());
+    }
+
+    @Test
+    void shouldRejectMissingSnapshot() {
+        assertThrows(IOException.class, () -> MatchmakingSnapshot.read(dir.resolve("absent.bin")));
+    }
+
+    private Path written() throws IOException {
+        Path file = dir.resolve("matchmaking.bin");
+        MatchmakingSnapshot.capture(List.of(
+                candidate(1, "default", "female", 10, true, 1512.5, 3),
+                candidate(2, "default", "male", 9, false, 1488, 1))).write(file);
+        return file;
+    }
+
+    private static Candidate candidate(long id, String eventCode, String male, int grade, boolean hasPhoto,
+                                       double rating, long version) {
+        return new Candidate(id, eventCode, male, grade, hasPhoto, rating, version);
+    }
+
+    private static void assertCandidate(Candidate expected, Candidate actual) {
+        assertNotNull(actual);
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.eventCode, actual.eventCode);
+        assertEquals(expected.male, actual.male);
+        assertEquals(expected.grade, actual.grade);
+        assertEquals(expected.hasPhoto, actual.hasPhoto);
+        assertEquals(expected.rating, actual.rating);
+        assertEquals(expected.version, actual.version);
+        assertEquals(expected.exposure, actual.exposure);
+    }
+}
@@ -0,0 +1,85 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.TGBot.BotConfig;
+import com.backend.hackathon.TGBot.OutboundMessageQueue;
+import com.backend.hackathon.TGBot.TelegramApiClient;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Очередь против локальной заглушки Bot API: первый запрос получает 429
+public class OutboundMessageQueueTest {
+
+    private HttpServer stub;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch delivered = new CountDownLatch(1);
+    private OutboundMessageQueue queue;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/", exchange -> {
+            requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String response;
+            int status;
+            if (calls.incrementAndGet() == 1) {
+                status = 429;
+                response = "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 1\","
+                        + "\"parameters\":{\"retry_after\":1}}";
+            } else {
+                status = 200;
+                response = "{\"ok\":true,\"result\":{\"message_id\":1,\"date\":0,\"chat\":{\"id\":42,\"type\":\"private\"}}}";
+                delivered.countDown();
+            }
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+
+        BotConfig botConfig = new BotConfig();
+        botConfig.setToken("TEST");
+        botConfig.setApiUrl("http://127.0.0.1:" + stub.getAddress().getPort() + "/bot");
+        queue = new OutboundMessageQueue(new TelegramApiClient(botConfig), new SimpleMeterRegistry(),
+                25, 1, 3, 2, 100, 5, 20);
+    }
+
+    @AfterEach
+    void stopStub() {
+        queue.stop();
+        stub.stop(0);
+    }
+
+    @Test
+    void shouldBatchNotificationsAndRetryAfter429() throws InterruptedException {
+        queue.notify(42, "first");
+        queue.notify(42, "second");
+        queue.notify(42, "third");
+        queue.start();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, requests.size());
+        String body = requests.get(1);
+        assertTrue(body.contains("first\\n\\nsecond\\n\\nthird"), body);
+        assertTrue(body.contains("\"chat_id\":\"42\""), body);
+        assertEquals(requests.get(0), requests.get(1));
+    }
+}
@@ -0,0 +1,148 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.entity.VoteLogEntry;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.repositrory.VoteLogRepository;
+import com.backend.hackathon.service.LeaderElectionService;
+import com.backend.hackathon.service.PairStatsService;
+import com.backend.hackathon.util.PairWinCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PairStatsServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final VoteLogRepository voteLogRepository = mock(VoteLogRepository.class);
+    private final LeaderElectionService leaderElection = mock(LeaderElectionService.class);
+
+    @Test
+    void shouldCountWinsPerSideAndSurviveGrowth() {
+        PairWinCounter counter = new PairWinCounter(4, 16);
+        for (long id = 2; id < 2000; id++) {
+            counter.recordWin(1, id);
+            counter.recordWin(id, 1);
+            counter.recordWin(id, 1);
+        }
+        assertEquals(1998, counter.size());
+        assertEquals(1, counter.wins(1, 1500));
+        assertEquals(2, counter.wins(1500, 1));
+        assertEquals(0, counter.wins(1500, 1501));
+
+        counter.removePerson(1500);
+        assertEquals(1997, counter.size());
+        assertEquals(0, counter.wins(1500, 1));
+        assertEquals(2, counter.wins(1499, 1));
+    }
+
+    @Test
+    void shouldRestoreFromSnapshotAndReplayLaterVotes() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        PairStatsService stats = service();
+        vote(stats, 1, 1, 2);
+        vote(stats, 2, 1, 2);
+        vote(stats, 3, 2, 1);
+        vote(stats, 4, 3, 1);
+        stats.writeSnapshot();
+        assertTrue(Files.exists(dir.resolve("pair-stats.bin")));
+
+        // После снимка в журнале появился ещё один голос
+        when(voteLogRepository.findMaxId()).thenReturn(5L);
+        when(voteLogRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(eq(4L), eq(5L), any()))
+                .thenReturn(List.of(logEntry(5, 1, 3)));
+        PairStatsService restored = service();
+        restored.onStartup();
+
+        PairStatsService.PairStats pair = restored.pair(2, 1);
+        assertEquals(1, pair.firstWins());
+        assertEquals(2, pair.secondWins());
+        List<PairStatsService.Rival> rivals = restored.rivals(1, 10);
+        assertEquals(List.of(new PairStatsService.Rival(2, 2, 1), new PairStatsService.Rival(3, 1, 1)), rivals);
+
+        restored.onPersonDeleted(new PersonDeletedEvent(2));
+        assertEquals(List.of(new PairStatsService.Rival(3, 1, 1)), restored.rivals(1, 10));
+    }
+
+    @Test
+    void shouldRoundTripSnapshotWithLastAppliedVote() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        PairStatsService stats = service();
+        long voteLogId = 0;
+        for (long id = 2; id <= 1000; id++) {
+            vote(stats, ++voteLogId, 1, id);
+            vote(stats, ++voteLogId, id, id + 1);
+        }
+        // Голос, применённый раньше голоса с меньшим id (коммиты идут не по порядку id)
+        vote(stats, 5000, 7, 1);
+        vote(stats, ++voteLogId, 8, 1);
+        // Журнал уже дальше счётчиков - в снимок должен попасть id последнего применённого голоса, а не максимум журнала
+        when(voteLogRepository.findMaxId()).thenReturn(6000L);
+        stats.writeSnapshot();
+
+        when(voteLogRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(eq(5000L), eq(6000L), any()))
+                .thenReturn(List.of(logEntry(5001, 2000, 3000)));
+        PairStatsService restored = service();
+        restored.onStartup();
+
+        verify(voteLogRepository).findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(eq(5000L), eq(6000L), any());
+        assertEquals(stats.size() + 1, restored.size());
+        for (long id = 2; id <= 1000; id++) {
+            assertEquals(stats.pair(1, id), restored.pair(1, id));
+            assertEquals(stats.pair(id, id + 1), restored.pair(id, id + 1));
+        }
+        assertEquals(1, restored.pair(2000, 3000).firstWins());
+    }
+
+    @Test
+    void shouldDropPairsOfPersonsDeletedInOneBatch() {
+        PairStatsService stats = service();
+        for (long id = 2; id <= 5; id++) {
+            vote(stats, id, 1, id);
+        }
+        // Синхронизация импорта удаляет пачкой - пары снимаются при следующем чтении
+        stats.onPersonDeleted(new PersonDeletedEvent(2));
+        stats.onPersonDeleted(new PersonDeletedEvent(3));
+        stats.onPersonDeleted(new PersonDeletedEvent(4));
+        assertEquals(List.of(new PairStatsService.Rival(5, 1, 0)), stats.rivals(1, 10));
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void shouldReplayWholeLogWithoutSnapshot() throws Exception {
+        Files.write(dir.resolve("pair-stats.bin"), new byte[]{1, 2, 3});
+        when(voteLogRepository.findMaxId()).thenReturn(2L);
+        when(voteLogRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(eq(0L), eq(2L), any()))
+                .thenReturn(List.of(logEntry(1, 5, 6), logEntry(2, 5, 6)));
+        PairStatsService stats = service();
+        stats.onStartup();
+        assertEquals(2, stats.pair(5, 6).firstWins());
+    }
+
+    private PairStatsService service() {
+        return new PairStatsService(4, 64, 100, dir.toString(), voteLogRepository, mock(PersonRepository.class),
+                leaderElection);
+    }
+
+    private static void vote(PairStatsService stats, long voteLogId, long winnerId, long loserId) {
+        stats.onVote(new VoteAppliedEvent(winnerId, loserId, 1000, 1000, 16, 0, "default", voteLogId));
+    }
+
+    private static VoteLogEntry logEntry(long id, long winnerId, long loserId) {
+        VoteLogEntry entry = new VoteLogEntry();
+        entry.setId(id);
+        entry.setWinnerId(winnerId);
+        entry.setLoserId(loserId);
+        return entry;
+    }
+}
@@ -0,0 +1,62 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.service.PersonSearchIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonSearchIndexTest {
+
+    private final PersonSearchIndex index = new PersonSearchIndex(null);
+
+    @Test
+    void shouldMatchPrefixesIgnoringCaseAndYo() {
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(1, "Алёна", "Петрова", "10Б", 1000.0, "female", false, 0, null, null, null, "default"), true));
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(2, "Алексей", "Федоров", "11А", 1100.0, "male", false, 0, null, null, null, "default"), true));
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(3, "Пётр", "Алексеев", "10А", 900.0, "male", false, 0, null, null, null, "default"), true));
+
+        assertEquals(List.of(1L), ids(index.search("default", "АЛЕН", 10)));
+        // Точное совпадение выше префикса, имя выше класса, при равенстве - выше рейтинг
+        assertEquals(List.of(3L, 1L), ids(index.search("default", "петр 10", 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("default", "алекс", 10)));
+        assertEquals(List.of(1L), ids(index.search("default", "10б", 10)));
+    }
+
+    @Test
+    void shouldSearchWithinOneEvent() {
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(1, "Мария", "Иванова", "9А", 1000.0, "female", false, 0, null, null, null, "default"), true));
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(2, "Мария", "Орлова", "9А", 1000.0, "female", false, 0, null, null, null, "lyceum-2"), true));
+
+        assertEquals(List.of(1L), ids(index.search("default", "мария", 10)));
+        assertEquals(List.of(2L), ids(index.search("lyceum-2", "мария", 10)));
+        assertTrue(index.search("lyceum-3", "мария", 10).isEmpty());
+        // Список события без базы - для рейтинга, пока брейкер открыт
+        assertEquals(List.of(2L), ids(index.list("lyceum-2")));
+
+        index.onPersonDeleted(new PersonDeletedEvent(2));
+        assertTrue(index.search("lyceum-2", "мария", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void shouldUpdateIncrementally() {
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(1, "Иван", "Смирнов", "9А", 1000.0, "male", false, 0, null, null, null, "default"), true));
+        index.onPersonSaved(new PersonSavedEvent(new PersonMetadata(1, "Иван", "Кузнецов", "9А", 1000.0, "male", false, 0, null, null, null, "default"), true));
+
+        assertTrue(index.search("default", "смир", 10).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("default", "кузн", 10)));
+
+        index.onPersonDeleted(new PersonDeletedEvent(1));
+        assertTrue(index.search("default", "иван", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    private static List<Long> ids(List<PersonMetadata> persons) {
+        return persons.stream().map(PersonMetadata::getId).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.entity.PersonMetadata;
+import com.backend.hackathon.entity.PersonProfile;
+import com.backend.hackathon.entity.PersonRatingVersion;
+import com.backend.hackathon.event.PersonDeletedEvent;
+import com.backend.hackathon.event.PersonSavedEvent;
+import com.backend.hackathon.event.VoteAppliedEvent;
+import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.service.PersonStatsService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PersonStatsServiceTest {
+
+    private final PersonStatsService stats = new PersonStatsService(null, 0, 100, 20);
+
+    @Test
+    void shouldKeepAggregatesInSyncWithVotes() {
+        save(1, "10-1", "male", 1000);
+        save(2, "10-1", "female", 1100);
+        save(3, "11-2", "male", 1100);
+
+        List<PersonStatsService.GroupSummary> classes = stats.classes("default");
+        assertEquals("11-2", classes.get(0).key());
+        assertEquals(1100, classes.get(0).mean(), 1e-9);
+        assertEquals(1050, classes.get(1).mean(), 1e-9);
+
+        stats.onVote(new VoteAppliedEvent(2, 1, 1116, 984, 16, 0, "default", 1));
+        PersonStatsService.GroupStats tenth = stats.schoolClass("default", "10-1", 10);
+        assertEquals(2, tenth.count());
+        assertEquals(2100, tenth.sum(), 1e-9);
+        assertEquals(List.of(2L, 1L), tenth.top().stream().map(PersonStatsService.RankedPerson::id).toList());
+        assertEquals(1116, tenth.maxRating(), 1e-9);
+        assertEquals(1, tenth.histogram()[9]);
+        assertEquals(1, tenth.histogram()[11]);
+
+        PersonStatsService.GroupStats males = stats.gender("default", "male", 1);
+        assertEquals(2, males.count());
+        assertEquals(List.of(3L), males.top().stream().map(PersonStatsService.RankedPerson::id).toList());
+    }
+
+    @Test
+    void shouldApplyConcurrentVotesInAnyOrder() {
+        save(1, "10-1", "male", 1000);
+        save(2, "10-1", "female", 1000);
+
+        // Второй голос ждал блокировку строки первого, но его слушатель отработал раньше
+        stats.onVote(new VoteAppliedEvent(1, 2, 1020, 980, 10, 2, "default", 2));
+        stats.onVote(new VoteAppliedEvent(1, 2, 1010, 990, 10, 1, "default", 1));
+
+        List<PersonStatsService.RankedPerson> top = stats.overall("default", 2).top();
+        assertEquals(1020, top.get(0).rating(), 1e-9);
+        assertEquals(980, top.get(1).rating(), 1e-9);
+        assertEquals(2000, stats.overall("default", 2).sum(), 1e-9);
+    }
+
+    @Test
+    void shouldMoveBetweenClassesAndForgetDeleted() {
+        save(1, "9-1", "male", 1000);
+        save(2, "9-2", "male", 900);
+
+        save(1, "9-2", "male", 1000);
+        assertNull(stats.schoolClass("default", "9-1", 10));
+        assertEquals(2, stats.schoolClass("default", "9-2", 10).count());
+        assertEquals(1, stats.classes("default").size());
+
+        stats.onPersonDeleted(new PersonDeletedEvent(2));
+        PersonStatsService.GroupStats ninth = stats.schoolClass("default", "9-2", 10);
+        assertEquals(1, ninth.count());
+        assertEquals(1000, ninth.mean(), 1e-9);
+        assertEquals(1, stats.overall("default", 10).count());
+        // Рейтинг за пределами гистограммы - в крайней корзине
+        save(3, "9-2", "female", 5000);
+        assertEquals(1, stats.overall("default", 10).histogram()[19]);
+    }
+
+    @Test
+    void shouldKeepEventsApart() {
+        save(1, "10-1", "male", 1000);
+        save(2, "lyceum-2", "10-1", "male", 1200);
+
+        assertEquals(1000, stats.schoolClass("default", "10-1", 10).mean(), 1e-9);
+        assertEquals(1200, stats.schoolClass("lyceum-2", "10-1", 10).mean(), 1e-9);
+        assertEquals(1, stats.overall("lyceum-2", 10).count());
+        assertEquals(0, stats.overall("lyceum-3", 10).count());
+
+        stats.onPersonDeleted(new PersonDeletedEvent(2));
+        assertTrue(stats.classes("lyceum-2").isEmpty());
+        assertEquals(1, stats.classes("default").size());
+    }
+
+    @Test
+    void shouldRebuildWithoutPhotosOnlyWhenRowsOrRatingsDiffer() {
+        PersonRepository repository = mock(PersonRepository.class);
+        PersonStatsService resynced = new PersonStatsService(repository, 0, 100, 20);
+        resynced.onPersonSaved(new PersonSavedEvent(new PersonMetadata(1, "Имя", "Фамилия", "10-1", 1000, "male",
+                false, 0, null, null, null, "default"), false));
+
+        when(repository.findAllRatingVersions()).thenReturn(List.of(new PersonRatingVersion(1, 1000, 0)));
+        resynced.resync();
+        verify(repository, never()).findAllProfiles();
+
+        // Строку залили в базу мимо приложения
+        when(repository.findAllRatingVersions()).thenReturn(List.of(new PersonRatingVersion(1, 1000, 0),
+                new PersonRatingVersion(2, 1200, 0)));
+        when(repository.findAllProfiles()).thenReturn(List.of(
+                new PersonProfile(1, "Имя", "Фамилия", "10-1", "male", 1000, "default"),
+                new PersonProfile(2, "Имя", "Фамилия", "10-1", "female", 1200, "default")));
+        resynced.resync();
+        assertEquals(2, resynced.overall("default", 10).count());
+        verify(repository, never()).findAllMetadata();
+
+        // Рейтинг в памяти разошёлся с базой - тот же набор id, но перестройка всё равно нужна
+        when(repository.findAllRatingVersions()).thenReturn(List.of(new PersonRatingVersion(1, 1010, 0),
+                new PersonRatingVersion(2, 1190, 0)));
+        when(repository.findAllProfiles()).thenReturn(List.of(
+                new PersonProfile(1, "Имя", "Фамилия", "10-1", "male", 1010, "default"),
+                new PersonProfile(2, "Имя", "Фамилия", "10-1", "female", 1190, "default")));
+        resynced.resync();
+        verify(repository, times(2)).findAllProfiles();
+        assertEquals(1190, resynced.overall("default", 10).maxRating(), 1e-9);
+    }
+
+    private void save(long id, String schoolClass, String male, double rating) {
+        save(id, "default", schoolClass, male, rating);
+    }
+
+    private void save(long id, String eventCode, String schoolClass, String male, double rating) {
+        stats.onPersonSaved(new PersonSavedEvent(new PersonMetadata(id, "Имя", "Фамилия", schoolClass, rating, male,
+                false, 0, null, null, null, eventCode), false));
+    }
+}
@@ -0,0 +1,80 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.repositrory.PersonRepository;
+import com.backend.hackathon.service.LeaderElectionService;
+import com.backend.hackathon.service.PhotoCompressionService;
+import com.backend.hackathon.service.PhotoRenditionCache;
+import com.backend.hackathon.service.RenditionPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RenditionPublisherTest {
+
+    private static final String HASH_A = "0123456789abcdef0123456789abcdef";
+    private static final String HASH_B = "fedcba9876543210fedcba9876543210";
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+
+    @TempDir
+    Path dir;
+
+    private final PersonRepository personRepository = mock(PersonRepository.class);
+    private final LeaderElectionService leaderElection = mock(LeaderElectionService.class);
+
+    @Test
+    void shouldPublishLadderSizesOnlyAndReturnImmutableUrl() throws Exception {
+        RenditionPublisher publisher = publisher();
+        String rendition = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(JPEG);
+
+        assertEquals(HASH_A + "_400x400.jpg", publisher.publish(HASH_A, 400, 400, rendition));
+        assertArrayEquals(JPEG, Files.readAllBytes(dir.resolve(HASH_A + "_400x400.jpg")));
+        // Размера нет в лестнице - не публикуется
+        assertNull(publisher.publish(HASH_A, 333, 333, rendition));
+        // Временные файлы не остаются
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+
+        // 350x350 округляется вверх до 400x400
+        assertEquals("/renditions/" + HASH_A + "_400x400.jpg", publisher.publishedUrl(HASH_A, 350, 350));
+        assertNull(publisher.publishedUrl(HASH_A, 144, 144));
+        assertNull(publisher.publishedUrl(HASH_B, 350, 350));
+    }
+
+    @Test
+    void shouldDeleteOnlyOldOrphanedFiles() throws Exception {
+        RenditionPublisher publisher = publisher();
+        String rendition = Base64.getEncoder().encodeToString(JPEG);
+        publisher.publish(HASH_A, 144, 144, rendition);
+        publisher.publish(HASH_B, 144, 144, rendition);
+        Path stale = dir.resolve("." + HASH_B + "_400x400.jpg.1.tmp");
+        Files.write(stale, JPEG);
+        long old = System.currentTimeMillis() - 7_200_000;
+        Files.setLastModifiedTime(dir.resolve(HASH_B + "_144x144.jpg"), FileTime.fromMillis(old));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(old));
+
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(personRepository.findAllPhotoHashes()).thenReturn(List.of(HASH_A));
+        publisher.collectGarbage();
+
+        assertTrue(Files.exists(dir.resolve(HASH_A + "_144x144.jpg")));
+        assertFalse(Files.exists(dir.resolve(HASH_B + "_144x144.jpg")));
+        assertFalse(Files.exists(stale));
+        assertNull(publisher.publishedUrl(HASH_B, 144, 144));
+    }
+
+    private RenditionPublisher publisher() throws Exception {
+        return new RenditionPublisher(mock(PhotoCompressionService.class), mock(PhotoRenditionCache.class),
+                personRepository, leaderElection, new SimpleMeterRegistry(), true, dir.toString(), "/renditions/",
+                List.of("144x144", "400x400", "1200x1200"), 3_600_000);
+    }
+}
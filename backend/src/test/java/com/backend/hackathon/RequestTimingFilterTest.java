@@ -0,0 +1,51 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.profiling.RequestTimingFilter;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestTimingFilterTest {
+
+    private final RequestTimingFilter filter = new RequestTimingFilter(true, 1000, 10);
+
+    @Test
+    void shouldSetHeaderAfterBufferedBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(optedIn(), response, (req, res) -> {
+            res.getWriter().write("{\"ok\":true}");
+            res.flushBuffer();
+        });
+
+        assertTrue(response.getHeader("Server-Timing").contains("total;dur="));
+        assertEquals("{\"ok\":true}", response.getContentAsString());
+    }
+
+    @Test
+    void shouldStreamAsyncBodyWithoutBuffering() throws Exception {
+        MockHttpServletRequest request = optedIn();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletResponse[] wrapped = new ServletResponse[1];
+        filter.doFilter(request, response, (req, res) -> {
+            req.startAsync();
+            wrapped[0] = res;
+        });
+        assertNotNull(response.getHeader("Server-Timing"));
+
+        // Экспорт пишет тело из другого потока после возврата обработчика
+        wrapped[0].getOutputStream().write("id;name\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("id;name\n", response.getContentAsString());
+    }
+
+    private static MockHttpServletRequest optedIn() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/export");
+        request.addHeader(RequestTimingFilter.OPT_IN_HEADER, "1");
+        return request;
+    }
+}
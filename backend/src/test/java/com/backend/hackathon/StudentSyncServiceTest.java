@@ -0,0 +1,167 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.entity.Person;
+import com.backend.hackathon.entity.PersonSyncState;
+import com.backend.hackathon.service.StudentConverterService;
+import com.backend.hackathon.service.StudentSyncService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentSyncServiceTest {
+
+    @Test
+    void shouldWriteNothingForUnchangedImport() {
+        Person anna = person("vk:1", "Анна", "Смирнова", "10-1", "photo-a");
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(List.of(anna),
+                List.of(state(7, "vk:1", anna.getContentHash(), "photo-a", "Анна", "Смирнова", null)));
+
+        assertTrue(plan.inserts().isEmpty());
+        assertTrue(plan.updates().isEmpty());
+        assertTrue(plan.deletes().isEmpty());
+        assertEquals(1, plan.unchanged());
+    }
+
+    @Test
+    void shouldInsertUpdateAndSoftDeleteOnlyDifferences() {
+        Person moved = person("vk:1", "Анна", "Смирнова", "11-1", "photo-a");
+        Person newPhoto = person("vk:2", "Олег", "Иванов", "9-2", "photo-new");
+        Person added = person("vk:3", "Пётр", "Орлов", "8-1", null);
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(List.of(moved, newPhoto, added), List.of(
+                state(1, "vk:1", "old-hash", "photo-a", "Анна", "Смирнова", null),
+                state(2, "vk:2", "old-hash", "photo-old", "Олег", "Иванов", null),
+                state(4, "vk:4", "hash", null, "Ушедший", "Ученик", null)));
+
+        assertEquals(List.of(added), plan.inserts());
+        assertEquals(List.of(new StudentSyncService.Update(1, moved, false),
+                new StudentSyncService.Update(2, newPhoto, true)), plan.updates());
+        assertEquals(List.of(4L), plan.deletes());
+    }
+
+    @Test
+    void shouldAdoptRowsImportedWithoutKeyAndRestoreSoftDeleted() {
+        Person legacy = person("vk:5", "Алёна", "Петрова", "10-2", null);
+        Person returning = person("vk:6", "Иван", "Кузнецов", "7-1", null);
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(List.of(legacy, returning), List.of(
+                state(10, null, null, null, "Алена", "ПЕТРОВА", null),
+                state(11, "vk:6", returning.getContentHash(), null, "Иван", "Кузнецов", 1000L)));
+
+        assertTrue(plan.inserts().isEmpty());
+        assertEquals(List.of(new StudentSyncService.Update(10, legacy, false),
+                new StudentSyncService.Update(11, returning, false)), plan.updates());
+        assertTrue(plan.deletes().isEmpty());
+    }
+
+    @Test
+    void shouldKeepNamesakesWithoutVkId() {
+        List<Person> persons = convert(
+                "[{\"name\": \"Иванов Иван\", \"class\": \"9-1\"}, {\"name\": \"Иванов Иван\", \"class\": \"11-2\"}]",
+                "[{\"original_name\": \"Иванов Иван\"}, {\"original_name\": \"Иванов Иван\"}]");
+        assertEquals(List.of("name:иванов иван|9-1", "name:иванов иван|11-2"),
+                persons.stream().map(Person::getSourceKey).toList());
+
+        // Оба тёзки из старого импорта сохраняют свои строки
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(persons, List.of(
+                state(1, null, null, null, "Иван", "Иванов", null),
+                state(2, null, null, null, "Иван", "Иванов", null)));
+        assertEquals(List.of(1L, 2L), plan.updates().stream().map(StudentSyncService.Update::id).toList());
+        assertTrue(plan.inserts().isEmpty());
+        assertTrue(plan.deletes().isEmpty());
+    }
+
+    @Test
+    void shouldKeepRowOfRemainingNamesakeWhenFirstIsRemoved() {
+        List<Person> before = convert(
+                "[{\"name\": \"Иванов Иван\", \"class\": \"9-1\"}, {\"name\": \"Иванов Иван\", \"class\": \"11-2\"}]",
+                "[{\"original_name\": \"Иванов Иван\"}, {\"original_name\": \"Иванов Иван\"}]");
+        List<Person> after = convert("[{\"name\": \"Иванов Иван\", \"class\": \"11-2\"}]",
+                "[{\"original_name\": \"Иванов Иван\"}]");
+
+        // Ушёл тёзка из 9-1: строка и рейтинг ученика 11-2 остаются его
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(after, List.of(
+                state(1, before.get(0).getSourceKey(), before.get(0).getContentHash(), null, "Иван", "Иванов", null),
+                state(2, before.get(1).getSourceKey(), before.get(1).getContentHash(), null, "Иван", "Иванов", null)));
+        assertEquals(1, plan.unchanged());
+        assertTrue(plan.updates().isEmpty());
+        assertTrue(plan.inserts().isEmpty());
+        assertEquals(List.of(1L), plan.deletes());
+    }
+
+    @Test
+    void shouldAdoptRowsKeyedByNameOnlyAndFollowClassChange() {
+        Person moved = person("name:орлов петр|9-1", "Пётр", "Орлов", "9-1", null);
+        StudentSyncService.SyncPlan plan = StudentSyncService.plan(List.of(moved), List.of(
+                state(3, "name:орлов петр", "hash", null, "Пётр", "Орлов", null)));
+        assertEquals(List.of(3L), plan.updates().stream().map(StudentSyncService.Update::id).toList());
+
+        // Перевод в другой класс меняет ключ, но строка та же
+        Person promoted = person("name:орлов петр|10-1", "Пётр", "Орлов", "10-1", null);
+        plan = StudentSyncService.plan(List.of(promoted), List.of(
+                state(3, "name:орлов петр|9-1", moved.getContentHash(), null, "Пётр", "Орлов", null)));
+        assertEquals(List.of(3L), plan.updates().stream().map(StudentSyncService.Update::id).toList());
+        assertTrue(plan.deletes().isEmpty());
+    }
+
+    @Test
+    void shouldKeyByVkIdOrNormalizedNameAndClass() {
+        assertEquals("vk:42", StudentSyncService.sourceKey(" 42 ", "Петрова Алёна", "10-2"));
+        assertEquals("name:петрова алена|10-2", StudentSyncService.sourceKey("", "  Петрова   Алёна ", "10-2"));
+        assertNotEquals(StudentSyncService.contentHash(person("k", "ab", "c", "9-1", null)),
+                StudentSyncService.contentHash(person("k", "a", "bc", "9-1", null)));
+    }
+
+    private static List<Person> convert(String students, String vk) {
+        return new StudentConverterService().convert("default",
+                new ByteArrayInputStream(students.getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayInputStream(vk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Person person(String key, String name, String surname, String schoolClass, String photoHash) {
+        Person person = new Person();
+        person.setSourceKey(key);
+        person.setName(name);
+        person.setSurname(surname);
+        person.setSchoolClass(schoolClass);
+        person.setMale("female");
+        person.setPhotoHash(photoHash);
+        person.setContentHash(StudentSyncService.contentHash(person));
+        return person;
+    }
+
+    private static PersonSyncState state(long id, String key, String contentHash, String photoHash, String name,
+                                         String surname, Long deletedAt) {
+        return new PersonSyncState() {
+            public long getId() {
+                return id;
+            }
+
+            public String getSourceKey() {
+                return key;
+            }
+
+            public String getContentHash() {
+                return contentHash;
+            }
+
+            public String getPhotoHash() {
+                return photoHash;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getSurname() {
+                return surname;
+            }
+
+            public Long getDeletedAt() {
+                return deletedAt;
+            }
+        };
+    }
+}
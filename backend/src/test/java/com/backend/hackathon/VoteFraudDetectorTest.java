@@ -0,0 +1,89 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.service.VoteFraudDetector;
+import com.backend.hackathon.util.SlidingCountMinSketch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoteFraudDetectorTest {
+
+    @Test
+    void shouldForgetCountsOutsideTheWindow() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(256, 4, 4, 4_000);
+        long start = 1_000_000;
+        for (int i = 0; i < 5; i++) {
+            sketch.add(7, start);
+        }
+        assertEquals(6, sketch.add(7, start + 1_500));
+        assertEquals(0, sketch.estimate(8, start + 1_500));
+
+        // Первый интервал вышел из окна, второй ещё в нём
+        assertEquals(1, sketch.estimate(7, start + 4_000));
+        // Пауза длиннее окна - всё обнулилось
+        assertEquals(0, sketch.estimate(7, start + 20_000));
+    }
+
+    @Test
+    void shouldFlagBurstOfOneVoterForOneWinner() {
+        VoteFraudDetector detector = new VoteFraudDetector(true, 600_000, 10, 2048, 4, 5, 1_000, 0.2, 10,
+                new SimpleMeterRegistry());
+        long voter = VoteFraudDetector.voterKey(123L, "10.0.0.1");
+        for (int i = 0; i < 5; i++) {
+            assertNull(detector.inspect(voter, "tg:123", 42));
+            // Голоса за других не мешают
+            assertNull(detector.inspect(voter, "tg:123", 100 + i));
+        }
+        VoteFraudDetector.Verdict verdict = detector.inspect(voter, "tg:123", 42);
+        assertNotNull(verdict);
+        assertEquals(VoteFraudDetector.Reason.VOTER_WINNER_BURST, verdict.reason());
+        assertEquals(6, verdict.votes());
+
+        // Другой голосующий за того же человека - в пределах нормы
+        long ipVoter = VoteFraudDetector.voterKey(null, "10.0.0.2");
+        assertTrue(ipVoter < 0);
+        assertNull(detector.inspect(ipVoter, "ip:10.0.0.2", 42));
+
+        VoteFraudDetector.Report report = detector.report();
+        assertEquals("tg:123", report.topVoterWinners().get(0).voter());
+        assertEquals(42, report.topVoterWinners().get(0).winnerId());
+        assertEquals(6, report.topVoterWinners().get(0).votes());
+        assertTrue(report.topVoterWinners().stream().anyMatch(pair -> pair.voter().equals("ip:10.0.0.2")));
+        assertEquals(42, report.topWinners().get(0).winnerId());
+        assertEquals(7, report.topWinners().get(0).votes());
+    }
+
+    @Test
+    void shouldFlagWinnerBurstFromManyVoters() {
+        VoteFraudDetector detector = new VoteFraudDetector(true, 600_000, 10, 2048, 4, 5, 20, 0.2, 10,
+                new SimpleMeterRegistry());
+        for (int i = 0; i < 20; i++) {
+            assertNull(detector.inspect(VoteFraudDetector.voterKey(1000L + i, null), null, 42));
+        }
+        VoteFraudDetector.Verdict verdict = detector.inspect(VoteFraudDetector.voterKey(2000L, null), null, 42);
+        assertNotNull(verdict);
+        assertEquals(VoteFraudDetector.Reason.WINNER_BURST, verdict.reason());
+    }
+
+    @Test
+    void shouldNotFlagPopularWinnerOnBusyInstance() {
+        VoteFraudDetector detector = new VoteFraudDetector(true, 600_000, 10, 2048, 4, 5, 20, 0.2, 10,
+                new SimpleMeterRegistry());
+        // Каждый десятый голос - за одного участника: выше абсолютного порога, но 10% от всех голосов
+        for (int i = 0; i < 500; i++) {
+            long winner = i % 10 == 0 ? 42 : 1000 + i;
+            assertNull(detector.inspect(VoteFraudDetector.voterKey(5000L + i, null), null, winner));
+        }
+        assertEquals(500, detector.report().windowVotes());
+    }
+
+    @Test
+    void shouldKeyAnonymousVotersByHostWithoutPort() {
+        assertEquals("10.0.0.1", VoteFraudDetector.clientHost("10.0.0.1:51234"));
+        assertEquals("2001:db8::1", VoteFraudDetector.clientHost("[2001:db8::1]:443"));
+        assertEquals("2001:db8::1", VoteFraudDetector.clientHost("2001:db8::1"));
+        assertEquals(VoteFraudDetector.voterKey(null, VoteFraudDetector.clientHost("10.0.0.1:51234")),
+                VoteFraudDetector.voterKey(null, VoteFraudDetector.clientHost("10.0.0.1:60000")));
+    }
+}
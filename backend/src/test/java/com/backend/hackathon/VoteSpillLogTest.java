@@ -0,0 +1,108 @@
+package com.backend.hackathon;
+
+import com.backend.hackathon.service.DatabaseCircuitBreaker;
+import com.backend.hackathon.service.PersonService;
+import com.backend.hackathon.service.VoteSpillLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class VoteSpillLogTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PersonService personService = mock(PersonService.class);
+
+    @Test
+    void shouldReplaySpilledVotesInOrderAfterRestart() throws Exception {
+        DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(1, 60_000, meterRegistry);
+        breaker.recordFailure(new CannotCreateTransactionException("down"));
+
+        VoteSpillLog spill = spillLog(breaker);
+        assertTrue(spill.append(1, 2, 1000));
+        assertTrue(spill.append(3, 4, 1001));
+        assertTrue(spill.append(5, 6, 1002));
+        // Брейкер открыт - воспроизведение ждёт
+        spill.replay();
+        verifyNoInteractions(personService);
+        spill.close();
+
+        // После перезапуска голоса на месте
+        breaker.recordSuccess();
+        VoteSpillLog restarted = spillLog(breaker);
+        assertEquals(3, restarted.pending());
+        restarted.replay();
+
+        InOrder inOrder = inOrder(personService);
+        inOrder.verify(personService).duoVote(1, 2);
+        inOrder.verify(personService).duoVote(3, 4);
+        inOrder.verify(personService).duoVote(5, 6);
+        assertEquals(0, restarted.pending());
+        assertFalse(restarted.hasPending());
+        restarted.close();
+    }
+
+    @Test
+    void shouldStopReplayAndOpenBreakerWhenDatabaseFailsAgain() throws Exception {
+        DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(1, 60_000, meterRegistry);
+        VoteSpillLog spill = spillLog(breaker);
+        spill.append(1, 2, 1000);
+        spill.append(3, 4, 1001);
+        doNothing().when(personService).duoVote(1, 2);
+        doThrow(new CannotCreateTransactionException("down")).when(personService).duoVote(3, 4);
+
+        spill.replay();
+
+        assertTrue(breaker.isOpen());
+        assertEquals(1, spill.pending());
+        spill.close();
+    }
+
+    @Test
+    void shouldRejectVotesWhenSpillIsFull() throws Exception {
+        VoteSpillLog spill = new VoteSpillLog(dir.resolve("spill.bin").toString(), 60, personService,
+                new DatabaseCircuitBreaker(1, 60_000, meterRegistry), meterRegistry);
+        assertTrue(spill.append(1, 2, 1000));
+        assertTrue(spill.append(3, 4, 1001));
+        assertFalse(spill.append(5, 6, 1002));
+        spill.close();
+    }
+
+    @Test
+    void shouldAdoptSpillFileOfInstanceThatIsGone() throws Exception {
+        DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(1, 60_000, meterRegistry);
+        breaker.recordFailure(new CannotCreateTransactionException("down"));
+        VoteSpillLog gone = new VoteSpillLog(dir.resolve("vote-spill-old.bin").toString(), 1 << 20, personService,
+                breaker, meterRegistry);
+        gone.append(1, 2, 1000);
+        gone.append(3, 4, 1001);
+        gone.close();
+
+        // Контейнер пересоздан с другим HOSTNAME
+        breaker.recordSuccess();
+        VoteSpillLog spill = new VoteSpillLog(dir.resolve("vote-spill-new.bin").toString(), 1 << 20, personService,
+                breaker, new SimpleMeterRegistry());
+        spill.replay();
+
+        InOrder inOrder = inOrder(personService);
+        inOrder.verify(personService).duoVote(1, 2);
+        inOrder.verify(personService).duoVote(3, 4);
+        assertFalse(Files.exists(dir.resolve("vote-spill-old.bin")));
+        assertEquals(0, spill.pending());
+        spill.close();
+    }
+
+    private VoteSpillLog spillLog(DatabaseCircuitBreaker breaker) throws Exception {
+        return new VoteSpillLog(dir.resolve("spill.bin").toString(), 1 << 20, personService, breaker, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,81 @@
+package com.backend.hackathon.benchmark;
+
+import com.backend.hackathon.service.ImageResizer;
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full Thumbnailator decode vs subsampled decode for a large source photo.
+ * Run with: mvn test-compile, then main() from the IDE (add -prof gc to see allocation per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class PhotoResizeBenchmark {
+
+    @Param({"96", "400"})
+    private int size;
+
+    @Param({"1600"})
+    private int sourceSize;
+
+    private final ImageResizer resizer = new ImageResizer();
+    private String photo;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Градиент с шумом, чтобы JPEG был похож по размеру на реальное фото
+        BufferedImage image = new BufferedImage(sourceSize, sourceSize * 3 / 4, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, sourceSize, sourceSize, Color.BLUE));
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        Random random = new Random(239);
+        for (int i = 0; i < image.getWidth() * image.getHeight() / 8; i++) {
+            image.setRGB(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), random.nextInt());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        photo = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    // Прежний путь: Thumbnailator декодирует всё изображение целиком
+    @Benchmark
+    public String fullDecode() throws IOException {
+        byte[] imageBytes = Base64.getDecoder().decode(photo.substring(photo.indexOf(',') + 1));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Thumbnails.of(new ByteArrayInputStream(imageBytes))
+                .size(size, size)
+                .outputFormat("jpg")
+                .outputQuality(0.7)
+                .toOutputStream(outputStream);
+        return "data:image/jpg;base64," + Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+
+    @Benchmark
+    public String subsampledDecode() throws IOException {
+        return resizer.resize(photo, size, size, 0.7);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhotoResizeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package com.backend.hackathon.benchmark;
+
+import com.backend.hackathon.service.VoteFraudDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of VoteFraudDetector.inspect per vote: spread-out votes of many voters vs one voter hammering one
+ * person (heavy-hitter updates on every call). Thresholds are out of reach so nothing is flagged.
+ * Run with: mvn test-compile, then main() from the IDE (add -prof gc to see allocation per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class VoteFraudDetectorBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"2048"})
+    private int width;
+
+    private VoteFraudDetector detector;
+    private long[] voters;
+    private long[] winners;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        detector = new VoteFraudDetector(true, 600_000, 10, width, 4, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 20,
+                new SimpleMeterRegistry());
+        Random random = new Random(239);
+        voters = new long[KEYS];
+        winners = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            voters[i] = 100_000_000L + random.nextInt(5_000);
+            winners[i] = 1 + random.nextInt(1_500);
+        }
+    }
+
+    @Benchmark
+    public Object randomVotes() {
+        int i = next++ & (KEYS - 1);
+        return detector.inspect(voters[i], null, winners[i]);
+    }
+
+    @Benchmark
+    public Object sameVoterSameWinner() {
+        return detector.inspect(100_000_000L, null, 42);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object randomVotesContended(Cursor cursor) {
+        int i = cursor.next++ & (KEYS - 1);
+        return detector.inspect(voters[i], null, winners[i]);
+    }
+
+    /**
+     * Per-thread position in the key arrays: threads start at different offsets and advance without
+     * sharing a counter or reading the clock inside the measured method.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setUp() {
+            next = (int) (Thread.currentThread().threadId() * 7919);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VoteFraudDetectorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -42,7 +42,7 @@ function getPhotoUrl(photo) {
         return getFallbackAvatar();
     }
 
-    if (photo.startsWith("data:") || photo.startsWith("http://") || photo.startsWith("https://")) {
+    if (photo.startsWith("data:") || photo.startsWith("http://") || photo.startsWith("https://") || photo.startsWith("/")) {
         return photo;
     }
 
@@ -220,7 +220,7 @@ export function RatePage() {
                                     )}
                                     <div className="rate-avatar-wrapper">
                                         <img
-                                            src={getPhotoUrl(person.photo)}
+                                            src={getPhotoUrl(person.photoUrl || person.photo)}
                                             alt={`${person.name} ${person.surname}`}
                                             className="rate-avatar-image"
                                         />
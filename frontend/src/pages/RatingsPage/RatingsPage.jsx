@@ -28,6 +28,11 @@ function hasRealPhoto(photo) {
     return true;
   }
   // Regular URLs are real (if not stock)
+  // Published rendition served by Caddy
+  if (photo.startsWith("/renditions/")) {
+    return true;
+  }
+
   if (photo.startsWith("http://") || photo.startsWith("https://")) {
     return true;
   }
@@ -51,7 +56,7 @@ function getPhotoUrl(photo) {
   }
   
   // If it's already a data URI or URL, use it as-is
-  if (photo.startsWith("data:") || photo.startsWith("http://") || photo.startsWith("https://")) {
+  if (photo.startsWith("data:") || photo.startsWith("http://") || photo.startsWith("https://") || photo.startsWith("/")) {
     return photo;
   }
   
@@ -197,10 +202,11 @@ export function RatingsPage() {
         // Avatar displays at 48px, but we need 3x resolution for sharp images on mobile high-DPI screens
         const imageSize = getRatingsPageImageSize();
         getData(`/api/persons/${person.id}?photoWidth=${imageSize.width}&photoHeight=${imageSize.height}`).then(result => {
-          if (result.success && result.data?.photo) {
+          const photo = result.data?.photoUrl || result.data?.photo;
+          if (result.success && photo) {
             setPhotoCache(prev => ({
               ...prev,
-              [person.id]: result.data.photo
+              [person.id]: photo
             }));
           }
         }).catch(err => {